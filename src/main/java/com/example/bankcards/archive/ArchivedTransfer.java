@@ -0,0 +1,44 @@
+package com.example.bankcards.archive;
+
+import com.example.bankcards.dto.TransactionExportRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * One side of an archived transfer as seen from {@code cardId}. Every transfer is archived
+ * twice, as a debit of the source card and as a credit of the target card, so that segments
+ * can be sorted and indexed by card.
+ */
+public record ArchivedTransfer(
+        long cardId,
+        LocalDateTime createdAt,
+        long transactionId,
+        long counterpartyCardId,
+        boolean debit,
+        BigDecimal amount) {
+
+    /**
+     * Segment order: card, then time and id, debit before credit for transfers to the same card.
+     */
+    public static final Comparator<ArchivedTransfer> ORDER = Comparator
+            .comparingLong(ArchivedTransfer::cardId)
+            .thenComparing(ArchivedTransfer::createdAt)
+            .thenComparingLong(ArchivedTransfer::transactionId)
+            .thenComparing(ArchivedTransfer::debit, Comparator.reverseOrder());
+
+    public static ArchivedTransfer debitOf(TransactionExportRow row) {
+        return new ArchivedTransfer(row.fromCardId(), row.createdAt(), row.id(), row.toCardId(), true, row.amount());
+    }
+
+    public static ArchivedTransfer creditOf(TransactionExportRow row) {
+        return new ArchivedTransfer(row.toCardId(), row.createdAt(), row.id(), row.fromCardId(), false, row.amount());
+    }
+
+    public TransactionExportRow toRow() {
+        return debit
+                ? new TransactionExportRow(transactionId, cardId, counterpartyCardId, amount, createdAt)
+                : new TransactionExportRow(transactionId, counterpartyCardId, cardId, amount, createdAt);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bankcards.archive;
+
+import com.example.bankcards.dto.TransactionExportRow;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.util.CursorCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Segment files of archived transactions in {@code app.archive.directory}, answering history
+ * queries for months that are no longer in Postgres.
+ * <p>
+ * Segments written by the archiver of another instance are picked up by rescanning the
+ * directory every {@code rescan-interval}.
+ */
+@Slf4j
+@Component
+public class TransactionArchive {
+
+    public static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final Comparator<TransactionExportRow> NEWEST_FIRST = Comparator
+            .comparing(TransactionExportRow::createdAt)
+            .thenComparing(TransactionExportRow::id)
+            .reversed();
+
+    private final Path directory;
+
+    // newest first, replaced on every change
+    private volatile List<TransactionSegment> segments = List.of();
+
+    public TransactionArchive(@Value("${app.archive.directory:archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        scan();
+        log.info("Loaded {} transaction archive segments from {}", segments.size(), directory);
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.rescan-interval:PT1M}",
+            initialDelayString = "${app.archive.rescan-interval:PT1M}")
+    public void rescan() throws IOException {
+        int before = segments.size();
+        scan();
+        if (segments.size() > before) {
+            log.info("Loaded {} new transaction archive segments from {}", segments.size() - before, directory);
+        }
+    }
+
+    private void scan() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList()) {
+                register(file);
+            }
+        }
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public synchronized void register(Path file) {
+        if (segments.stream().anyMatch(segment -> segment.path().equals(file))) {
+            return;
+        }
+        try {
+            List<TransactionSegment> updated = new ArrayList<>(segments);
+            updated.add(TransactionSegment.open(file));
+            updated.sort(Comparator.comparing(TransactionSegment::maxCreatedAt).reversed());
+            segments = List.copyOf(updated);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open archive segment " + file, e);
+        }
+    }
+
+    /**
+     * Archived counterpart of the online history queries: transfers of {@code cardIds} matching
+     * {@code filter} and older than {@code after}, newest first. A transfer between two of the
+     * given cards is returned once, through its debit side.
+     */
+    public List<TransactionExportRow> findHistory(Collection<Long> cardIds, TransactionHistoryFilter filter,
+                                                  CursorCodec.Position after, int limit) {
+        LocalDateTime to = filter.to();
+        if (after != null) {
+            LocalDateTime afterBound = after.createdAt().plus(1, ChronoUnit.MICROS);
+            to = to == null || afterBound.isBefore(to) ? afterBound : to;
+        }
+        Predicate<ArchivedTransfer> accept = transfer -> (transfer.debit() || !cardIds.contains(transfer.counterpartyCardId()))
+                && (filter.minAmount() == null || transfer.amount().compareTo(filter.minAmount()) >= 0)
+                && (filter.maxAmount() == null || transfer.amount().compareTo(filter.maxAmount()) <= 0)
+                && (after == null || isBefore(transfer, after));
+
+        List<TransactionExportRow> found = new ArrayList<>();
+        for (long cardId : cardIds) {
+            int remaining = limit;
+            for (TransactionSegment segment : segments) {
+                if (remaining == 0 || filter.from() != null && segment.maxCreatedAt().isBefore(filter.from())) {
+                    break;
+                }
+                if (to != null && !segment.minCreatedAt().isBefore(to)) {
+                    continue;
+                }
+                List<ArchivedTransfer> page = segment.findNewestFirst(cardId, filter.from(), to, accept, remaining);
+                page.forEach(transfer -> found.add(transfer.toRow()));
+                remaining -= page.size();
+            }
+        }
+        found.sort(NEWEST_FIRST);
+        return found.size() > limit ? List.copyOf(found.subList(0, limit)) : found;
+    }
+
+    private static boolean isBefore(ArchivedTransfer transfer, CursorCodec.Position after) {
+        int byTime = transfer.createdAt().compareTo(after.createdAt());
+        return byTime < 0 || byTime == 0 && transfer.transactionId() < after.id();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        segments.forEach(TransactionSegment::close);
+        segments = List.of();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bankcards.archive;
+
+import com.example.bankcards.service.TransactionPartitionManager;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Moves {@code transactions} partitions that fell out of the retention period out of Postgres
+ * into archive segments.
+ * <p>
+ * A partition is streamed in segment order into a temporary file, which is synced, renamed
+ * into place and read back. The partition stays attached until a later run, so a month that
+ * fails to archive is still served from Postgres and every instance has rescanned the archive
+ * directory before the month leaves the database; only then is it detached and dropped. Each
+ * step is repeatable, so a run that dies half way is completed by the next one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionArchiver {
+
+    private static final String DETACHED_PARTITIONS = """
+            SELECT c.relname FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = current_schema()
+              AND c.relkind = 'r'
+              AND NOT c.relispartition
+              AND c.relname ~ '^transactions_p[0-9]{4}_[0-9]{2}$'
+            ORDER BY c.relname""";
+
+    private static final String SELECT_TRANSFERS = """
+            SELECT from_card_id AS card_id, created_at, id, to_card_id AS counterparty_id, true AS debit, amount
+            FROM %1$s
+            UNION ALL
+            SELECT to_card_id, created_at, id, from_card_id, false, amount
+            FROM %1$s
+            ORDER BY card_id, created_at, id, debit DESC""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchive archive;
+    private final TransactionPartitionManager partitionManager;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.partitions.transactions.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${app.archive.fetch-size:5000}")
+    private int fetchSize;
+
+    @PostConstruct
+    void checkRetention() {
+        if (retentionMonths > 0 && !enabled) {
+            throw new IllegalStateException("app.partitions.transactions.retention-months needs app.archive.enabled:"
+                    + " months past retention are only detached once they are archived");
+        }
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void archiveExpiredPartitions() {
+        if (!enabled) {
+            return;
+        }
+        // left behind by a run that died between detaching and dropping
+        for (String table : detachedPartitions()) {
+            try {
+                archive(table);
+            } catch (RuntimeException e) {
+                log.error("Cannot archive detached partition {}", table, e);
+            }
+        }
+        if (retentionMonths == 0) {
+            return;
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (YearMonth month : partitionManager.attachedPartitions()) {
+            if (!month.isBefore(cutoff)) {
+                break;
+            }
+            try {
+                retire(month);
+            } catch (RuntimeException e) {
+                log.error("Cannot archive partition {}", TransactionPartitionManager.partitionName(month), e);
+            }
+        }
+    }
+
+    /**
+     * Writes the segment of an attached partition, or, if an earlier run already wrote it,
+     * detaches and drops the partition.
+     */
+    public void retire(YearMonth month) {
+        String table = TransactionPartitionManager.partitionName(month);
+        boolean archived = Files.exists(segmentPath(table));
+        Path target = segment(table);
+        if (!archived) {
+            log.info("Archived {} into {}, dropping it on the next run", table, target);
+            return;
+        }
+        partitionManager.detachPartition(month);
+        jdbcTemplate.execute("DROP TABLE " + table);
+        log.info("Dropped archived partition {}", table);
+    }
+
+    /**
+     * Archives and drops a detached partition.
+     */
+    public Path archive(String table) {
+        Path target = segment(table);
+        jdbcTemplate.execute("DROP TABLE " + table);
+        log.info("Archived {} into {}", table, target);
+        return target;
+    }
+
+    private Path segment(String table) {
+        try {
+            Files.createDirectories(archive.directory());
+            Path target = segmentPath(table);
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+            if (!Files.exists(target)) {
+                write(table, target);
+            }
+
+            try (TransactionSegment segment = TransactionSegment.open(target)) {
+                if (segment.rows() != 2 * count) {
+                    throw new IllegalStateException("Archive segment " + target + " holds " + segment.rows()
+                            + " transfer sides, expected " + 2 * count);
+                }
+            }
+            archive.register(target);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot archive " + table, e);
+        }
+    }
+
+    private Path segmentPath(String table) {
+        return archive.directory().resolve(table + TransactionArchive.SEGMENT_SUFFIX);
+    }
+
+    private void write(String table, Path target) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (TransactionSegmentWriter writer = new TransactionSegmentWriter(temporary)) {
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(fetchSize);
+            // the cursor only streams inside a transaction
+            transactionTemplate.executeWithoutResult(_ -> streaming.query(SELECT_TRANSFERS.formatted(table), rs -> {
+                try {
+                    writer.append(new ArchivedTransfer(rs.getLong(1), rs.getObject(2, LocalDateTime.class),
+                            rs.getLong(3), rs.getLong(4), rs.getBoolean(5), rs.getBigDecimal(6)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public List<String> detachedPartitions() {
+        return jdbcTemplate.queryForList(DETACHED_PARTITIONS, String.class);
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.bankcards.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.example.bankcards.archive.TransactionSegmentFormat.*;
+
+/**
+ * Read-only view of a segment file, memory-mapped once and shared by all readers.
+ * <p>
+ * The sparse block index is copied onto the heap when the segment is opened; a lookup binary
+ * searches it for the blocks that can hold a card and time range and inflates only those,
+ * straight from the mapping.
+ */
+public final class TransactionSegment implements Closeable {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final Path path;
+    private final Arena arena;
+    private final MemorySegment data;
+    private final long rows;
+    private final LocalDateTime minCreatedAt;
+    private final LocalDateTime maxCreatedAt;
+    private final long[] firstCard;
+    private final long[] firstMicros;
+    private final long[] lastCard;
+    private final long[] lastMicros;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    private TransactionSegment(Path path, Arena arena, MemorySegment data) {
+        this.path = path;
+        this.arena = arena;
+        this.data = data;
+
+        long size = data.byteSize();
+        if (size < HEADER_LENGTH + FOOTER_LENGTH || data.get(INT, 0) != MAGIC
+                || data.get(INT, size - Integer.BYTES) != MAGIC) {
+            throw new IllegalStateException("Not an archive segment: " + path);
+        }
+        if (data.get(INT, Integer.BYTES) != VERSION) {
+            throw new IllegalStateException("Unsupported archive segment version in " + path);
+        }
+
+        long footer = size - FOOTER_LENGTH;
+        long indexOffset = data.get(LONG, footer);
+        int blocks = data.get(INT, footer + Long.BYTES);
+        if (blocks < 0 || indexOffset < HEADER_LENGTH || indexOffset + (long) blocks * INDEX_ENTRY_LENGTH != footer) {
+            throw new IllegalStateException("Corrupt archive segment index in " + path);
+        }
+        this.rows = data.get(LONG, footer + Long.BYTES + Integer.BYTES);
+        this.minCreatedAt = fromMicros(data.get(LONG, footer + 2 * Long.BYTES + Integer.BYTES));
+        this.maxCreatedAt = fromMicros(data.get(LONG, footer + 3 * Long.BYTES + Integer.BYTES));
+
+        firstCard = new long[blocks];
+        firstMicros = new long[blocks];
+        lastCard = new long[blocks];
+        lastMicros = new long[blocks];
+        offsets = new long[blocks];
+        compressedLengths = new int[blocks];
+        rawLengths = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            long entry = indexOffset + (long) i * INDEX_ENTRY_LENGTH;
+            firstCard[i] = data.get(LONG, entry);
+            firstMicros[i] = data.get(LONG, entry + Long.BYTES);
+            lastCard[i] = data.get(LONG, entry + 2 * Long.BYTES);
+            lastMicros[i] = data.get(LONG, entry + 3 * Long.BYTES);
+            offsets[i] = data.get(LONG, entry + 4 * Long.BYTES);
+            compressedLengths[i] = data.get(INT, entry + 5 * Long.BYTES);
+            rawLengths[i] = data.get(INT, entry + 5 * Long.BYTES + Integer.BYTES);
+            if (offsets[i] < HEADER_LENGTH || offsets[i] + compressedLengths[i] > indexOffset) {
+                throw new IllegalStateException("Corrupt archive segment index in " + path);
+            }
+        }
+    }
+
+    public static TransactionSegment open(Path path) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TransactionSegment(path, arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public LocalDateTime minCreatedAt() {
+        return minCreatedAt;
+    }
+
+    public LocalDateTime maxCreatedAt() {
+        return maxCreatedAt;
+    }
+
+    /**
+     * Returns up to {@code limit} transfers of {@code cardId} with {@code from <= createdAt < to},
+     * newest first, that pass {@code accept}. Null bounds are open.
+     */
+    public List<ArchivedTransfer> findNewestFirst(long cardId, LocalDateTime from, LocalDateTime to,
+                                                  Predicate<ArchivedTransfer> accept, int limit) {
+        long fromMicros = from == null ? Long.MIN_VALUE : toMicros(from);
+        long toMicros = to == null ? Long.MAX_VALUE : toMicros(to);
+        List<ArchivedTransfer> found = new ArrayList<>(Math.min(limit, 64));
+        if (rows == 0 || limit <= 0 || fromMicros >= toMicros) {
+            return found;
+        }
+
+        // first block whose last key is >= (card, from) and last block whose first key is < (card, to)
+        int low = firstBlockEndingAtOrAfter(cardId, fromMicros);
+        int high = lastBlockStartingBefore(cardId, toMicros);
+        for (int i = high; i >= low && found.size() < limit; i--) {
+            List<ArchivedTransfer> block = readBlock(i);
+            for (int j = block.size() - 1; j >= 0 && found.size() < limit; j--) {
+                ArchivedTransfer transfer = block.get(j);
+                long micros = toMicros(transfer.createdAt());
+                if (transfer.cardId() == cardId && micros >= fromMicros && micros < toMicros && accept.test(transfer)) {
+                    found.add(transfer);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads every transfer in segment order.
+     */
+    public List<ArchivedTransfer> readAll() {
+        List<ArchivedTransfer> all = new ArrayList<>(Math.toIntExact(rows));
+        for (int i = 0; i < offsets.length; i++) {
+            all.addAll(readBlock(i));
+        }
+        return all;
+    }
+
+    private int firstBlockEndingAtOrAfter(long cardId, long micros) {
+        int low = 0;
+        int high = offsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(lastCard[mid], lastMicros[mid], cardId, micros) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lastBlockStartingBefore(long cardId, long micros) {
+        int low = 0;
+        int high = offsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(firstCard[mid], firstMicros[mid], cardId, micros) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private static int compare(long cardA, long microsA, long cardB, long microsB) {
+        int byCard = Long.compare(cardA, cardB);
+        return byCard != 0 ? byCard : Long.compare(microsA, microsB);
+    }
+
+    private List<ArchivedTransfer> readBlock(int block) {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(data.asSlice(offsets[block], compressedLengths[block]).asByteBuffer());
+            byte[] raw = new byte[rawLengths[block]];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                throw new IllegalStateException("Corrupt archive segment block in " + path);
+            }
+            return decodeBlock(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive segment block in " + path, e);
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+}
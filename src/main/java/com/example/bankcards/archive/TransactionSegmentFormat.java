@@ -0,0 +1,185 @@
+package com.example.bankcards.archive;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Layout of archive segment files.
+ * <pre>
+ * header  : magic (int) | version (int)
+ * blocks  : Deflate-compressed column blocks of up to {@code block-rows} transfers
+ * index   : per block: first card, first time, last card, last time (longs),
+ *           offset (long), compressed length, raw length, row count (ints)
+ * footer  : index offset (long) | block count (int) | row count (long)
+ *           | min time (long) | max time (long) | magic (int)
+ * </pre>
+ * Numbers are big-endian, times are microseconds of the naive {@code created_at} read as UTC.
+ * A block stores its columns one after another: card ids as unsigned deltas, times,
+ * transaction ids and counterparties as zigzag deltas, debit flags, amount scales and
+ * unscaled amounts, all as variable-length integers. Sorted by card and time, most deltas fit
+ * in one or two bytes before compression.
+ */
+final class TransactionSegmentFormat {
+
+    static final int MAGIC = 0x42435453;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 8;
+    static final int INDEX_ENTRY_LENGTH = 5 * Long.BYTES + 3 * Integer.BYTES;
+    static final int FOOTER_LENGTH = 4 * Long.BYTES + 2 * Integer.BYTES;
+
+    private TransactionSegmentFormat() {}
+
+    static long toMicros(LocalDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), 1_000_000L), time.getNano() / 1_000);
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static byte[] encodeBlock(List<ArchivedTransfer> rows) {
+        Bytes out = new Bytes(rows.size() * 16);
+        out.writeVarLong(rows.size());
+        long previous = 0;
+        for (ArchivedTransfer row : rows) {
+            out.writeVarLong(row.cardId() - previous);
+            previous = row.cardId();
+        }
+        previous = 0;
+        for (ArchivedTransfer row : rows) {
+            long micros = toMicros(row.createdAt());
+            out.writeZigZag(micros - previous);
+            previous = micros;
+        }
+        previous = 0;
+        for (ArchivedTransfer row : rows) {
+            out.writeZigZag(row.transactionId() - previous);
+            previous = row.transactionId();
+        }
+        previous = 0;
+        for (ArchivedTransfer row : rows) {
+            out.writeZigZag(row.counterpartyCardId() - previous);
+            previous = row.counterpartyCardId();
+        }
+        for (ArchivedTransfer row : rows) {
+            out.write(row.debit() ? 1 : 0);
+        }
+        for (ArchivedTransfer row : rows) {
+            out.writeZigZag(row.amount().scale());
+        }
+        for (ArchivedTransfer row : rows) {
+            out.writeZigZag(row.amount().unscaledValue().longValueExact());
+        }
+        return out.toByteArray();
+    }
+
+    static List<ArchivedTransfer> decodeBlock(byte[] block) {
+        Reader in = new Reader(block);
+        int count = Math.toIntExact(in.readVarLong());
+        long[] cards = new long[count];
+        long[] micros = new long[count];
+        long[] ids = new long[count];
+        long[] counterparties = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            cards[i] = previous += in.readVarLong();
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            micros[i] = previous += in.readZigZag();
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            ids[i] = previous += in.readZigZag();
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            counterparties[i] = previous += in.readZigZag();
+        }
+        boolean[] debits = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            debits[i] = in.read() == 1;
+        }
+        int[] scales = new int[count];
+        for (int i = 0; i < count; i++) {
+            scales[i] = Math.toIntExact(in.readZigZag());
+        }
+        List<ArchivedTransfer> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal amount = new BigDecimal(BigInteger.valueOf(in.readZigZag()), scales[i]);
+            rows.add(new ArchivedTransfer(cards[i], fromMicros(micros[i]), ids[i], counterparties[i], debits[i], amount));
+        }
+        return rows;
+    }
+
+    private static final class Bytes {
+        private byte[] buffer;
+        private int size;
+
+        private Bytes(int capacity) {
+            buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        private void write(int b) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private int read() {
+            if (position >= buffer.length) {
+                throw new IllegalStateException("Corrupt archive segment: block is truncated");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Corrupt archive segment: malformed number");
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.bankcards.archive;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static com.example.bankcards.archive.TransactionSegmentFormat.*;
+
+/**
+ * Writes one immutable segment file. Transfers must be appended in {@link ArchivedTransfer#ORDER};
+ * nothing is readable until {@link #finish()} has written the index and synced the file.
+ */
+public class TransactionSegmentWriter implements Closeable {
+
+    public static final int DEFAULT_BLOCK_ROWS = 1024;
+
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final int blockRows;
+    private final Deflater deflater;
+    private final List<ArchivedTransfer> block;
+    private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    private final DataOutputStream indexOut = new DataOutputStream(index);
+
+    private ArchivedTransfer last;
+    private long offset;
+    private int blocks;
+    private long rows;
+    private long minMicros = Long.MAX_VALUE;
+    private long maxMicros = Long.MIN_VALUE;
+    private boolean finished;
+
+    public TransactionSegmentWriter(Path path) throws IOException {
+        this(path, DEFAULT_BLOCK_ROWS, Deflater.BEST_COMPRESSION);
+    }
+
+    public TransactionSegmentWriter(Path path, int blockRows, int level) throws IOException {
+        this.file = new FileOutputStream(Files.createFile(path).toFile());
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        this.blockRows = blockRows;
+        this.deflater = new Deflater(level);
+        this.block = new ArrayList<>(blockRows);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        offset = HEADER_LENGTH;
+    }
+
+    public void append(ArchivedTransfer transfer) throws IOException {
+        if (last != null && ArchivedTransfer.ORDER.compare(last, transfer) > 0) {
+            throw new IllegalArgumentException("Archived transfers must be appended in card, time and id order");
+        }
+        last = transfer;
+        block.add(transfer);
+        if (block.size() == blockRows) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Writes the remaining block, the index and the footer, and forces the file to disk.
+     */
+    public void finish() throws IOException {
+        flushBlock();
+        out.write(index.toByteArray());
+        out.writeLong(offset);
+        out.writeInt(blocks);
+        out.writeLong(rows);
+        out.writeLong(rows == 0 ? 0 : minMicros);
+        out.writeLong(rows == 0 ? 0 : maxMicros);
+        out.writeInt(MAGIC);
+        out.flush();
+        file.getChannel().force(true);
+        finished = true;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    private void flushBlock() throws IOException {
+        if (block.isEmpty()) {
+            return;
+        }
+        byte[] raw = encodeBlock(block);
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+
+        ArchivedTransfer first = block.getFirst();
+        ArchivedTransfer lastInBlock = block.getLast();
+        indexOut.writeLong(first.cardId());
+        indexOut.writeLong(toMicros(first.createdAt()));
+        indexOut.writeLong(lastInBlock.cardId());
+        indexOut.writeLong(toMicros(lastInBlock.createdAt()));
+        indexOut.writeLong(offset);
+        indexOut.writeInt(compressed.size());
+        indexOut.writeInt(raw.length);
+        indexOut.writeInt(block.size());
+
+        for (ArchivedTransfer transfer : block) {
+            long micros = toMicros(transfer.createdAt());
+            minMicros = Math.min(minMicros, micros);
+            maxMicros = Math.max(maxMicros, micros);
+        }
+        compressed.writeTo(out);
+        offset += compressed.size();
+        rows += block.size();
+        blocks++;
+        block.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+        if (!finished) {
+            throw new IOException("Archive segment was closed before it was finished");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Card encryption keys. {@code cardKeyBase64} is key id 0, the key every card number was
+ * encrypted with before rotation existed; further keys are added under {@code cardKeys} and
+ * {@code currentKeyId} selects the one used for new writes.
+ */
+@ConfigurationProperties(prefix = "app.crypto")
+public record CardCryptoProperties(String cardKeyBase64,
+                                   String cardIndexKeyBase64,
+                                   Map<Integer, String> cardKeys,
+                                   Integer currentKeyId) {
+    public CardCryptoProperties {
+        cardKeys = cardKeys != null ? cardKeys : Map.of();
+        currentKeyId = currentKeyId != null ? currentKeyId : 0;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Request limits per route. A client, the authenticated user or otherwise the remote address,
+ * may send {@code capacity} requests to a route at once and then one more every
+ * {@code period / capacity}. A request is counted against the first route it matches.
+ */
+@ConfigurationProperties(prefix = "security.rate-limit")
+public record RateLimitProperties(boolean enabled,
+                                  Long maxClientsPerRoute,
+                                  List<Route> routes) {
+    public RateLimitProperties {
+        maxClientsPerRoute = maxClientsPerRoute != null ? maxClientsPerRoute : 100_000L;
+        routes = routes != null ? routes : List.of();
+    }
+
+    /**
+     * @param method any method when null
+     * @param path   a Spring MVC path pattern
+     */
+    public record Route(String name, HttpMethod method, String path, int capacity, Duration period) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Read replica that read-only transactions are sent to. The replica is used only while its
+ * replication lag, measured every {@code checkInterval}, is at most {@code maxLag}; otherwise,
+ * or when it cannot be reached, read-only transactions go to the primary.
+ */
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public record ReplicaDataSourceProperties(boolean enabled,
+                                          String url,
+                                          String username,
+                                          String password,
+                                          Integer maximumPoolSize,
+                                          Duration connectionTimeout,
+                                          Duration maxLag,
+                                          Duration checkInterval) {
+    public ReplicaDataSourceProperties {
+        maximumPoolSize = maximumPoolSize != null ? maximumPoolSize : 10;
+        connectionTimeout = connectionTimeout != null ? connectionTimeout : Duration.ofSeconds(2);
+        maxLag = maxLag != null ? maxLag : Duration.ofSeconds(5);
+        checkInterval = checkInterval != null ? checkInterval : Duration.ofSeconds(5);
+    }
+}
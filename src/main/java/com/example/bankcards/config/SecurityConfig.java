@@ -2,6 +2,9 @@ package com.example.bankcards.config;
 
 import com.example.bankcards.security.AppUserDetailsService;
 import com.example.bankcards.security.JwtAuthFilter;
+import com.example.bankcards.security.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -24,11 +27,14 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableWebSecurity
 public class SecurityConfig {
     private final JwtAuthFilter jwtAuthFilter;
-    private final AppUserDetailsService userDetailsService;
+    private final RateLimitProperties rateLimitProperties;
+    private final MeterRegistry meterRegistry;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter, AppUserDetailsService userDetailsService) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimitProperties rateLimitProperties,
+                          MeterRegistry meterRegistry) {
         this.jwtAuthFilter = jwtAuthFilter;
-        this.userDetailsService = userDetailsService;
+        this.rateLimitProperties = rateLimitProperties;
+        this.meterRegistry = meterRegistry;
     }
 
     @Bean
@@ -37,27 +43,34 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Hashes weaker than the configured encoder are replaced on a successful login, so raising
+     * the BCrypt strength takes effect for each user at their next login.
+     */
     @Bean
     public AuthenticationProvider authenticationProvider(AppUserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
         provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserDetailsPasswordService(userDetailsService);
         return provider;
     }
 
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
 
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .exceptionHandling(exceptions -> exceptions
                         .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
-                .authenticationProvider(authenticationProvider(userDetailsService, passwordEncoder()))
+                .authenticationProvider(authenticationProvider)
                 .authorizeHttpRequests(authorizeHttpRequests -> authorizeHttpRequests
                         .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/card/v1/all").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/card/v1/all/slice").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/card/v1/myCards").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/card/v1/myCards/slice").hasRole("USER")
                         .requestMatchers(HttpMethod.GET, "/card/v1/*").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/card/v1").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/card/v1/changeCardStatus/*").hasRole("ADMIN")
@@ -75,14 +88,25 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/card/v1/block-request/*/approve").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/card/v1/*/balance").hasRole("USER")
                         .requestMatchers(HttpMethod.POST, "/transfer/transfer").hasRole("USER")
+                        .requestMatchers(HttpMethod.POST, "/transfer/batch").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/transfer/history").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/transfer/history/card/*").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/transfer/export").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/transfer/statistics/card/*").hasRole("USER")
+                        .requestMatchers("/transfer/statistics/rebuild").hasRole("ADMIN")
+                        .requestMatchers("/crypto/v1/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // not a bean, so that it runs only here, once the user is known
+                .addFilterAfter(new RateLimitFilter(rateLimitProperties, meterRegistry), JwtAuthFilter.class)
                 .build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:12}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
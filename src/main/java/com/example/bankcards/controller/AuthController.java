@@ -1,39 +1,52 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.security.AppUserDetails;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.PasswordHasher;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
+    private final PasswordHasher passwordHasher;
 
-    public AuthController(AuthenticationManager authenticationManager, JwtService jwtService) {
+    public AuthController(AuthenticationManager authenticationManager, JwtService jwtService,
+                          PasswordHasher passwordHasher) {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
+        this.passwordHasher = passwordHasher;
     }
 
+    /**
+     * The password is checked on the {@link PasswordHasher} pool, the request thread is released meanwhile.
+     */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> login(@Valid @RequestBody LoginRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.phoneNumber(),
-                        request.password()
-                )
-        );
+    public CompletableFuture<ResponseEntity<Map<String, String>>> login(@Valid @RequestBody LoginRequest request) {
+        return passwordHasher.submit(() -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                request.phoneNumber(),
+                                request.password()
+                        )
+                ))
+                .thenApply(this::issueToken);
+    }
 
-        String token = jwtService.generateToken(request.phoneNumber());
+    private ResponseEntity<Map<String, String>> issueToken(Authentication authentication) {
+        String token = jwtService.generateToken((AppUserDetails) authentication.getPrincipal());
 
         return ResponseEntity.ok(Map.of("token", token));
     }
@@ -2,10 +2,11 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.BlockCardRequestDto;
 import com.example.bankcards.dto.CardDto;
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.repository.AdminCardFilter;
 import com.example.bankcards.repository.CardFilter;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.service.CardService;
 import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
@@ -14,7 +15,6 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PagedModel;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
@@ -29,17 +29,36 @@ public class CardController {
     private final CardService cardService;
 
     @GetMapping("/all")
-    public PagedModel<Card> getAll(@ModelAttribute AdminCardFilter filter, Pageable pageable) {
-        Page<Card> cards = cardService.getAll(filter, pageable);
+    public PagedModel<CardSummaryDto> getAll(@ModelAttribute AdminCardFilter filter, Pageable pageable) {
+        Page<CardSummaryDto> cards = cardService.getAll(filter, pageable);
         return new PagedModel<>(cards);
     }
 
     @GetMapping("/myCards")
-    public PagedModel<Card> getAllMyCards(@ModelAttribute CardFilter filter, Pageable pageable, @AuthenticationPrincipal User currentUser) {
-        Page<Card> cards = cardService.getAllMyCards(filter, pageable, currentUser);
+    public PagedModel<CardSummaryDto> getAllMyCards(@ModelAttribute CardFilter filter, Pageable pageable, AuthenticatedUser currentUser) {
+        Page<CardSummaryDto> cards = cardService.getAllMyCards(filter, pageable, currentUser.id());
         return new PagedModel<>(cards);
     }
 
+    /**
+     * Keyset alternative to {@link #getAll}: no count, and a cursor instead of a page number.
+     */
+    @GetMapping("/all/slice")
+    public SliceDto<CardSummaryDto> getAllSlice(@ModelAttribute AdminCardFilter filter,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "20") int size,
+                                                @RequestParam(defaultValue = "false") boolean withTotal) {
+        return cardService.getAllSlice(filter, cursor, size, withTotal);
+    }
+
+    @GetMapping("/myCards/slice")
+    public SliceDto<CardSummaryDto> getMyCardsSlice(@ModelAttribute CardFilter filter,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int size,
+                                                    AuthenticatedUser currentUser) {
+        return cardService.getMyCardsSlice(filter, cursor, size, currentUser.id());
+    }
+
     @GetMapping("/{id}")
     public CardDto getOne(@PathVariable Long id) {
         return cardService.getOne(id);
@@ -71,8 +90,8 @@ public class CardController {
     }
 
     @PostMapping("/block-request")
-    public ResponseEntity<Void> createBlockRequest(@RequestBody BlockCardRequestDto dto, @AuthenticationPrincipal User currentUser) {
-        cardService.createBlockRequest(dto.cardId(), currentUser);
+    public ResponseEntity<Void> createBlockRequest(@RequestBody BlockCardRequestDto dto, AuthenticatedUser currentUser) {
+        cardService.createBlockRequest(dto.cardId(), currentUser.id());
         return ResponseEntity.ok().build();
     }
 
@@ -83,8 +102,8 @@ public class CardController {
     }
 
     @GetMapping("/{cardId}/balance")
-    public ResponseEntity<BigDecimal> getBalance(@PathVariable Long cardId, @AuthenticationPrincipal User currentUser) {
-        return ResponseEntity.ok(cardService.getBalance(cardId, currentUser));
+    public ResponseEntity<BigDecimal> getBalance(@PathVariable Long cardId, AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(cardService.getBalance(cardId, currentUser.id()));
     }
 
 }
@@ -0,0 +1,33 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ReencryptionStatusDto;
+import com.example.bankcards.migration.CardReencryptionJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/crypto/v1/reencryption")
+public class CryptoAdminController {
+
+    private final CardReencryptionJob reencryptionJob;
+
+    @GetMapping
+    public ResponseEntity<ReencryptionStatusDto> getStatus() {
+        return ResponseEntity.ok(reencryptionJob.status());
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<ReencryptionStatusDto> start() {
+        return ResponseEntity.accepted().body(reencryptionJob.start());
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<ReencryptionStatusDto> stop() {
+        return ResponseEntity.accepted().body(reencryptionJob.stop());
+    }
+}
@@ -1,29 +1,219 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardTransferStatisticsDto;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.RollupRebuildStatusDto;
+import com.example.bankcards.dto.TransactionHistoryPageDto;
+import com.example.bankcards.dto.TransferOutcome;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.service.TransactionExportService;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.service.TransferIdempotencyService;
+import com.example.bankcards.service.TransferRollupRebuildJob;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/transfer")
 public class TransactionController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final TransactionService transactionService;
 
+    private final TransferIdempotencyService transferIdempotencyService;
+
+    private final TransactionExportService transactionExportService;
+
+    private final TransferRollupRebuildJob rollupRebuildJob;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * With an {@code Idempotency-Key}, a retried request gets the answer of the first one
+     * instead of transferring again.
+     */
     @PostMapping("/transfer")
-    public ResponseEntity<Void> transfer(@Valid @RequestBody TransferRequest request) {
-        transactionService.transferBetweenCards(
-                request.fromCardId(),
-                request.toCardId(),
-                request.amount()
-        );
-        return ResponseEntity.ok().build();
+    public ResponseEntity<String> transfer(@Valid @RequestBody TransferRequest request,
+                                           @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                           AuthenticatedUser currentUser) {
+        if (idempotencyKey == null) {
+            transactionService.transferBetweenCards(
+                    request.fromCardId(),
+                    request.toCardId(),
+                    request.amount(),
+                    currentUser.id()
+            );
+            return ResponseEntity.ok().build();
+        }
+        TransferOutcome outcome = transferIdempotencyService.transfer(currentUser.id(), idempotencyKey, request);
+        return ResponseEntity.status(outcome.status())
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+                .body(outcome.error());
+    }
+
+    /**
+     * The array is read one transfer at a time, so an oversized batch is refused as soon as it
+     * passes {@link TransactionService#MAX_BATCH_SIZE} instead of after it was buffered whole.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchTransferResponse> transferBatch(
+            InputStream body,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") BatchTransferMode mode,
+            AuthenticatedUser currentUser) throws IOException {
+        List<TransferRequest> requests = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Transfer batch must be a JSON array");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                add(requests, parser.readValueAs(TransferRequest.class));
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed JSON transfer batch: " + e.getOriginalMessage());
+        }
+        return ResponseEntity.ok(transactionService.transferBatch(requests, mode, currentUser.id()));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BatchTransferResponse> transferBatchNdjson(
+            InputStream body,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") BatchTransferMode mode,
+            AuthenticatedUser currentUser) throws IOException {
+        List<TransferRequest> requests = new ArrayList<>();
+        try (MappingIterator<TransferRequest> lines = objectMapper.readerFor(TransferRequest.class).readValues(body)) {
+            while (lines.hasNextValue()) {
+                add(requests, lines.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed NDJSON transfer batch: " + e.getOriginalMessage());
+        }
+        return ResponseEntity.ok(transactionService.transferBatch(requests, mode, currentUser.id()));
+    }
+
+    private static void add(List<TransferRequest> requests, TransferRequest request) {
+        if (requests.size() == TransactionService.MAX_BATCH_SIZE) {
+            throw new BadRequestException("Transfer batch cannot contain more than "
+                    + TransactionService.MAX_BATCH_SIZE + " transfers");
+        }
+        requests.add(request);
+    }
+
+    @GetMapping("/history")
+    public TransactionHistoryPageDto getHistory(@ModelAttribute TransactionHistoryFilter filter,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "20") int size,
+                                                AuthenticatedUser currentUser) {
+        return transactionService.getUserHistory(filter, cursor, size, currentUser.id());
+    }
+
+    @GetMapping("/history/card/{cardId}")
+    public TransactionHistoryPageDto getCardHistory(@PathVariable Long cardId,
+                                                    @ModelAttribute TransactionHistoryFilter filter,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int size,
+                                                    AuthenticatedUser currentUser) {
+        return transactionService.getCardHistory(cardId, filter, cursor, size, currentUser.id());
+    }
+
+    @GetMapping("/statistics/card/{cardId}")
+    public CardTransferStatisticsDto getCardStatistics(
+            @PathVariable Long cardId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            AuthenticatedUser currentUser) {
+        return transactionService.getCardStatistics(cardId, date != null ? date : LocalDate.now(), currentUser.id());
+    }
+
+    @GetMapping("/statistics/rebuild")
+    public ResponseEntity<RollupRebuildStatusDto> getRollupRebuildStatus() {
+        return ResponseEntity.ok(rollupRebuildJob.status());
+    }
+
+    @PostMapping("/statistics/rebuild")
+    public ResponseEntity<RollupRebuildStatusDto> rebuildRollups() {
+        return ResponseEntity.accepted().body(rollupRebuildJob.start());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = transactionExportService.export(from, to, format, gzip);
+
+        MediaType contentType = format == ExportFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions." + format.name().toLowerCase() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Whether {@code Accept-Encoding} allows gzip, named or through {@code *}, with a non-zero
+     * q-value. A named coding takes precedence over the wildcard.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
     }
 }
@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.repository.UserFilter;
@@ -28,6 +29,17 @@ public class UserController {
         return new PagedModel<>(users);
     }
 
+    /**
+     * Keyset alternative to {@link #getAll}: no count, and a cursor instead of a page number.
+     */
+    @GetMapping("/slice")
+    public SliceDto<UserResponseDto> getAllSlice(@ModelAttribute UserFilter filter,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 @RequestParam(defaultValue = "false") boolean withTotal) {
+        return userService.getAllSlice(filter, cursor, size, withTotal);
+    }
+
     @GetMapping("/{id}")
     public UserResponseDto getOne(@PathVariable Long id) {
         return userService.getOne(id);
@@ -1,21 +1,21 @@
 package com.example.bankcards.converter;
 
-import com.example.bankcards.crypto.CryptoHolder;
+import com.example.bankcards.crypto.EncryptedPan;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 
 @Converter
-public class CardNumberConverter implements AttributeConverter<String, String> {
+public class CardNumberConverter implements AttributeConverter<EncryptedPan, byte[]> {
 
     @Override
-    public String convertToDatabaseColumn(String attribute) {
+    public byte[] convertToDatabaseColumn(EncryptedPan attribute) {
         if (attribute == null) return null;
-        return CryptoHolder.get().encrypt(attribute);
+        return attribute.sealed();
     }
 
     @Override
-    public String convertToEntityAttribute(String dbData) {
+    public EncryptedPan convertToEntityAttribute(byte[] dbData) {
         if (dbData == null) return null;
-        return CryptoHolder.get().decrypt(dbData);
+        return EncryptedPan.ofSealed(dbData);
     }
 }
@@ -0,0 +1,122 @@
+package com.example.bankcards.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AES-GCM engine that reuses {@link Cipher} instances instead of creating one per call.
+ * <p>
+ * Cipher contexts live in a lock-free pool rather than in thread locals, so the engine
+ * behaves the same on platform and virtual threads. Every context owns its own DRBG,
+ * which keeps IV generation free of contention on a shared {@link SecureRandom}.
+ * Sealed output layout: {@code IV (12 bytes) || ciphertext || tag (16 bytes)}.
+ */
+public final class AesGcmCipher {
+
+    public static final int IV_LENGTH_BYTES = 12;
+    public static final int TAG_LENGTH_BYTES = 16;
+
+    private static final String AES_GCM = "AES/GCM/NoPadding";
+    private static final String DRBG = "DRBG";
+
+    private final SecretKey key;
+    private final Queue<Context> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idle = new AtomicInteger();
+    private final int maxIdle;
+
+    public AesGcmCipher(SecretKey key) {
+        this(key, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public AesGcmCipher(SecretKey key, int maxIdle) {
+        this.key = key;
+        this.maxIdle = maxIdle;
+    }
+
+    public byte[] seal(byte[] plain) {
+        return seal(plain, 0);
+    }
+
+    /**
+     * Encrypts {@code plain} into a new buffer, leaving {@code headerLength} zero bytes in front
+     * of the IV for the caller to fill in.
+     */
+    public byte[] seal(byte[] plain, int headerLength) {
+        Context ctx = borrow();
+        try {
+            byte[] out = new byte[headerLength + IV_LENGTH_BYTES + plain.length + TAG_LENGTH_BYTES];
+            ctx.random.nextBytes(ctx.iv);
+            System.arraycopy(ctx.iv, 0, out, headerLength, IV_LENGTH_BYTES);
+
+            ctx.cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BYTES * 8, ctx.iv));
+            ctx.cipher.doFinal(plain, 0, plain.length, out, headerLength + IV_LENGTH_BYTES);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt card number", e);
+        } finally {
+            release(ctx);
+        }
+    }
+
+    public byte[] open(byte[] sealed) {
+        return open(sealed, 0, sealed.length);
+    }
+
+    /**
+     * Decrypts {@code length} bytes of {@code input} starting at {@code offset}. The IV and the
+     * ciphertext are read straight from the input buffer without intermediate copies.
+     */
+    public byte[] open(byte[] input, int offset, int length) {
+        if (length < IV_LENGTH_BYTES + TAG_LENGTH_BYTES) {
+            throw new IllegalStateException("Failed to decrypt card number: ciphertext is too short");
+        }
+        Context ctx = borrow();
+        try {
+            GCMParameterSpec spec = new GCMParameterSpec(TAG_LENGTH_BYTES * 8, input, offset, IV_LENGTH_BYTES);
+            ctx.cipher.init(Cipher.DECRYPT_MODE, key, spec);
+            return ctx.cipher.doFinal(input, offset + IV_LENGTH_BYTES, length - IV_LENGTH_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to decrypt card number", e);
+        } finally {
+            release(ctx);
+        }
+    }
+
+    private Context borrow() {
+        Context ctx = pool.poll();
+        if (ctx == null) {
+            return new Context();
+        }
+        idle.decrementAndGet();
+        return ctx;
+    }
+
+    private void release(Context ctx) {
+        if (idle.incrementAndGet() <= maxIdle) {
+            pool.offer(ctx);
+        } else {
+            idle.decrementAndGet();
+        }
+    }
+
+    private static final class Context {
+        private final Cipher cipher;
+        private final SecureRandom random;
+        private final byte[] iv = new byte[IV_LENGTH_BYTES];
+
+        private Context() {
+            try {
+                this.cipher = Cipher.getInstance(AES_GCM);
+                this.random = SecureRandom.getInstance(DRBG);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM is not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankcards.crypto;
+
+import java.util.Base64;
+
+/**
+ * Binary layout of {@code card.card_number_bin}:
+ * {@code version (1 byte) || key id (1 byte) || IV (12 bytes) || ciphertext || tag (16 bytes)}.
+ * <p>
+ * Rows written before the binary column existed hold Base64 text of {@code IV || ciphertext || tag}
+ * in {@code card.card_number}; they were all encrypted with key id {@link #DEFAULT_KEY_ID}.
+ */
+public final class CardCiphertextFormat {
+
+    public static final byte VERSION_1 = 1;
+    public static final int HEADER_LENGTH = 2;
+    public static final int DEFAULT_KEY_ID = 0;
+
+    private CardCiphertextFormat() {}
+
+    public static void writeHeader(byte[] sealed, int keyId) {
+        sealed[0] = VERSION_1;
+        sealed[1] = (byte) keyId;
+    }
+
+    public static int keyId(byte[] sealed) {
+        if (sealed.length < HEADER_LENGTH || sealed[0] != VERSION_1) {
+            throw new IllegalStateException("Unsupported card number ciphertext format");
+        }
+        return sealed[1] & 0xFF;
+    }
+
+    public static byte[] fromLegacy(String base64Combined) {
+        byte[] combined;
+        try {
+            combined = Base64.getDecoder().decode(base64Combined);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to decode legacy card number", e);
+        }
+        byte[] sealed = new byte[HEADER_LENGTH + combined.length];
+        writeHeader(sealed, DEFAULT_KEY_ID);
+        System.arraycopy(combined, 0, sealed, HEADER_LENGTH, combined.length);
+        return sealed;
+    }
+}
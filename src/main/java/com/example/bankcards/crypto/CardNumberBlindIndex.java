@@ -0,0 +1,70 @@
+package com.example.bankcards.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Deterministic keyed HMAC-SHA256 of a card number, stored next to the ciphertext so that
+ * equality lookups and uniqueness checks work without decrypting anything.
+ */
+public final class CardNumberBlindIndex {
+
+    public static final int LENGTH_BYTES = 32;
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final byte[] DERIVATION_LABEL = "bankcards/card-number-index/v1".getBytes(StandardCharsets.UTF_8);
+
+    private final SecretKey key;
+    private final Queue<Mac> pool = new ConcurrentLinkedQueue<>();
+
+    public CardNumberBlindIndex(SecretKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Derives an index key from the card encryption key, for deployments that do not configure
+     * a dedicated one.
+     */
+    public static SecretKey deriveKey(SecretKey cardKey) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256);
+            mac.init(new SecretKeySpec(cardKey.getEncoded(), HMAC_SHA256));
+            return new SecretKeySpec(mac.doFinal(DERIVATION_LABEL), HMAC_SHA256);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive card number index key", e);
+        }
+    }
+
+    public byte[] compute(String pan) {
+        byte[] digits = normalize(pan).getBytes(StandardCharsets.US_ASCII);
+        Mac mac = borrow();
+        try {
+            return mac.doFinal(digits);
+        } finally {
+            pool.offer(mac);
+        }
+    }
+
+    private static String normalize(String pan) {
+        return pan.replaceAll("\\s+", "");
+    }
+
+    private Mac borrow() {
+        Mac mac = pool.poll();
+        if (mac != null) {
+            return mac;
+        }
+        try {
+            mac = Mac.getInstance(HMAC_SHA256);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.crypto;
+
+import org.hibernate.annotations.Immutable;
+
+import java.util.Arrays;
+
+/**
+ * Card number as it is stored: sealed bytes in {@link CardCiphertextFormat} that are only
+ * decrypted when {@link #decrypt()} is called. Loading a {@code Card} therefore costs no AES
+ * work unless the full PAN is needed.
+ */
+@Immutable
+public final class EncryptedPan {
+
+    private final byte[] sealed;
+
+    private EncryptedPan(byte[] sealed) {
+        this.sealed = sealed;
+    }
+
+    public static EncryptedPan encrypt(String pan) {
+        return new EncryptedPan(CryptoHolder.get().seal(pan));
+    }
+
+    public static EncryptedPan ofSealed(byte[] sealed) {
+        return new EncryptedPan(sealed);
+    }
+
+    public static EncryptedPan ofLegacy(String base64Combined) {
+        return new EncryptedPan(CardCiphertextFormat.fromLegacy(base64Combined));
+    }
+
+    /**
+     * Returns the stored bytes without copying; callers must not modify them.
+     */
+    public byte[] sealed() {
+        return sealed;
+    }
+
+    public String decrypt() {
+        return CryptoHolder.get().open(sealed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EncryptedPan other)) return false;
+        return Arrays.equals(sealed, other.sealed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(sealed);
+    }
+
+    @Override
+    public String toString() {
+        return "EncryptedPan[****]";
+    }
+}
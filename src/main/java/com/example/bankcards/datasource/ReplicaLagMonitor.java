@@ -0,0 +1,120 @@
+package com.example.bankcards.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Measures how far the replica lags behind the primary and decides whether read-only
+ * transactions may use it. The replica starts out unusable and becomes usable after the first
+ * check that finds it within {@code maxLag}.
+ * <p>
+ * A standby is only trusted while its WAL receiver is streaming. Having replayed everything it
+ * received proves nothing once the receiver stopped, so the lag of a caught-up standby is the
+ * time since its last message from the primary. An idle primary only sends one when the
+ * receiver pings it after half of {@code wal_receiver_timeout}, which therefore has to be at
+ * most twice {@code maxLag}, and the replica user needs {@code pg_read_all_stats} to see the
+ * receiver's state. A server that is not in recovery, such as a stand-in copy, is always current.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String LAG_QUERY = """
+            SELECT pg_is_in_recovery() AS in_recovery,
+                   r.pid AS receiver_pid,
+                   r.status AS receiver_status,
+                   EXTRACT(EPOCH FROM now() - r.last_msg_receipt_time)::float8 AS silence,
+                   CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                   END::float8 AS replay_lag
+            FROM (SELECT 1) AS one
+            LEFT JOIN pg_stat_wal_receiver r ON true""";
+
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, Duration checkInterval, MeterRegistry meterRegistry) {
+        this(new JdbcTemplate(replica), maxLag, meterRegistry);
+        this.replica.setQueryTimeout((int) Math.max(1, checkInterval.toSeconds()));
+    }
+
+    ReplicaLagMonitor(JdbcTemplate replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLag = maxLag;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval:PT5S}")
+    public void check() {
+        Replication replication;
+        try {
+            replication = replica.queryForObject(LAG_QUERY, (rs, _) -> new Replication(
+                    rs.getBoolean("in_recovery"),
+                    rs.getObject("receiver_pid", Integer.class),
+                    rs.getString("receiver_status"),
+                    rs.getObject("silence", Double.class),
+                    rs.getObject("replay_lag", Double.class)));
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            update(false, "unreachable: " + e.getMessage());
+            return;
+        }
+        if (!replication.inRecovery()) {
+            lagSeconds = 0;
+            update(true, "not in recovery");
+            return;
+        }
+
+        String unusable = null;
+        if (replication.receiverPid() != null && replication.receiverStatus() == null) {
+            unusable = "WAL receiver state is not visible, grant pg_read_all_stats to the replica user";
+        } else if (!"streaming".equals(replication.receiverStatus())) {
+            unusable = "WAL receiver is " + (replication.receiverStatus() == null ? "not running" : replication.receiverStatus());
+        } else if (replication.silence() == null) {
+            unusable = "has not heard from the primary yet";
+        } else if (replication.replayLag() == null) {
+            unusable = "has not replayed any transaction yet";
+        }
+        if (unusable != null) {
+            lagSeconds = Double.NaN;
+            update(false, unusable);
+            return;
+        }
+        double lag = Math.max(replication.silence(), replication.replayLag());
+        lagSeconds = lag;
+        update(lag * 1000 <= maxLag.toMillis(), "lag %.3fs, allowed %s".formatted(lag, maxLag));
+    }
+
+    private void update(boolean nowUsable, String reason) {
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                log.info("Sending read-only transactions to the replica, {}", reason);
+            } else {
+                log.warn("Sending read-only transactions to the primary, replica {}", reason);
+            }
+        }
+        usable = nowUsable;
+    }
+
+    private record Replication(boolean inRecovery, Integer receiverPid, String receiverStatus,
+                               Double silence, Double replayLag) {
+    }
+}
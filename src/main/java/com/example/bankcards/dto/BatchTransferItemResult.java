@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+/**
+ * Outcome of one transfer of a batch; {@code index} is its position in the request.
+ */
+public record BatchTransferItemResult(int index, Status status, String error) {
+
+    public enum Status {
+        APPLIED, REJECTED, NOT_APPLIED
+    }
+
+    public static BatchTransferItemResult applied(int index) {
+        return new BatchTransferItemResult(index, Status.APPLIED, null);
+    }
+
+    public static BatchTransferItemResult rejected(int index, String error) {
+        return new BatchTransferItemResult(index, Status.REJECTED, error);
+    }
+
+    public static BatchTransferItemResult notApplied(int index) {
+        return new BatchTransferItemResult(index, Status.NOT_APPLIED, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto;
+
+public enum BatchTransferMode {
+    /**
+     * Nothing is written unless every transfer of the batch can be applied.
+     */
+    ALL_OR_NOTHING,
+    /**
+     * Valid transfers are applied in order, the rest are reported as rejected.
+     */
+    BEST_EFFORT
+}
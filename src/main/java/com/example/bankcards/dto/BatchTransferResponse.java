@@ -0,0 +1,11 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public record BatchTransferResponse(
+        BatchTransferMode mode,
+        boolean applied,
+        int succeeded,
+        int failed,
+        List<BatchTransferItemResult> results) {
+}
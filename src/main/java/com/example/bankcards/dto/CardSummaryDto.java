@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * A row of a card listing, with the card number masked.
+ */
+public record CardSummaryDto(Long id,
+                             String cardNumber,
+                             YearMonth expiry,
+                             BigDecimal moneyAmount,
+                             CardStatus cardStatus,
+                             String ownerPhoneNumber) {
+
+    public CardSummaryDto withMoneyAmount(BigDecimal moneyAmount) {
+        return new CardSummaryDto(id, cardNumber, expiry, moneyAmount, cardStatus, ownerPhoneNumber);
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.bankcards.dto;
+
+public record CardTransferStatisticsDto(Long cardId, TransferTotalsDto day, TransferTotalsDto month) {
+}
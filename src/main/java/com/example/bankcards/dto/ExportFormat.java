@@ -0,0 +1,5 @@
+package com.example.bankcards.dto;
+
+public enum ExportFormat {
+    NDJSON, CSV
+}
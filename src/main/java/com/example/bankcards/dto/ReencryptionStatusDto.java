@@ -0,0 +1,18 @@
+package com.example.bankcards.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of the card number re-encryption job.
+ */
+public record ReencryptionStatusDto(
+        String state,
+        int targetKeyId,
+        long pending,
+        long reencrypted,
+        long skipped,
+        long failed,
+        double rowsPerSecond,
+        Instant startedAt,
+        Instant finishedAt) {
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of the transfer rollup rebuild job, in card id blocks.
+ */
+public record RollupRebuildStatusDto(
+        String state,
+        int blocks,
+        int rebuilt,
+        Instant startedAt,
+        Instant finishedAt) {
+}
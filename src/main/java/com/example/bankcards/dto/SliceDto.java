@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.util.CursorCodec;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * One slice of a listing ordered by id, without a count. {@code nextCursor} is null on the last
+ * slice. {@code approximateTotal} is the planner's estimate of the table size, given only when
+ * asked for on an unfiltered listing.
+ */
+public record SliceDto<T>(List<T> items, String nextCursor, Long approximateTotal) {
+
+    /**
+     * @param rows up to {@code size + 1} rows, the extra one only telling that another slice follows
+     */
+    public static <T> SliceDto<T> of(List<T> rows, int size, ToLongFunction<T> id, Long approximateTotal) {
+        if (rows.size() <= size) {
+            return new SliceDto<>(rows, null, approximateTotal);
+        }
+        List<T> items = rows.subList(0, size);
+        return new SliceDto<>(items, CursorCodec.encodeId(id.applyAsLong(items.getLast())), approximateTotal);
+    }
+
+    public <R> SliceDto<R> map(Function<? super T, ? extends R> mapper) {
+        return new SliceDto<>(items.stream().<R>map(mapper).toList(), nextCursor, approximateTotal);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for {@link com.example.bankcards.entity.Transaction}
+ */
+public record TransactionExportRow(
+        Long id,
+        Long fromCardId,
+        Long toCardId,
+        BigDecimal amount,
+        LocalDateTime createdAt) {
+}
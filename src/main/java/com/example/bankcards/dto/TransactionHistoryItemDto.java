@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for {@link com.example.bankcards.entity.Transaction}
+ */
+public record TransactionHistoryItemDto(
+        Long id,
+        Long fromCardId,
+        String fromCardNumber,
+        Long toCardId,
+        String toCardNumber,
+        BigDecimal amount,
+        LocalDateTime createdAt) {
+}
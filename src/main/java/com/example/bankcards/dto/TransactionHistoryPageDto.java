@@ -0,0 +1,9 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+/**
+ * One page of transaction history, newest first. {@code nextCursor} is null on the last page.
+ */
+public record TransactionHistoryPageDto(List<TransactionHistoryItemDto> items, String nextCursor) {
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.dto;
+
+/**
+ * Result of an idempotent transfer: the HTTP status and error message it was answered with, and
+ * whether this answer replays the outcome of an earlier request with the same key.
+ */
+public record TransferOutcome(int status, String error, boolean replayed) {
+}
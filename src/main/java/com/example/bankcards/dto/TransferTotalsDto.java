@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Transfer totals of one card over a day or a month starting at {@code periodStart}.
+ */
+public record TransferTotalsDto(
+        LocalDate periodStart,
+        BigDecimal debitAmount,
+        long debitCount,
+        BigDecimal creditAmount,
+        long creditCount) {
+
+    public static TransferTotalsDto empty(LocalDate periodStart) {
+        return new TransferTotalsDto(periodStart, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0);
+    }
+}
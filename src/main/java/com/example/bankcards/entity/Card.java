@@ -2,10 +2,16 @@ package com.example.bankcards.entity;
 
 import com.example.bankcards.converter.CardNumberConverter;
 import com.example.bankcards.converter.YearMonthConverter;
+import com.example.bankcards.crypto.CryptoHolder;
+import com.example.bankcards.crypto.EncryptedPan;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.CardMaskUtil;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.proxy.HibernateProxy;
 
 import java.math.BigDecimal;
@@ -15,6 +21,7 @@ import java.util.Objects;
 @Setter
 @Getter
 @Entity
+@DynamicUpdate
 @Table(name = "card")
 public class Card {
     @Id
@@ -22,9 +29,28 @@ public class Card {
     @Column(name = "id", nullable = false)
     private Long id;
 
-    @Column(name = "card_number", nullable = false, unique = true, length = 1024)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "card_number_bin")
     @Convert(converter = CardNumberConverter.class)
-    private String cardNumber;
+    private EncryptedPan cardNumber;
+
+    /**
+     * Base64 ciphertext of rows not yet rewritten by {@code CardNumberStorageMigrator}.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "card_number", length = 1024)
+    private String legacyCardNumber;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(name = "card_number_hash", nullable = false, unique = true, length = 32)
+    private byte[] cardNumberHash;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "last_4", nullable = false, length = 4)
+    private String last4;
 
     @Convert(converter = YearMonthConverter.class)
     @Column(name = "expiry", nullable = false)
@@ -41,6 +67,30 @@ public class Card {
     @JoinColumn(name = "user_id")
     private User owner;
 
+    /**
+     * Decrypts the full card number. Listing and balance paths use {@link #getLast4()} instead.
+     */
+    @JsonIgnore
+    public String getCardNumber() {
+        if (cardNumber != null) {
+            return cardNumber.decrypt();
+        }
+        return legacyCardNumber != null ? EncryptedPan.ofLegacy(legacyCardNumber).decrypt() : null;
+    }
+
+    public void setCardNumber(String pan) {
+        this.legacyCardNumber = null;
+        if (pan == null) {
+            this.cardNumber = null;
+            this.cardNumberHash = null;
+            this.last4 = null;
+            return;
+        }
+        this.cardNumber = EncryptedPan.encrypt(pan);
+        this.cardNumberHash = CryptoHolder.get().blindIndex(pan);
+        this.last4 = CardMaskUtil.last4(pan);
+    }
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
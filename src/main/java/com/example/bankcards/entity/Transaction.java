@@ -14,8 +14,14 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Transaction {
 
+    /**
+     * Increment of {@code transactions_seq}; JDBC writers reserve ids in blocks of this size too.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = Transaction.ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
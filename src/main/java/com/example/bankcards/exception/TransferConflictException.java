@@ -0,0 +1,10 @@
+package com.example.bankcards.exception;
+
+/**
+ * A transfer lost a race with another one on the same card and may succeed if simply retried.
+ */
+public class TransferConflictException extends ForbiddenOperationException {
+    public TransferConflictException(String message) {
+        super(message);
+    }
+}
@@ -22,7 +22,7 @@ public abstract class CardMapperDelegate implements CardMapper {
     @Override
     public CardDto toCardDto(Card card) {
         return new CardDto(
-                CardMaskUtil.maskPan(card.getCardNumber()),
+                CardMaskUtil.maskLast4(card.getLast4()),
                 card.getExpiry(),
                 card.getMoneyAmount(),
                 card.getCardStatus(),
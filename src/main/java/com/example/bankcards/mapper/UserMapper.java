@@ -6,7 +6,6 @@ import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.RoleRepository;
 import org.mapstruct.*;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -14,7 +13,7 @@ import java.util.stream.Collectors;
 @DecoratedWith(UserMapperDelegate.class)
 @Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE, componentModel = MappingConstants.ComponentModel.SPRING)
 public interface UserMapper {
-    User toEntity(UserDto userDto, PasswordEncoder passwordEncoder, RoleRepository roleRepository);
+    User toEntity(UserDto userDto, String encodedPassword, RoleRepository roleRepository);
 
     @Mapping(target = "roleNames", expression = "java(rolesToRoleNames(user.getRoles()))")
     UserDto toUserDto(User user);
@@ -0,0 +1,109 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.crypto.AesGcmCipher;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import lombok.Setter;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * Base for changesets that derive a {@code card} column from the decrypted card number.
+ * Rows where the target column is still {@code NULL} are walked by id in batches and every
+ * batch is committed on its own, so the changeset must run with {@code runInTransaction: false}.
+ */
+public abstract class AbstractCardNumberBackfill implements CustomTaskChange {
+
+    @Setter
+    private String cardKey;
+    @Setter
+    private Integer batchSize = 500;
+
+    private int updatedRows;
+
+    protected abstract String targetColumn();
+
+    protected abstract void prepare(SecretKey cardKey);
+
+    protected abstract void bindValue(PreparedStatement update, String pan) throws SQLException;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        if (isUnset(cardKey)) {
+            throw new CustomChangeException("cardKey is required to decrypt existing card numbers");
+        }
+        SecretKey key = new SecretKeySpec(Base64.getDecoder().decode(cardKey), "AES");
+        AesGcmCipher cipher = new AesGcmCipher(key);
+        prepare(key);
+
+        String selectBatch = """
+                SELECT id, card_number FROM card
+                WHERE id > ? AND %s IS NULL
+                ORDER BY id
+                LIMIT ?""".formatted(targetColumn());
+        String update = "UPDATE card SET %s = ? WHERE id = ?".formatted(targetColumn());
+
+        JdbcConnection connection = (JdbcConnection) database.getConnection();
+        try (PreparedStatement selectStatement = connection.prepareStatement(selectBatch);
+             PreparedStatement updateStatement = connection.prepareStatement(update)) {
+            long lastId = 0;
+            int rows;
+            do {
+                rows = 0;
+                selectStatement.setLong(1, lastId);
+                selectStatement.setInt(2, batchSize);
+                try (ResultSet rs = selectStatement.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        byte[] sealed = Base64.getDecoder().decode(rs.getString(2));
+                        bindValue(updateStatement, new String(cipher.open(sealed), StandardCharsets.UTF_8));
+                        updateStatement.setLong(2, lastId);
+                        updateStatement.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows > 0) {
+                    updateStatement.executeBatch();
+                    connection.commit();
+                    updatedRows += rows;
+                }
+            } while (rows == batchSize);
+        } catch (SQLException | DatabaseException e) {
+            throw new CustomChangeException("Failed to backfill card." + targetColumn(), e);
+        }
+    }
+
+    protected static boolean isUnset(String parameter) {
+        // Liquibase leaves unresolved ${...} placeholders as-is
+        return parameter == null || parameter.isBlank() || parameter.startsWith("${");
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Backfilled card." + targetColumn() + " for " + updatedRows + " cards";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.util.CardMaskUtil;
+
+import javax.crypto.SecretKey;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Restores {@code card.last_4} for rows written while the column was dropped.
+ */
+public class CardLast4Backfill extends AbstractCardNumberBackfill {
+
+    @Override
+    protected String targetColumn() {
+        return "last_4";
+    }
+
+    @Override
+    protected void prepare(SecretKey cardKey) {
+    }
+
+    @Override
+    protected void bindValue(PreparedStatement update, String pan) throws SQLException {
+        update.setString(1, CardMaskUtil.last4(pan));
+    }
+}
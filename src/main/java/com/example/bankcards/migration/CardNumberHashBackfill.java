@@ -0,0 +1,38 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.crypto.CardNumberBlindIndex;
+import lombok.Setter;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * Fills {@code card.card_number_hash} for rows written before the blind index existed.
+ */
+public class CardNumberHashBackfill extends AbstractCardNumberBackfill {
+
+    @Setter
+    private String indexKey;
+
+    private CardNumberBlindIndex blindIndex;
+
+    @Override
+    protected String targetColumn() {
+        return "card_number_hash";
+    }
+
+    @Override
+    protected void prepare(SecretKey cardKey) {
+        blindIndex = new CardNumberBlindIndex(isUnset(indexKey)
+                ? CardNumberBlindIndex.deriveKey(cardKey)
+                : new SecretKeySpec(Base64.getDecoder().decode(indexKey), "HmacSHA256"));
+    }
+
+    @Override
+    protected void bindValue(PreparedStatement update, String pan) throws SQLException {
+        update.setBytes(1, blindIndex.compute(pan));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.crypto.CardCiphertextFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Online rewrite of legacy Base64 card numbers into {@code card.card_number_bin}.
+ * <p>
+ * Runs in the background after startup, one auto-committed chunk at a time, while the
+ * application keeps reading not yet migrated rows through {@code Card.legacyCardNumber}.
+ * The conversion is a pure re-encoding in SQL: the Base64 payload is decoded and prefixed
+ * with the {@link CardCiphertextFormat} header, no decryption is involved.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardNumberStorageMigrator {
+
+    private static final String MIGRATE_CHUNK = """
+            WITH chunk AS (
+                SELECT id FROM card
+                WHERE id > ? AND card_number_bin IS NULL AND card_number IS NOT NULL
+                ORDER BY id
+                LIMIT ?
+            ), moved AS (
+                UPDATE card c
+                SET card_number_bin = ?::bytea || decode(c.card_number, 'base64'),
+                    card_number = NULL
+                FROM chunk
+                WHERE c.id = chunk.id AND c.card_number_bin IS NULL
+                RETURNING c.id
+            )
+            SELECT (SELECT max(id) FROM chunk), (SELECT count(*) FROM moved)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.crypto.storage-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.crypto.storage-migration.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.crypto.storage-migration.pause-millis:50}")
+    private long pauseMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            Thread.ofVirtual().name("card-number-storage-migrator").start(this::migrate);
+        }
+    }
+
+    void migrate() {
+        byte[] header = new byte[CardCiphertextFormat.HEADER_LENGTH];
+        CardCiphertextFormat.writeHeader(header, CardCiphertextFormat.DEFAULT_KEY_ID);
+
+        long total = 0;
+        long movedInPass;
+        do {
+            // Rows reverted by concurrent writers between passes are picked up by the next pass
+            movedInPass = 0;
+            Long lastId = 0L;
+            while (lastId != null) {
+                long[] result = jdbcTemplate.queryForObject(MIGRATE_CHUNK,
+                        (rs, rowNum) -> new long[]{rs.getObject(1) == null ? -1 : rs.getLong(1), rs.getLong(2)},
+                        lastId, chunkSize, header);
+                lastId = result[0] < 0 ? null : result[0];
+                movedInPass += result[1];
+                if (!pause()) {
+                    return;
+                }
+            }
+            total += movedInPass;
+        } while (movedInPass > 0);
+
+        if (total > 0) {
+            log.info("Rewrote {} card numbers into binary storage", total);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
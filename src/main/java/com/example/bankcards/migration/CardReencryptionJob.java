@@ -0,0 +1,230 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.crypto.CardCiphertextFormat;
+import com.example.bankcards.dto.ReencryptionStatusDto;
+import com.example.bankcards.service.CardCryptoService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encrypts card numbers under the current key after a key rotation.
+ * <p>
+ * The id space of {@code card} is cut into ranges that a fixed pool of workers walks with
+ * keyset pagination, one short transaction per batch. Rows are picked by the key id stored in
+ * their ciphertext header, so a stopped or crashed run simply resumes on the next start.
+ * Writes are conditional on the ciphertext still being the one that was read, which leaves
+ * concurrent card updates untouched, and all workers share one rows-per-second budget.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardReencryptionJob {
+
+    // Header byte 1 is the key id; legacy text rows are key 0 and only pending when rotating away from it
+    private static final String PENDING = """
+            (get_byte(card_number_bin, 1) <> ?
+             OR (? AND card_number_bin IS NULL AND card_number IS NOT NULL))""";
+
+    private static final String SELECT_BATCH = """
+            SELECT id, card_number_bin, card_number FROM card
+            WHERE id > ? AND id <= ? AND %s
+            ORDER BY id
+            LIMIT ?""".formatted(PENDING);
+
+    private static final String COUNT_PENDING = "SELECT count(*) FROM card WHERE " + PENDING;
+
+    private static final String UPDATE_ROW = """
+            UPDATE card SET card_number_bin = ?, card_number = NULL
+            WHERE id = ?
+              AND card_number_bin IS NOT DISTINCT FROM ?
+              AND card_number IS NOT DISTINCT FROM ?""";
+
+    private static final int RANGES_PER_WORKER = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardCryptoService cryptoService;
+
+    @Value("${app.crypto.reencryption.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.crypto.reencryption.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.crypto.reencryption.max-rows-per-second:2000}")
+    private int maxRowsPerSecond;
+
+    private volatile Run run;
+
+    public synchronized ReencryptionStatusDto start() {
+        if (run == null || run.state != State.RUNNING && run.state != State.STOPPING) {
+            run = new Run(cryptoService.currentKeyId());
+            Thread.ofPlatform().daemon().name("card-reencryption").start(this::execute);
+        }
+        return status();
+    }
+
+    public synchronized ReencryptionStatusDto stop() {
+        if (run != null && run.state == State.RUNNING) {
+            run.state = State.STOPPING;
+        }
+        return status();
+    }
+
+    public ReencryptionStatusDto status() {
+        Run current = run;
+        if (current == null) {
+            return new ReencryptionStatusDto(State.IDLE.name(), cryptoService.currentKeyId(), 0, 0, 0, 0, 0, null, null);
+        }
+        Instant end = current.finishedAt != null ? current.finishedAt : Instant.now();
+        double seconds = Math.max(Duration.between(current.startedAt, end).toMillis(), 1) / 1000.0;
+        long done = current.reencrypted.get() + current.skipped.get() + current.failed.get();
+        return new ReencryptionStatusDto(current.state.name(), current.keyId,
+                Math.max(current.total - done, 0), current.reencrypted.get(), current.skipped.get(),
+                current.failed.get(), current.reencrypted.get() / seconds, current.startedAt, current.finishedAt);
+    }
+
+    private void execute() {
+        Run current = run;
+        try {
+            boolean includeLegacy = current.keyId != CardCiphertextFormat.DEFAULT_KEY_ID;
+            current.total = jdbcTemplate.queryForObject(COUNT_PENDING, Long.class, current.keyId, includeLegacy);
+
+            long[] bounds = jdbcTemplate.queryForObject("SELECT coalesce(min(id), 0), coalesce(max(id), 0) FROM card",
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+            int workers = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            Queue<long[]> ranges = split(bounds[0] - 1, bounds[1], workers * RANGES_PER_WORKER);
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+                for (int i = 0; i < workers; i++) {
+                    executor.execute(() -> {
+                        try {
+                            long[] range;
+                            while (current.state == State.RUNNING && (range = ranges.poll()) != null) {
+                                processRange(current, range[0], range[1], includeLegacy);
+                            }
+                        } catch (RuntimeException e) {
+                            current.state = State.FAILED;
+                            log.error("Card re-encryption worker failed", e);
+                        }
+                    });
+                }
+            }
+            if (current.state == State.FAILED) {
+                return;
+            }
+            current.state = current.state == State.STOPPING ? State.STOPPED : State.COMPLETED;
+            log.info("Card re-encryption to key {} {}: {} re-encrypted, {} skipped, {} failed", current.keyId,
+                    current.state.name().toLowerCase(), current.reencrypted, current.skipped, current.failed);
+        } catch (RuntimeException e) {
+            current.state = State.FAILED;
+            log.error("Card re-encryption to key {} failed", current.keyId, e);
+        } finally {
+            current.finishedAt = Instant.now();
+        }
+    }
+
+    private void processRange(Run current, long fromExclusive, long toInclusive, boolean includeLegacy) {
+        long cursor = fromExclusive;
+        while (current.state == State.RUNNING) {
+            List<PendingRow> rows = jdbcTemplate.query(SELECT_BATCH,
+                    (rs, rowNum) -> new PendingRow(rs.getLong(1), rs.getBytes(2), rs.getString(3)),
+                    cursor, toInclusive, current.keyId, includeLegacy, batchSize);
+            if (rows.isEmpty()) {
+                return;
+            }
+            if (!current.throttle(rows.size(), maxRowsPerSecond)) {
+                current.state = State.STOPPING;
+                return;
+            }
+
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                try {
+                    byte[] sealed = row.sealed() != null ? row.sealed() : CardCiphertextFormat.fromLegacy(row.legacy());
+                    updates.add(new Object[]{cryptoService.reseal(sealed), row.id(), row.sealed(), row.legacy()});
+                } catch (IllegalStateException e) {
+                    current.failed.incrementAndGet();
+                    log.warn("Cannot re-encrypt card {}: {}", row.id(), e.getMessage());
+                }
+            }
+
+            int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_ROW, updates));
+            long updated = 0;
+            for (int count : counts) {
+                updated += Math.max(count, 0);
+            }
+            current.reencrypted.addAndGet(updated);
+            current.skipped.addAndGet(updates.size() - updated);
+            cursor = rows.getLast().id();
+        }
+    }
+
+    private static Queue<long[]> split(long fromExclusive, long toInclusive, int parts) {
+        Queue<long[]> ranges = new ConcurrentLinkedQueue<>();
+        long step = Math.max((toInclusive - fromExclusive + parts - 1) / parts, 1);
+        for (long lo = fromExclusive; lo < toInclusive; lo += step) {
+            ranges.add(new long[]{lo, Math.min(lo + step, toInclusive)});
+        }
+        return ranges;
+    }
+
+    private enum State { IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED }
+
+    private record PendingRow(long id, byte[] sealed, String legacy) {}
+
+    private static final class Run {
+        private final int keyId;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong reencrypted = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong nextSlotNanos = new AtomicLong(System.nanoTime());
+        private volatile State state = State.RUNNING;
+        private volatile long total;
+        private volatile Instant finishedAt;
+
+        private Run(int keyId) {
+            this.keyId = keyId;
+        }
+
+        /**
+         * Reserves time for {@code rows} rows in the budget shared by all workers and sleeps
+         * until that slot begins.
+         */
+        private boolean throttle(int rows, int maxRowsPerSecond) {
+            if (maxRowsPerSecond <= 0) {
+                return true;
+            }
+            long cost = TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond;
+            long now = System.nanoTime();
+            long slot = nextSlotNanos.getAndAccumulate(cost, (next, c) -> Math.max(next, now) + c);
+            long waitNanos = Math.max(slot, now) - now;
+            if (waitNanos <= 0) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
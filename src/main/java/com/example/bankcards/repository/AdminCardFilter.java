@@ -10,6 +10,10 @@ public record AdminCardFilter(String ownerName, String ownerSurname) {
                 .and(ownerSurnameSpec());
     }
 
+    public boolean isEmpty() {
+        return !StringUtils.hasText(ownerName) && !StringUtils.hasText(ownerSurname);
+    }
+
     private Specification<Card> ownerNameSpec() {
         return ((root, query, cb) -> StringUtils.hasText(ownerName)
                 ? cb.equal(root.get("owner").get("name"), ownerName)
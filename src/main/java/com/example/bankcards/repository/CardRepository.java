@@ -1,12 +1,65 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.crypto.CryptoHolder;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card> {
-    Optional<Card> findByIdAndOwner(Long id, User owner);
-}
\ No newline at end of file
+    boolean existsByIdAndOwner_Id(Long id, Long ownerId);
+
+    /**
+     * Owner, balance and status of a card, read from the card row alone. Read on the primary,
+     * since the balance cache reloads a card right after a transfer to it has committed.
+     */
+    @Transactional
+    @Query("select c.owner.id as ownerId, c.moneyAmount as moneyAmount, c.cardStatus as cardStatus from Card c where c.id = :id")
+    Optional<CardBalance> findBalance(@Param("id") Long id);
+
+    Optional<Card> findByCardNumberHash(byte[] cardNumberHash);
+
+    boolean existsByCardNumberHash(byte[] cardNumberHash);
+
+    /**
+     * Debits an active card of {@code userId}, who also owns {@code toId}, only if it holds enough
+     * money. Returns 0 when any of these conditions does not hold.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE card SET money_amount = money_amount - :amount
+            WHERE id = :fromId
+              AND status = 'ACTIVE'
+              AND money_amount >= :amount
+              AND user_id = :userId
+              AND user_id = (SELECT user_id FROM card WHERE id = :toId)""", nativeQuery = true)
+    int debitIfAllowed(@Param("fromId") Long fromId, @Param("toId") Long toId, @Param("amount") BigDecimal amount,
+                       @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "UPDATE card SET money_amount = money_amount + :amount WHERE id = :id", nativeQuery = true)
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    default Optional<Card> findByPan(String pan) {
+        return findByCardNumberHash(CryptoHolder.get().blindIndex(pan));
+    }
+
+    default boolean existsByPan(String pan) {
+        return existsByCardNumberHash(CryptoHolder.get().blindIndex(pan));
+    }
+
+    interface CardBalance {
+        Long getOwnerId();
+
+        BigDecimal getMoneyAmount();
+
+        CardStatus getCardStatus();
+    }
+}
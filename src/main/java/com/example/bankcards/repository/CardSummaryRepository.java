@@ -0,0 +1,100 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.util.CardMaskUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Card listings read straight into {@link CardSummaryDto}.
+ * <p>
+ * Only the listed columns are selected, the owner's phone number through a left join so that
+ * cards without an owner are listed and counted alike, and the number is masked from
+ * {@code last_4} in the query. No card is
+ * loaded as an entity, so nothing is decrypted and no owner is fetched per row: a page costs
+ * one select, plus a count when it is full. Slices skip the count and seek past the last id
+ * instead of skipping an offset.
+ * <p>
+ * The balance selected is {@code money_amount}; with the ledger enabled that is only the last
+ * snapshot, and {@link com.example.bankcards.service.CardServiceImpl} adds the entries since it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardSummaryRepository {
+
+    private final EntityManager entityManager;
+
+    public Page<CardSummaryDto> findAll(Specification<Card> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardSummaryDto> query = cb.createQuery(CardSummaryDto.class);
+        Root<Card> card = query.from(Card.class);
+        query.select(summary(cb, card));
+        where(query, spec.toPredicate(card, query, cb));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), card, cb));
+
+        TypedQuery<CardSummaryDto> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    /**
+     * Up to {@code limit} cards with ids above {@code afterId}, in id order: a seek on the
+     * primary key instead of an offset, and no count.
+     */
+    public List<CardSummaryDto> findSlice(Specification<Card> spec, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardSummaryDto> query = cb.createQuery(CardSummaryDto.class);
+        Root<Card> card = query.from(Card.class);
+        query.select(summary(cb, card));
+        Specification<Card> seek = afterId == null
+                ? spec
+                : spec.and((root, q, b) -> b.greaterThan(root.<Long>get("id"), afterId));
+        where(query, seek.toPredicate(card, query, cb));
+        query.orderBy(cb.asc(card.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private long count(Specification<Card> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Card> card = query.from(Card.class);
+        query.select(cb.count(card));
+        where(query, spec.toPredicate(card, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static CompoundSelection<CardSummaryDto> summary(CriteriaBuilder cb, Root<Card> card) {
+        return cb.construct(CardSummaryDto.class,
+                card.get("id"),
+                cb.concat(CardMaskUtil.MASK_PREFIX, card.<String>get("last4")),
+                card.get("expiry"),
+                card.get("moneyAmount"),
+                card.get("cardStatus"),
+                card.join("owner", JoinType.LEFT).get("phoneNumber"));
+    }
+
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * JDBC access to {@code transfer_idempotency_key}, the durable record of transfer outcomes by
+ * idempotency key. Keys are scoped to the user that sent them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private static final String INSERT = """
+            INSERT INTO transfer_idempotency_key (user_id, idempotency_key, request_hash, status, response_body, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, idempotency_key) DO NOTHING""";
+
+    private static final String FIND = """
+            SELECT request_hash, status, response_body FROM transfer_idempotency_key
+            WHERE user_id = ? AND idempotency_key = ?""";
+
+    private static final String DELETE_CREATED_BEFORE = """
+            DELETE FROM transfer_idempotency_key
+            WHERE ctid = ANY(ARRAY(
+                SELECT ctid FROM transfer_idempotency_key WHERE created_at < ? LIMIT ?))""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns false if the key is already taken. While another transaction holds an uncommitted
+     * row for the same key, the insert waits on the primary key until that transaction ends.
+     */
+    public boolean insert(long userId, String idempotencyKey, StoredOutcome outcome, LocalDateTime createdAt) {
+        return jdbcTemplate.update(INSERT, userId, idempotencyKey, outcome.requestHash(), outcome.status(),
+                outcome.body(), Timestamp.valueOf(createdAt)) == 1;
+    }
+
+    public Optional<StoredOutcome> find(long userId, String idempotencyKey) {
+        return jdbcTemplate.query(FIND, (rs, _) -> new StoredOutcome(rs.getBytes(1), rs.getInt(2), rs.getString(3)),
+                        userId, idempotencyKey)
+                .stream()
+                .findFirst();
+    }
+
+    public int deleteCreatedBefore(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_CREATED_BEFORE, Timestamp.valueOf(before), limit);
+    }
+
+    /**
+     * {@code body} is the error message of a rejected transfer and null for an applied one.
+     */
+    public record StoredOutcome(byte[] requestHash, int status, String body) {}
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * JDBC access to the append-only {@code ledger_entry} table.
+ * <p>
+ * A card balance is {@code card.money_amount}, the snapshot taken at ledger entry
+ * {@code card.snapshot_entry_id}, plus the sum of the card's entries after it. Writers append
+ * entries under a per-card advisory lock: exclusive for debits, shared for credits. Compaction
+ * takes the exclusive lock as well, so it only ever folds entries whose writers have committed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerRepository {
+
+    /**
+     * First key of the two-key advisory lock space, reserved for ledger card locks.
+     */
+    private static final int LOCK_CLASS = 0x4C45;
+
+    private static final String LOCK_KEY = "(%s %% 2147483647)::int";
+
+    private static final String LOCK_EXCLUSIVE =
+            "SELECT pg_advisory_xact_lock(" + LOCK_CLASS + ", " + LOCK_KEY.formatted("?") + ")";
+
+    private static final String LOCK_SHARED =
+            "SELECT pg_advisory_xact_lock_shared(" + LOCK_CLASS + ", " + LOCK_KEY.formatted("?") + ")";
+
+    private static final String LOCK_ALL_EXCLUSIVE = """
+            SELECT count(pg_advisory_xact_lock(%d, %s))
+            FROM (SELECT DISTINCT id FROM unnest(?::bigint[]) AS u(id) ORDER BY id) ordered""".formatted(LOCK_CLASS, LOCK_KEY.formatted("id"));
+
+    private static final String CARD_WITH_BALANCE = """
+            SELECT c.id, c.user_id, c.status,
+                   c.money_amount + COALESCE((SELECT sum(e.amount) FROM ledger_entry e
+                                              WHERE e.card_id = c.id AND e.id > c.snapshot_entry_id), 0) AS balance
+            FROM card c""";
+
+    private static final String INSERT_ENTRY = """
+            INSERT INTO ledger_entry (card_id, transaction_id, amount, created_at)
+            VALUES (?, ?, ?, ?)""";
+
+    private static final String CARDS_TO_COMPACT = """
+            SELECT e.card_id FROM ledger_entry e
+            JOIN card c ON c.id = e.card_id
+            WHERE e.id > c.snapshot_entry_id
+            GROUP BY e.card_id
+            HAVING count(*) >= ?
+            ORDER BY count(*) DESC
+            LIMIT ?""";
+
+    private static final String COMPACT = """
+            UPDATE card c
+            SET money_amount = c.money_amount + d.delta,
+                snapshot_entry_id = d.last_id
+            FROM (SELECT sum(e.amount) AS delta, max(e.id) AS last_id
+                  FROM ledger_entry e
+                  WHERE e.card_id = ? AND e.id > (SELECT snapshot_entry_id FROM card WHERE id = ?)) d
+            WHERE c.id = ? AND d.last_id IS NOT NULL""";
+
+    private static final RowMapper<LockedCard> LOCKED_CARD_MAPPER = (rs, rowNum) -> {
+        long userId = rs.getLong("user_id");
+        return new LockedCard(rs.getLong("id"), rs.wasNull() ? null : userId,
+                CardStatus.valueOf(rs.getString("status")), rs.getBigDecimal("balance"));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void lock(long cardId, boolean exclusive) {
+        jdbcTemplate.queryForObject(exclusive ? LOCK_EXCLUSIVE : LOCK_SHARED, Object.class, cardId);
+    }
+
+    /**
+     * Takes exclusive locks on all given cards in ascending id order.
+     */
+    public void lockAll(SortedSet<Long> cardIds) {
+        jdbcTemplate.queryForObject(LOCK_ALL_EXCLUSIVE, Long.class, (Object) cardIds.toArray(Long[]::new));
+    }
+
+    public Optional<LockedCard> findCard(long cardId) {
+        return jdbcTemplate.query(CARD_WITH_BALANCE + " WHERE c.id = ?", LOCKED_CARD_MAPPER, cardId)
+                .stream()
+                .findFirst();
+    }
+
+    public Map<Long, LockedCard> findCards(Collection<Long> cardIds) {
+        Map<Long, LockedCard> cards = new HashMap<>();
+        jdbcTemplate.query(CARD_WITH_BALANCE + " WHERE c.id = ANY(?::bigint[])", LOCKED_CARD_MAPPER,
+                        (Object) cardIds.toArray(Long[]::new))
+                .forEach(card -> cards.put(card.id(), card));
+        return cards;
+    }
+
+    public Optional<BigDecimal> balance(long cardId) {
+        return findCard(cardId).map(LockedCard::moneyAmount);
+    }
+
+    public void append(List<LedgerEntryRow> entries, LocalDateTime createdAt) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.cardId());
+            ps.setLong(2, entry.transactionId());
+            ps.setBigDecimal(3, entry.amount());
+            ps.setTimestamp(4, timestamp);
+        });
+    }
+
+    public List<Long> findCardsToCompact(int minEntries, int limit) {
+        return jdbcTemplate.queryForList(CARDS_TO_COMPACT, Long.class, minEntries, limit);
+    }
+
+    /**
+     * Folds the card's entries since its snapshot into a new snapshot. Must run in a
+     * transaction; returns whether there was anything to fold.
+     */
+    public boolean compact(long cardId) {
+        lock(cardId, true);
+        return jdbcTemplate.update(COMPACT, cardId, cardId, cardId) > 0;
+    }
+
+    /**
+     * Signed ledger movement: negative for a debit, positive for a credit.
+     */
+    public record LedgerEntryRow(long cardId, long transactionId, BigDecimal amount) {}
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.repository;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Optional bounds of a transaction history query; {@code from}/{@code minAmount} are
+ * inclusive, {@code to} is exclusive and {@code maxAmount} inclusive.
+ */
+public record TransactionHistoryFilter(
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        BigDecimal minAmount,
+        BigDecimal maxAmount) {
+}
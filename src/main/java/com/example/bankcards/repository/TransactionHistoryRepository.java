@@ -0,0 +1,165 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.TransactionHistoryItemDto;
+import com.example.bankcards.util.CardMaskUtil;
+import com.example.bankcards.util.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated reads of {@code transactions}, newest first by {@code (created_at, id)}.
+ * <p>
+ * A card appears on either side of a transfer, so every query is a {@code UNION ALL} of a
+ * from-card and a to-card branch. Each branch seeks into its own
+ * {@code (card_id, created_at, id)} index and stops after one page. Time bounds are plain
+ * comparisons on {@code created_at}, the partition key, so only the monthly partitions that
+ * can hold matching rows are scanned.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionHistoryRepository {
+
+    private static final String COLUMNS = "t.id, t.from_card_id, t.to_card_id, t.amount, t.created_at";
+
+    private static final String CARD_HISTORY = """
+            SELECT h.*, fc.last_4 AS from_last_4, tc.last_4 AS to_last_4
+            FROM (
+                SELECT * FROM (
+                    (SELECT %1$s FROM transactions t
+                     WHERE t.from_card_id = :cardId%2$s
+                     ORDER BY t.created_at DESC, t.id DESC
+                     LIMIT :limit)
+                    UNION ALL
+                    (SELECT %1$s FROM transactions t
+                     WHERE t.to_card_id = :cardId AND t.from_card_id <> :cardId%2$s
+                     ORDER BY t.created_at DESC, t.id DESC
+                     LIMIT :limit)
+                ) u
+                ORDER BY u.created_at DESC, u.id DESC
+                LIMIT :limit
+            ) h
+            LEFT JOIN card fc ON fc.id = h.from_card_id
+            LEFT JOIN card tc ON tc.id = h.to_card_id
+            ORDER BY h.created_at DESC, h.id DESC""";
+
+    private static final String USER_HISTORY = """
+            WITH my_cards AS (
+                SELECT c.id FROM card c WHERE c.user_id = :userId
+            )
+            SELECT h.*, fc.last_4 AS from_last_4, tc.last_4 AS to_last_4
+            FROM (
+                SELECT u.* FROM my_cards mc
+                CROSS JOIN LATERAL (
+                    (SELECT %1$s FROM transactions t
+                     WHERE t.from_card_id = mc.id%2$s
+                     ORDER BY t.created_at DESC, t.id DESC
+                     LIMIT :limit)
+                    UNION ALL
+                    (SELECT %1$s FROM transactions t
+                     WHERE t.to_card_id = mc.id AND t.from_card_id NOT IN (SELECT id FROM my_cards)%2$s
+                     ORDER BY t.created_at DESC, t.id DESC
+                     LIMIT :limit)
+                ) u
+                ORDER BY u.created_at DESC, u.id DESC
+                LIMIT :limit
+            ) h
+            LEFT JOIN card fc ON fc.id = h.from_card_id
+            LEFT JOIN card tc ON tc.id = h.to_card_id
+            ORDER BY h.created_at DESC, h.id DESC""";
+
+    private static final RowMapper<TransactionHistoryItemDto> ROW_MAPPER = (rs, rowNum) -> new TransactionHistoryItemDto(
+            rs.getLong("id"),
+            rs.getLong("from_card_id"),
+            CardMaskUtil.maskLast4(rs.getString("from_last_4")),
+            rs.getLong("to_card_id"),
+            CardMaskUtil.maskLast4(rs.getString("to_last_4")),
+            rs.getBigDecimal("amount"),
+            rs.getObject("created_at", LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    static String cardHistorySql(TransactionHistoryFilter filter, CursorCodec.Position after) {
+        return CARD_HISTORY.formatted(COLUMNS, conditions(filter, after));
+    }
+
+    static String userHistorySql(TransactionHistoryFilter filter, CursorCodec.Position after) {
+        return USER_HISTORY.formatted(COLUMNS, conditions(filter, after));
+    }
+
+    static MapSqlParameterSource cardHistoryParameters(long cardId, TransactionHistoryFilter filter,
+                                                       CursorCodec.Position after, int limit) {
+        return parameters(filter, after, limit).addValue("cardId", cardId);
+    }
+
+    static MapSqlParameterSource userHistoryParameters(long userId, TransactionHistoryFilter filter,
+                                                       CursorCodec.Position after, int limit) {
+        return parameters(filter, after, limit).addValue("userId", userId);
+    }
+
+    public List<TransactionHistoryItemDto> findCardHistory(long cardId, TransactionHistoryFilter filter,
+                                                           CursorCodec.Position after, int limit) {
+        return jdbcTemplate.query(cardHistorySql(filter, after), cardHistoryParameters(cardId, filter, after, limit), ROW_MAPPER);
+    }
+
+    public List<TransactionHistoryItemDto> findUserHistory(long userId, TransactionHistoryFilter filter,
+                                                           CursorCodec.Position after, int limit) {
+        return jdbcTemplate.query(userHistorySql(filter, after), userHistoryParameters(userId, filter, after, limit),
+                ROW_MAPPER);
+    }
+
+    public Map<Long, String> findLast4(Collection<Long> cardIds) {
+        Map<Long, String> last4 = new HashMap<>();
+        jdbcTemplate.query("SELECT id, last_4 FROM card WHERE id IN (:ids)", Map.of("ids", cardIds),
+                (RowCallbackHandler) rs -> last4.put(rs.getLong(1), rs.getString(2)));
+        return last4;
+    }
+
+    public List<Long> findCardIds(long userId) {
+        return jdbcTemplate.queryForList("SELECT c.id FROM card c WHERE c.user_id = :userId",
+                Map.of("userId", userId), Long.class);
+    }
+
+    private static String conditions(TransactionHistoryFilter filter, CursorCodec.Position after) {
+        StringBuilder sql = new StringBuilder();
+        if (filter.from() != null) {
+            sql.append(" AND t.created_at >= :from");
+        }
+        if (filter.to() != null) {
+            sql.append(" AND t.created_at < :to");
+        }
+        if (filter.minAmount() != null) {
+            sql.append(" AND t.amount >= :minAmount");
+        }
+        if (filter.maxAmount() != null) {
+            sql.append(" AND t.amount <= :maxAmount");
+        }
+        if (after != null) {
+            // The row comparison alone cannot prune partitions; the plain bound on created_at can
+            sql.append(" AND t.created_at <= :afterCreatedAt AND (t.created_at, t.id) < (:afterCreatedAt, :afterId)");
+        }
+        return sql.toString();
+    }
+
+    private static MapSqlParameterSource parameters(TransactionHistoryFilter filter, CursorCodec.Position after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("limit", limit)
+                .addValue("from", filter.from())
+                .addValue("to", filter.to())
+                .addValue("minAmount", filter.minAmount())
+                .addValue("maxAmount", filter.maxAmount());
+        if (after != null) {
+            params.addValue("afterCreatedAt", after.createdAt()).addValue("afterId", after.id());
+        }
+        return params;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.CardStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Plain JDBC access for batch transfers: one locking read for all cards of a batch and
+ * JDBC batches for the balance updates and the transaction rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransferBatchRepository {
+
+    private static final String LOCK_CARDS = """
+            SELECT id, user_id, status, money_amount FROM card
+            WHERE id = ANY(?)
+            ORDER BY id
+            FOR UPDATE""";
+
+    private static final String FIND_CARD = "SELECT id, user_id, status, money_amount FROM card WHERE id = ?";
+
+    private static final String UPDATE_BALANCE = "UPDATE card SET money_amount = ? WHERE id = ?";
+
+    private static final String INSERT_TRANSACTION = """
+            INSERT INTO transactions (id, from_card_id, to_card_id, amount, created_at)
+            VALUES (?, ?, ?, ?, ?)""";
+
+    private static final String NEXT_TRANSACTION_ID_BLOCKS = "SELECT nextval('transactions_seq') FROM generate_series(1, ?)";
+
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Locks the given cards in ascending id order, which keeps concurrent batches and single
+     * transfers from deadlocking, and returns their current state keyed by id.
+     */
+    public Map<Long, LockedCard> lockCards(SortedSet<Long> ids) {
+        Map<Long, LockedCard> cards = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(LOCK_CARDS);
+            Array array = connection.createArrayOf("bigint", ids.toArray());
+            statement.setArray(1, array);
+            return statement;
+        }, rs -> {
+            LockedCard card = lockedCard(rs);
+            cards.put(card.id(), card);
+        });
+        return cards;
+    }
+
+    /**
+     * Unlocked read of one card, for callers that re-check it under {@link #lockCards} later.
+     */
+    public Optional<LockedCard> findCard(long id) {
+        return jdbcTemplate.query(FIND_CARD, (rs, _) -> lockedCard(rs), id).stream().findFirst();
+    }
+
+    private static LockedCard lockedCard(ResultSet rs) throws SQLException {
+        long userId = rs.getLong(2);
+        return new LockedCard(rs.getLong(1), rs.wasNull() ? null : userId,
+                CardStatus.valueOf(rs.getString(3)), rs.getBigDecimal(4));
+    }
+
+    public void updateBalances(Map<Long, BigDecimal> balances) {
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE, new ArrayList<>(balances.entrySet()), JDBC_BATCH_SIZE,
+                (ps, balance) -> {
+                    ps.setBigDecimal(1, balance.getValue());
+                    ps.setLong(2, balance.getKey());
+                });
+    }
+
+    /**
+     * Returns the ids given to the inserted rows, in the order of {@code transfers}.
+     */
+    public List<Long> insertTransactions(List<TransferRow> transfers, LocalDateTime createdAt) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        List<Long> transactionIds = allocateTransactionIds(transfers.size()).subList(0, transfers.size());
+        Iterator<Long> ids = transactionIds.iterator();
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, transfers, JDBC_BATCH_SIZE,
+                (ps, transfer) -> {
+                    ps.setLong(1, ids.next());
+                    ps.setLong(2, transfer.fromCardId());
+                    ps.setLong(3, transfer.toCardId());
+                    ps.setBigDecimal(4, transfer.amount());
+                    ps.setTimestamp(5, timestamp);
+                });
+        return transactionIds;
+    }
+
+    /**
+     * Reserves ids the same way Hibernate's pooled optimizer does: every {@code nextval} hands
+     * out the block of {@link Transaction#ID_ALLOCATION_SIZE} ids ending at the returned value.
+     */
+    private List<Long> allocateTransactionIds(int count) {
+        int blocks = (count + Transaction.ID_ALLOCATION_SIZE - 1) / Transaction.ID_ALLOCATION_SIZE;
+        List<Long> ids = new ArrayList<>(blocks * Transaction.ID_ALLOCATION_SIZE);
+        for (Long hi : jdbcTemplate.queryForList(NEXT_TRANSACTION_ID_BLOCKS, Long.class, blocks)) {
+            for (long id = hi - Transaction.ID_ALLOCATION_SIZE + 1; id <= hi; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    public record LockedCard(long id, Long userId, CardStatus status, BigDecimal moneyAmount) {}
+
+    public record TransferRow(long fromCardId, long toCardId, BigDecimal amount) {}
+}
@@ -0,0 +1,170 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.TransferTotalsDto;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Per-card daily and monthly transfer totals, kept up to date by the transfer itself.
+ * <p>
+ * Card ids are grouped into blocks of {@link #BLOCK_SIZE}. Writers hold a shared advisory lock
+ * on the blocks they touch and the rebuild holds an exclusive one on the block it recomputes,
+ * so a rebuild never races with a transfer that it would otherwise miss or count twice.
+ * Rollups of months whose partitions were detached outlive those transfers and are never rebuilt.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransferRollupRepository {
+
+    public static final int BLOCK_SIZE = 1024;
+
+    /**
+     * First key of the two-key advisory lock space, reserved for rollup blocks.
+     */
+    private static final int LOCK_CLASS = 0x524F;
+
+    private static final String DAILY = "card_transfer_daily_rollup";
+    private static final String MONTHLY = "card_transfer_monthly_rollup";
+
+    private static final String LOCK_BLOCKS_SHARED = """
+            SELECT count(pg_advisory_xact_lock_shared(%d, b)) FROM (SELECT DISTINCT unnest(?::int[]) AS b ORDER BY b) blocks"""
+            .formatted(LOCK_CLASS);
+
+    private static final String LOCK_BLOCK = "SELECT pg_advisory_xact_lock(%d, ?)".formatted(LOCK_CLASS);
+
+    private static final String UPSERT = """
+            INSERT INTO %1$s AS r (card_id, period_start, debit_amount, debit_count, credit_amount, credit_count)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (card_id, period_start) DO UPDATE
+            SET debit_amount = r.debit_amount + excluded.debit_amount,
+                debit_count = r.debit_count + excluded.debit_count,
+                credit_amount = r.credit_amount + excluded.credit_amount,
+                credit_count = r.credit_count + excluded.credit_count""";
+
+    private static final String SELECT_TOTALS = """
+            SELECT period_start, debit_amount, debit_count, credit_amount, credit_count
+            FROM %s WHERE card_id = ? AND period_start = ?""";
+
+    private static final String DELETE_BLOCK = "DELETE FROM %s WHERE card_id >= ? AND card_id < ? AND period_start >= ?";
+
+    private static final String REBUILD_DAILY_BLOCK = """
+            INSERT INTO card_transfer_daily_rollup (card_id, period_start, debit_amount, debit_count, credit_amount, credit_count)
+            SELECT m.card_id, m.created_at::date,
+                   coalesce(sum(m.amount) FILTER (WHERE m.debit), 0), count(*) FILTER (WHERE m.debit),
+                   coalesce(sum(m.amount) FILTER (WHERE NOT m.debit), 0), count(*) FILTER (WHERE NOT m.debit)
+            FROM (SELECT from_card_id AS card_id, created_at, amount, true AS debit FROM transactions
+                  WHERE from_card_id >= ? AND from_card_id < ? AND created_at >= ?
+                  UNION ALL
+                  SELECT to_card_id, created_at, amount, false FROM transactions
+                  WHERE to_card_id >= ? AND to_card_id < ? AND created_at >= ?) m
+            GROUP BY 1, 2""";
+
+    private static final String REBUILD_MONTHLY_BLOCK = """
+            INSERT INTO card_transfer_monthly_rollup (card_id, period_start, debit_amount, debit_count, credit_amount, credit_count)
+            SELECT card_id, date_trunc('month', period_start)::date,
+                   sum(debit_amount), sum(debit_count), sum(credit_amount), sum(credit_count)
+            FROM card_transfer_daily_rollup
+            WHERE card_id >= ? AND card_id < ? AND period_start >= ?
+            GROUP BY 1, 2""";
+
+    private static final RowMapper<TransferTotalsDto> TOTALS_MAPPER = (rs, rowNum) -> new TransferTotalsDto(
+            rs.getDate(1).toLocalDate(), rs.getBigDecimal(2), rs.getLong(3), rs.getBigDecimal(4), rs.getLong(5));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the transfers to the rollups of both cards. Rows are upserted in card id order so
+     * that concurrent transfers cannot deadlock on them; must run in the transfer's transaction.
+     */
+    public void record(List<TransferRow> transfers, LocalDateTime createdAt) {
+        SortedMap<Long, Delta> deltas = new TreeMap<>();
+        for (TransferRow transfer : transfers) {
+            deltas.computeIfAbsent(transfer.fromCardId(), _ -> new Delta()).debit(transfer.amount());
+            deltas.computeIfAbsent(transfer.toCardId(), _ -> new Delta()).credit(transfer.amount());
+        }
+
+        Integer[] blocks = deltas.keySet().stream().map(TransferRollupRepository::block).distinct().toArray(Integer[]::new);
+        jdbcTemplate.queryForObject(LOCK_BLOCKS_SHARED, Long.class, (Object) blocks);
+
+        LocalDate day = createdAt.toLocalDate();
+        upsert(DAILY, Date.valueOf(day), deltas);
+        upsert(MONTHLY, Date.valueOf(day.withDayOfMonth(1)), deltas);
+    }
+
+    private void upsert(String table, Date periodStart, SortedMap<Long, Delta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT.formatted(table), new ArrayList<>(deltas.entrySet()), deltas.size(),
+                (ps, delta) -> {
+                    ps.setLong(1, delta.getKey());
+                    ps.setDate(2, periodStart);
+                    ps.setBigDecimal(3, delta.getValue().debitAmount);
+                    ps.setLong(4, delta.getValue().debitCount);
+                    ps.setBigDecimal(5, delta.getValue().creditAmount);
+                    ps.setLong(6, delta.getValue().creditCount);
+                });
+    }
+
+    public Optional<TransferTotalsDto> findDaily(long cardId, LocalDate day) {
+        return findTotals(DAILY, cardId, day);
+    }
+
+    public Optional<TransferTotalsDto> findMonthly(long cardId, LocalDate day) {
+        return findTotals(MONTHLY, cardId, day.withDayOfMonth(1));
+    }
+
+    private Optional<TransferTotalsDto> findTotals(String table, long cardId, LocalDate periodStart) {
+        return jdbcTemplate.query(SELECT_TOTALS.formatted(table), TOTALS_MAPPER, cardId, Date.valueOf(periodStart))
+                .stream()
+                .findFirst();
+    }
+
+    public int maxBlock() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM card", Long.class);
+        return block(maxId);
+    }
+
+    /**
+     * Recomputes both rollups of one card id block from {@code transactions}, for the periods
+     * starting on or after {@code since}, which must be the first day of a month. Must run in a
+     * transaction; waits for in-flight transfers on the block and holds off new ones until commit.
+     */
+    public void rebuildBlock(int block, LocalDate since) {
+        long from = (long) block * BLOCK_SIZE;
+        long to = from + BLOCK_SIZE;
+        Date periodStart = Date.valueOf(since);
+        jdbcTemplate.queryForObject(LOCK_BLOCK, Object.class, block);
+        jdbcTemplate.update(DELETE_BLOCK.formatted(MONTHLY), from, to, periodStart);
+        jdbcTemplate.update(DELETE_BLOCK.formatted(DAILY), from, to, periodStart);
+        jdbcTemplate.update(REBUILD_DAILY_BLOCK, from, to, since.atStartOfDay(), from, to, since.atStartOfDay());
+        jdbcTemplate.update(REBUILD_MONTHLY_BLOCK, from, to, periodStart);
+    }
+
+    private static int block(long cardId) {
+        return (int) (cardId / BLOCK_SIZE);
+    }
+
+    private static final class Delta {
+        private BigDecimal debitAmount = BigDecimal.ZERO;
+        private long debitCount;
+        private BigDecimal creditAmount = BigDecimal.ZERO;
+        private long creditCount;
+
+        private void debit(BigDecimal amount) {
+            debitAmount = debitAmount.add(amount);
+            debitCount++;
+        }
+
+        private void credit(BigDecimal amount) {
+            creditAmount = creditAmount.add(amount);
+            creditCount++;
+        }
+    }
+}
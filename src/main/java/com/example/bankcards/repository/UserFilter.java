@@ -9,6 +9,10 @@ public record UserFilter(String phoneNumber) {
         return phoneNumberSpec();
     }
 
+    public boolean isEmpty() {
+        return !StringUtils.hasText(phoneNumber);
+    }
+
     private Specification<User> phoneNumberSpec() {
         return ((root, query, cb) -> StringUtils.hasText(phoneNumber)
                 ? cb.equal(root.get("phoneNumber"), phoneNumber)
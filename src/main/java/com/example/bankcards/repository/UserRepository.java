@@ -4,11 +4,40 @@ import com.example.bankcards.entity.User;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
+    /**
+     * Read on the primary, so that a changed password or role applies to the next login.
+     */
+    @Transactional
     @EntityGraph(attributePaths = {"roles"})
     Optional<User> findByPhoneNumber(String phoneNumber);
-}
\ No newline at end of file
+
+    /**
+     * Read on the primary, so that a revoked token is refused as soon as the revocation commits.
+     */
+    @Transactional
+    @Query("select u.id as id, u.tokenVersion as tokenVersion from User u where u.id in :ids")
+    List<TokenVersion> findTokenVersions(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id and u.password = :currentPassword")
+    int updatePassword(@Param("id") Long id, @Param("currentPassword") String currentPassword,
+                       @Param("password") String password);
+
+    interface TokenVersion {
+        Long getId();
+
+        int getTokenVersion();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * User loaded for a password login, with what {@link JwtService} needs to issue its token.
+ */
+@Getter
+public class AppUserDetails extends User {
+    private final Long id;
+    private final int tokenVersion;
+
+    public AppUserDetails(Long id, String phoneNumber, String password, int tokenVersion,
+                          Collection<? extends GrantedAuthority> authorities) {
+        super(phoneNumber, password, authorities);
+        this.id = id;
+        this.tokenVersion = tokenVersion;
+    }
+}
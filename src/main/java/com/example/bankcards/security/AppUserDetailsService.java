@@ -5,29 +5,46 @@ import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-public class AppUserDetailsService implements UserDetailsService {
+public class AppUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
 
     @Override
-    public UserDetails loadUserByUsername(String phoneNumber) throws UsernameNotFoundException {
+    public AppUserDetails loadUserByUsername(String phoneNumber) throws UsernameNotFoundException {
         User user = userRepository.findByPhoneNumber(phoneNumber)
                 .orElseThrow(() -> new UsernameNotFoundException(
                         "Пользователь не найден: " + phoneNumber
                 ));
 
-        return new org.springframework.security.core.userdetails.User(
+        return new AppUserDetails(
+                user.getId(),
                 user.getPhoneNumber(),
                 user.getPassword(),
+                user.getTokenVersion(),
                 user.getRoles()
                         .stream()
                         .map(r -> new SimpleGrantedAuthority(r.getName()))
                         .toList()
         );
     }
+
+    /**
+     * Stores a stronger hash of the password the user has just logged in with. The token version
+     * is kept, the password itself has not changed. Skipped if the password was changed meanwhile.
+     */
+    @Override
+    public AppUserDetails updatePassword(UserDetails user, String newPassword) {
+        AppUserDetails details = (AppUserDetails) user;
+        if (userRepository.updatePassword(details.getId(), details.getPassword(), newPassword) == 0) {
+            return details;
+        }
+        return new AppUserDetails(details.getId(), details.getUsername(), newPassword,
+                details.getTokenVersion(), details.getAuthorities());
+    }
 }
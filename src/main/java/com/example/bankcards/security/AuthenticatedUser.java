@@ -0,0 +1,14 @@
+package com.example.bankcards.security;
+
+import java.security.Principal;
+
+/**
+ * Principal of a request authenticated by a bearer token, built from the token's claims alone.
+ */
+public record AuthenticatedUser(Long id, String phoneNumber) implements Principal {
+
+    @Override
+    public String getName() {
+        return phoneNumber;
+    }
+}
@@ -1,27 +1,31 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.security.JwtService.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
+/**
+ * Authenticates requests from the bearer token alone; the only state consulted is the
+ * {@link TokenVersionCache}, which tells whether the token has been revoked.
+ */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final TokenVersionCache tokenVersionCache;
 
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService, TokenVersionCache tokenVersionCache) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     @Override
@@ -38,17 +42,16 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(7);
-        String username = jwtService.extractUsername(token);
+        Optional<VerifiedToken> verified = SecurityContextHolder.getContext().getAuthentication() == null
+                ? jwtService.verify(token)
+                : Optional.empty();
 
-        if (username != null &&
-                SecurityContextHolder.getContext().getAuthentication() == null &&
-                jwtService.isValid(token)) {
-
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (verified.isPresent() &&
+                tokenVersionCache.isCurrent(verified.get().user().id(), verified.get().tokenVersion())) {
 
             UsernamePasswordAuthenticationToken auth =
-                    new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
+                    UsernamePasswordAuthenticationToken.authenticated(
+                            verified.get().user(), null, verified.get().authorities()
                     );
 
             auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -1,46 +1,135 @@
 package com.example.bankcards.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.RequiredTypeException;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies the bearer tokens.
+ * <p>
+ * A token carries the user id, roles and {@link com.example.bankcards.entity.User#getTokenVersion()
+ * token version}, so a request is authenticated from the token alone. The parser is built once
+ * and shared, it is immutable and thread-safe. Verified tokens are kept in a small cache keyed by
+ * the token itself until they expire, so a client sending the same token on every request pays
+ * for the HMAC check once.
+ */
 @Service
 public class JwtService {
+    private static final Duration TOKEN_TTL = Duration.ofHours(1);
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String TOKEN_VERSION_CLAIM = "ver";
+    private static final String ROLES_CLAIM = "roles";
+
     private final SecretKey secretKey;
+    private final Clock clock;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verified;
+
+    @Autowired
+    public JwtService(@Value("${security.jwt.secret}") String secret,
+                      @Value("${security.jwt.verified-cache-size:10000}") long verifiedCacheSize,
+                      MeterRegistry meterRegistry) {
+        this(secret, verifiedCacheSize, meterRegistry, Clock.systemUTC());
+    }
 
-    public JwtService(@Value("${security.jwt.secret}") String secret) {
+    JwtService(String secret, long verifiedCacheSize, MeterRegistry meterRegistry, Clock clock) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.clock = clock;
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .clock(() -> Date.from(clock.instant()))
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.creating((String _, VerifiedToken token) -> untilExpiry(token)))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verified");
     }
 
-    public String generateToken(String username) {
+    public String generateToken(AppUserDetails user) {
+        Date now = Date.from(clock.instant());
         return Jwts.builder()
-                .subject(username)
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60)) // 1 час
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion())
+                .claim(ROLES_CLAIM, user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                .issuedAt(now)
+                .expiration(Date.from(now.toInstant().plus(TOKEN_TTL)))
                 .signWith(secretKey)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+    /**
+     * A correctly signed, unexpired token issued by {@link #generateToken}, or empty for anything else.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        VerifiedToken cached = verified.getIfPresent(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException _) {
+            return Optional.empty();
+        }
+        Optional<VerifiedToken> result = toVerifiedToken(claims);
+        result.ifPresent(verifiedToken -> verified.put(token, verifiedToken));
+        return result;
     }
 
-    public boolean isValid(String token) {
+    private static Optional<VerifiedToken> toVerifiedToken(Claims claims) {
+        Long userId;
+        Integer tokenVersion;
+        List<?> roles;
         try {
-            Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
-            return true;
-        } catch (Exception _) {
-            return false;
+            userId = claims.get(USER_ID_CLAIM, Long.class);
+            tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+            roles = claims.get(ROLES_CLAIM, List.class);
+        } catch (RequiredTypeException _) {
+            return Optional.empty();
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null
+                || userId == null || tokenVersion == null || roles == null) {
+            return Optional.empty();
         }
+        List<GrantedAuthority> authorities = roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return Optional.of(new VerifiedToken(new AuthenticatedUser(userId, claims.getSubject()), tokenVersion,
+                authorities, claims.getExpiration().toInstant()));
     }
+
+    private Duration untilExpiry(VerifiedToken token) {
+        Duration remaining = Duration.between(clock.instant(), token.expiresAt());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    public record VerifiedToken(AuthenticatedUser user, int tokenVersion, List<GrantedAuthority> authorities,
+                                Instant expiresAt) {}
 }
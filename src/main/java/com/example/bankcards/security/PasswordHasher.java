@@ -0,0 +1,73 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the password checks of logins on a pool of its own.
+ * <p>
+ * A BCrypt hash costs a few hundred milliseconds of CPU, so hashing on request threads lets a
+ * burst of logins occupy every worker. Here at most one hash per thread runs at a time, a
+ * bounded number waits, and anything beyond that is refused with 429 straight away.
+ * The pool is published as the {@code password.hashing} executor metrics: queue depth, active
+ * threads, and execution and waiting times of the hashes.
+ */
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService executor;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${security.password.hashing.threads:0}") int threads,
+                          @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().daemon().name("password-hashing-", 0).factory());
+        this.passwordEncoder = passwordEncoder;
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hashing");
+        this.rejected = Counter.builder("password.hashing.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Runs a task that hashes or checks passwords, such as an authentication, on the pool.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many password checks in progress");
+        }
+    }
+
+    /**
+     * Hashes a password on the calling thread. Only admins set passwords, so unlike logins they
+     * need no protection from bursts, and callers hash before opening a transaction.
+     */
+    public String encode(CharSequence rawPassword) {
+        return passwordEncoder.encode(rawPassword);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+}
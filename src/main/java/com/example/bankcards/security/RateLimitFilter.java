@@ -0,0 +1,173 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per route and client, answering 429 with {@code Retry-After} once a bucket is empty.
+ * <p>
+ * Runs after {@link JwtAuthFilter}: authenticated requests are counted per user, anonymous ones
+ * such as logins per remote address. A bucket is a single {@link AtomicLong} holding the time at
+ * which it is full again, so taking a token is one compare-and-set and refilling needs no timer.
+ * A bucket left alone for a whole period is full, and is then dropped from its route's cache.
+ * Requests are counted in {@code rate.limit.requests}, tagged by route and result.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final long NOT_USED = Long.MIN_VALUE;
+
+    private final List<LimitedRoute> routes;
+    private final Ticker ticker;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.ticker = ticker;
+        this.routes = properties.enabled()
+                ? properties.routes().stream()
+                        .map(route -> new LimitedRoute(route, properties.maxClientsPerRoute(), meterRegistry, ticker))
+                        .toList()
+                : List.of();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        LimitedRoute route = match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = route.bucket(clientKey(request)).tryTake(ticker.read(), route.intervalNanos, route.burstNanos);
+        if (waitNanos == 0) {
+            route.allowed.increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        route.rejected.increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Too many requests");
+    }
+
+    private LimitedRoute match(HttpServletRequest request) {
+        if (routes.isEmpty()) {
+            return null;
+        }
+        PathContainer path = null;
+        for (LimitedRoute route : routes) {
+            if (route.method != null && !route.method.equals(request.getMethod())) {
+                continue;
+            }
+            if (path == null) {
+                path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+            }
+            if (route.pattern.matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The user id for authenticated requests, the remote address otherwise; the two never compare equal.
+     */
+    private static Object clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.id();
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static final class LimitedRoute {
+        private final String method;
+        private final PathPattern pattern;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<Object, Bucket> buckets;
+        private final Counter allowed;
+        private final Counter rejected;
+
+        private LimitedRoute(RateLimitProperties.Route route, long maxClients, MeterRegistry meterRegistry,
+                             Ticker ticker) {
+            this.method = route.method() != null ? route.method().name() : null;
+            this.pattern = PathPatternParser.defaultInstance.parse(route.path());
+            this.intervalNanos = route.period().toNanos() / route.capacity();
+            this.burstNanos = intervalNanos * route.capacity();
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxClients)
+                    .expireAfterAccess(route.period())
+                    .ticker(ticker)
+                    .build();
+            this.allowed = counter(meterRegistry, route.name(), "allowed");
+            this.rejected = counter(meterRegistry, route.name(), "rejected");
+        }
+
+        private Bucket bucket(Object clientKey) {
+            return buckets.get(clientKey, _ -> new Bucket());
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String route, String result) {
+            return Counter.builder("rate.limit.requests")
+                    .tag("route", route)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * A token bucket kept as the time it is full again: each token taken moves that time one
+     * interval later, and the bucket is empty while it lies more than a full burst ahead.
+     */
+    static final class Bucket {
+        private final AtomicLong fullAt = new AtomicLong(NOT_USED);
+
+        /**
+         * Takes a token, returning 0, or returns how many nanoseconds remain until one is available.
+         */
+        long tryTake(long now, long intervalNanos, long burstNanos) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long waitNanos = next - now - burstNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
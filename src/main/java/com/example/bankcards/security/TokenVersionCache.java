@@ -0,0 +1,100 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.UserRepository.TokenVersion;
+import com.example.bankcards.service.UserCredentialsChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Current token versions of the users that recently made requests.
+ * <p>
+ * A user's version is read once, on their first request, and from then on all cached versions
+ * are re-read together on a fixed interval, so authenticating a request normally costs no query.
+ * Changes made through this instance take effect as soon as they commit, changes made on other
+ * instances within one refresh interval. Every load stamps its entry, and a refresh only replaces
+ * entries whose stamp it saw before querying, so a refresh that raced with an invalidation cannot
+ * bring back the version read before the change.
+ */
+@Slf4j
+@Component
+public class TokenVersionCache {
+
+    private static final int DELETED = -1;
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, CachedVersion> versions;
+    private final AtomicLong stamps = new AtomicLong();
+
+    public TokenVersionCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${security.jwt.token-versions.cache-size:100000}") long cacheSize) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "jwt.token.versions");
+    }
+
+    public boolean isCurrent(long userId, int tokenVersion) {
+        return versions.get(userId, this::load).version() == tokenVersion;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        versions.invalidateAll(event.userIds());
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.token-versions.refresh-interval:PT30S}")
+    public void refresh() {
+        List<Long> userIds = List.copyOf(versions.asMap().keySet());
+        for (int from = 0; from < userIds.size(); from += REFRESH_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(from, Math.min(from + REFRESH_BATCH_SIZE, userIds.size()));
+            Map<Long, CachedVersion> seen = new HashMap<>();
+            batch.forEach(userId -> {
+                CachedVersion cached = versions.asMap().get(userId);
+                if (cached != null) {
+                    seen.put(userId, cached);
+                }
+            });
+            if (seen.isEmpty()) {
+                continue;
+            }
+            Map<Long, Integer> loaded = userRepository.findTokenVersions(seen.keySet()).stream()
+                    .collect(Collectors.toMap(TokenVersion::getId, TokenVersion::getTokenVersion));
+            // only entries not invalidated meanwhile, an invalidated one is loaded again on its next request
+            seen.forEach((userId, cached) -> versions.asMap().computeIfPresent(userId,
+                    (_, current) -> current.stamp() == cached.stamp()
+                            ? new CachedVersion(loaded.getOrDefault(userId, DELETED), cached.stamp())
+                            : current));
+        }
+        log.debug("Refreshed token versions of {} users", userIds.size());
+    }
+
+    private CachedVersion load(long userId) {
+        long stamp = stamps.incrementAndGet();
+        int version = userRepository.findTokenVersions(List.of(userId)).stream()
+                .findFirst()
+                .map(TokenVersion::getTokenVersion)
+                .orElse(DELETED);
+        return new CachedVersion(version, stamp);
+    }
+
+    private record CachedVersion(int version, long stamp) {
+    }
+}
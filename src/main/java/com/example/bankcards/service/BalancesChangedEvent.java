@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import java.util.Collection;
+
+/**
+ * Published by transfers with the cards whose balances they changed, so that components caching
+ * balances can drop them once the transfer has committed.
+ */
+public record BalancesChangedEvent(Collection<Long> cardIds) {
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.CardBalance;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Owner, status and balance of recently read cards, behind {@code GET /card/v1/{cardId}/balance}.
+ * <p>
+ * Concurrent misses on a card wait for a single load. Transfers and card changes made through
+ * this instance evict their cards once they commit; an eviction that meets a load in progress
+ * waits for it and then removes what it loaded, so no balance read before the commit survives
+ * it. Changes made elsewhere are picked up when entries expire.
+ */
+@Component
+public class CardBalanceCache {
+
+    private static final String NAME = "card.balances";
+
+    private final CardRepository cardRepository;
+    private final LedgerService ledgerService;
+    private final Cache<Long, Balance> balances;
+
+    public CardBalanceCache(CardRepository cardRepository,
+                            LedgerService ledgerService,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.balance-cache.size:100000}") long size,
+                            @Value("${app.balance-cache.ttl:30s}") Duration ttl) {
+        this.cardRepository = cardRepository;
+        this.ledgerService = ledgerService;
+        this.balances = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, NAME);
+        Gauge.builder("cache.hit.ratio", balances, cache -> cache.stats().hitRate())
+                .tag("cache", NAME)
+                .register(meterRegistry);
+    }
+
+    public record Balance(Long ownerId, CardStatus cardStatus, BigDecimal moneyAmount) {}
+
+    /**
+     * Empty if the card does not exist.
+     */
+    public Optional<Balance> get(long cardId) {
+        return Optional.ofNullable(balances.get(cardId, this::load));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBalancesChanged(BalancesChangedEvent event) {
+        balances.invalidateAll(event.cardIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        balances.invalidateAll(event.cardIds());
+    }
+
+    private Balance load(long cardId) {
+        CardBalance card = cardRepository.findBalance(cardId).orElse(null);
+        if (card == null) {
+            return null;
+        }
+        BigDecimal moneyAmount = ledgerService.isEnabled()
+                ? ledgerService.balance(cardId).orElse(null)
+                : card.getMoneyAmount();
+        return moneyAmount == null ? null : new Balance(card.getOwnerId(), card.getCardStatus(), moneyAmount);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import java.util.Collection;
+
+/**
+ * Published when the status or existence of cards changes outside of transfers, so that
+ * components caching card state can drop it once the change has committed.
+ */
+public record CardChangedEvent(Collection<Long> cardIds) {
+}
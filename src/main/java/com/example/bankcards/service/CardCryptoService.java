@@ -1,81 +1,107 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.CardCryptoProperties;
+import com.example.bankcards.crypto.AesGcmCipher;
+import com.example.bankcards.crypto.CardCiphertextFormat;
+import com.example.bankcards.crypto.CardNumberBlindIndex;
 import jakarta.annotation.PostConstruct;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.security.SecureRandom;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Map;
 
 @Component
 public class CardCryptoService {
 
     private static final String AES = "AES";
-    private static final String AES_GCM = "AES/GCM/NoPadding";
-    private static final int GCM_TAG_LENGTH = 128;
-    private static final int IV_LENGTH_BYTES = 12;
+    private static final int MAX_KEY_ID = 255;
 
-    @Value("${app.crypto.card-key-base64:}")
-    private String keyBase64;
+    private final CardCryptoProperties properties;
 
-    private SecretKey secretKey;
-    private final SecureRandom secureRandom = new SecureRandom();
+    private final AesGcmCipher[] ciphers = new AesGcmCipher[MAX_KEY_ID + 1];
+    private int currentKeyId;
+    private CardNumberBlindIndex blindIndex;
+
+    public CardCryptoService(CardCryptoProperties properties) {
+        this.properties = properties;
+    }
 
     @PostConstruct
     public void init() {
+        String keyBase64 = properties.cardKeyBase64();
+        SecretKey defaultKey;
         if (keyBase64 == null || keyBase64.isBlank()) {
-            this.secretKey = generateKey();
+            defaultKey = generateKey();
             System.out.println("WARNING: No crypto key provided, generated ephemeral key (not for prod).");
         } else {
-            byte[] keyBytes = Base64.getDecoder().decode(keyBase64);
-            this.secretKey = new SecretKeySpec(keyBytes, AES);
+            defaultKey = new SecretKeySpec(Base64.getDecoder().decode(keyBase64), AES);
+        }
+        ciphers[CardCiphertextFormat.DEFAULT_KEY_ID] = new AesGcmCipher(defaultKey);
+
+        for (Map.Entry<Integer, String> key : properties.cardKeys().entrySet()) {
+            int keyId = key.getKey();
+            if (keyId <= CardCiphertextFormat.DEFAULT_KEY_ID || keyId > MAX_KEY_ID) {
+                throw new IllegalStateException("Card key id must be between 1 and " + MAX_KEY_ID + ": " + keyId);
+            }
+            ciphers[keyId] = new AesGcmCipher(new SecretKeySpec(Base64.getDecoder().decode(key.getValue()), AES));
         }
-    }
 
-    public String encrypt(String plain) {
-        try {
-            byte[] iv = new byte[IV_LENGTH_BYTES];
-            secureRandom.nextBytes(iv);
+        currentKeyId = properties.currentKeyId();
+        if (currentKeyId < 0 || currentKeyId > MAX_KEY_ID || ciphers[currentKeyId] == null) {
+            throw new IllegalStateException("Current card key id " + currentKeyId + " is not configured");
+        }
+
+        // The blind index must survive key rotation, so it never follows the current key
+        String indexKeyBase64 = properties.cardIndexKeyBase64();
+        SecretKey indexKey = indexKeyBase64 == null || indexKeyBase64.isBlank()
+                ? CardNumberBlindIndex.deriveKey(defaultKey)
+                : new SecretKeySpec(Base64.getDecoder().decode(indexKeyBase64), "HmacSHA256");
+        this.blindIndex = new CardNumberBlindIndex(indexKey);
+    }
 
-            Cipher cipher = Cipher.getInstance(AES_GCM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, spec);
+    public int currentKeyId() {
+        return currentKeyId;
+    }
 
-            byte[] ciphertext = cipher.doFinal(plain.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    public byte[] seal(String pan) {
+        return seal(pan.getBytes(StandardCharsets.UTF_8));
+    }
 
-            byte[] combined = new byte[iv.length + ciphertext.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(ciphertext, 0, combined, iv.length, ciphertext.length);
+    public String open(byte[] sealed) {
+        return new String(openBytes(sealed), StandardCharsets.UTF_8);
+    }
 
-            return Base64.getEncoder().encodeToString(combined);
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to encrypt card number", e);
+    /**
+     * Re-encrypts a sealed card number under the current key. Returns the input unchanged when
+     * it already uses the current key.
+     */
+    public byte[] reseal(byte[] sealed) {
+        if (CardCiphertextFormat.keyId(sealed) == currentKeyId) {
+            return sealed;
         }
+        return seal(openBytes(sealed));
     }
 
-    public String decrypt(String base64Combined) {
-        try {
-            byte[] combined = Base64.getDecoder().decode(base64Combined);
-            byte[] iv = new byte[IV_LENGTH_BYTES];
-            System.arraycopy(combined, 0, iv, 0, IV_LENGTH_BYTES);
-            int ctLength = combined.length - IV_LENGTH_BYTES;
-            byte[] ciphertext = new byte[ctLength];
-            System.arraycopy(combined, IV_LENGTH_BYTES, ciphertext, 0, ctLength);
-
-            Cipher cipher = Cipher.getInstance(AES_GCM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
-
-            byte[] plain = cipher.doFinal(ciphertext);
-            return new String(plain, java.nio.charset.StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to decrypt card number", e);
+    public byte[] blindIndex(String pan) {
+        return blindIndex.compute(pan);
+    }
+
+    private byte[] seal(byte[] plain) {
+        byte[] sealed = ciphers[currentKeyId].seal(plain, CardCiphertextFormat.HEADER_LENGTH);
+        CardCiphertextFormat.writeHeader(sealed, currentKeyId);
+        return sealed;
+    }
+
+    private byte[] openBytes(byte[] sealed) {
+        AesGcmCipher cipher = ciphers[CardCiphertextFormat.keyId(sealed)];
+        if (cipher == null) {
+            throw new IllegalStateException("Failed to decrypt card number: unknown key id");
         }
+        return cipher.open(sealed, CardCiphertextFormat.HEADER_LENGTH, sealed.length - CardCiphertextFormat.HEADER_LENGTH);
     }
 
     public SecretKey generateKey() {
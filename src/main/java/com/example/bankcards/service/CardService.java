@@ -2,8 +2,8 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.repository.CardFilter;
 import com.example.bankcards.dto.CardDto;
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.repository.AdminCardFilter;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.data.domain.Page;
@@ -14,9 +14,13 @@ import java.math.BigDecimal;
 import java.util.List;
 
 public interface CardService {
-    Page<Card> getAll(AdminCardFilter filter, Pageable pageable);
+    Page<CardSummaryDto> getAll(AdminCardFilter filter, Pageable pageable);
 
-    Page<Card> getAllMyCards(CardFilter filter, Pageable pageable, User currentUser);
+    Page<CardSummaryDto> getAllMyCards(CardFilter filter, Pageable pageable, Long userId);
+
+    SliceDto<CardSummaryDto> getAllSlice(AdminCardFilter filter, String cursor, int size, boolean withTotal);
+
+    SliceDto<CardSummaryDto> getMyCardsSlice(CardFilter filter, String cursor, int size, Long userId);
 
     CardDto getOne(Long id);
 
@@ -30,9 +34,9 @@ public interface CardService {
 
     void deleteMany(List<Long> ids);
 
-    void createBlockRequest(Long id, User currentUser);
+    void createBlockRequest(Long id, Long userId);
 
     void approveBlockRequest(Long id);
 
-    BigDecimal getBalance(Long cardId, User currentUser);
+    BigDecimal getBalance(Long cardId, Long userId);
 }
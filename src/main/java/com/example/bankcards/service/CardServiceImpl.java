@@ -2,6 +2,8 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.repository.CardFilter;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardBlockRequest;
 import com.example.bankcards.entity.User;
@@ -14,23 +16,30 @@ import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.repository.AdminCardFilter;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSummaryRepository;
+import com.example.bankcards.repository.TableStatisticsRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CursorCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RequiredArgsConstructor
@@ -40,38 +49,72 @@ public class CardServiceImpl implements CardService {
 
     public static final String CARD_STATUS = "cardStatus";
 
+    private static final int MAX_SLICE_SIZE = 100;
+
     private final CardMapper cardMapper;
 
     private final CardRepository cardRepository;
 
+    private final CardSummaryRepository cardSummaryRepository;
+
+    private final TableStatisticsRepository tableStatisticsRepository;
+
     private final UserRepository userRepository;
 
     private final CardBlockRequestRepository requestRepository;
 
+    private final CardBalanceCache cardBalanceCache;
+
+    private final LedgerService ledgerService;
+
     private final ObjectMapper objectMapper;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
-    public Page<Card> getAll(AdminCardFilter filter, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Page<CardSummaryDto> getAll(AdminCardFilter filter, Pageable pageable) {
         Specification<Card> spec = filter.toSpecification();
-        return cardRepository.findAll(spec, pageable);
+        return withLedgerBalances(cardSummaryRepository.findAll(spec, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CardSummaryDto> getAllMyCards(CardFilter filter, Pageable pageable, Long userId) {
+        return withLedgerBalances(cardSummaryRepository.findAll(ownedBy(filter, userId), pageable));
     }
 
     @Override
-    public Page<Card> getAllMyCards(CardFilter filter, Pageable pageable, User currentUser) {
-        Specification<Card> spec = filter.toSpecification()
-                .and((root, query, cb) -> cb.equal(root.get("owner"), currentUser));
-        return cardRepository.findAll(spec, pageable);
+    @Transactional(readOnly = true)
+    public SliceDto<CardSummaryDto> getAllSlice(AdminCardFilter filter, String cursor, int size, boolean withTotal) {
+        List<CardSummaryDto> rows = cardSummaryRepository.findSlice(filter.toSpecification(),
+                CursorCodec.decodeId(cursor), sliceLimit(size));
+        Long total = withTotal && filter.isEmpty() ? tableStatisticsRepository.approximateRowCount("card") : null;
+        return SliceDto.of(withLedgerBalances(rows), size, CardSummaryDto::id, total);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public SliceDto<CardSummaryDto> getMyCardsSlice(CardFilter filter, String cursor, int size, Long userId) {
+        List<CardSummaryDto> rows = cardSummaryRepository.findSlice(ownedBy(filter, userId),
+                CursorCodec.decodeId(cursor), sliceLimit(size));
+        return SliceDto.of(withLedgerBalances(rows), size, CardSummaryDto::id, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public CardDto getOne(Long id) {
         Optional<Card> cardOptional = cardRepository.findById(id);
-        return cardMapper.toCardDto(cardOptional.orElseThrow(() ->
+        return toCardDto(cardOptional.orElseThrow(() ->
                 new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity with id `%s` not found".formatted(id))));
     }
 
     @Override
     public CardDto create(CardDto dto) {
+        if (cardRepository.existsByPan(dto.cardNumber())) {
+            throw new BadRequestException("Card with this number already exists");
+        }
+
         User owner = userRepository.findByPhoneNumber(dto.ownerPhoneNumber()).orElseThrow(() ->
                 new UserNotFoundException("User with phone number " + dto.ownerPhoneNumber() + " not found"));
 
@@ -91,7 +134,8 @@ public class CardServiceImpl implements CardService {
         }
 
         Card resultCard = cardRepository.save(card);
-        return cardMapper.toCardDto(resultCard);
+        eventPublisher.publishEvent(new CardChangedEvent(List.of(id)));
+        return toCardDto(resultCard);
     }
 
     @Override
@@ -105,34 +149,88 @@ public class CardServiceImpl implements CardService {
         }
 
         List<Card> resultCards = cardRepository.saveAll(cards);
-        return resultCards.stream()
+        List<Long> resultIds = resultCards.stream()
                 .map(Card::getId)
                 .toList();
+        eventPublisher.publishEvent(new CardChangedEvent(resultIds));
+        return resultIds;
     }
 
     @Override
     public CardDto delete(Long id) {
         Card card = cardRepository.findById(id).orElse(null);
+        CardDto dto = toCardDto(card);
         if (card != null) {
             cardRepository.delete(card);
+            eventPublisher.publishEvent(new CardChangedEvent(List.of(id)));
         }
-        return cardMapper.toCardDto(card);
+        return dto;
     }
 
     @Override
     public void deleteMany(List<Long> ids) {
         cardRepository.deleteAllById(ids);
+        eventPublisher.publishEvent(new CardChangedEvent(ids));
     }
 
-    @Override
-    public void createBlockRequest(Long cardId, User currentUser) {
+    /**
+     * With the ledger enabled {@code money_amount} is only the last snapshot, so the balance is
+     * read as snapshot plus entries since it.
+     */
+    private CardDto toCardDto(Card card) {
+        CardDto dto = cardMapper.toCardDto(card);
+        if (dto == null || !ledgerService.isEnabled()) {
+            return dto;
+        }
+        BigDecimal balance = ledgerService.balance(card.getId()).orElse(dto.moneyAmount());
+        return new CardDto(dto.cardNumber(), dto.expiry(), balance, dto.cardStatus(), dto.ownerPhoneNumber());
+    }
+
+    private Page<CardSummaryDto> withLedgerBalances(Page<CardSummaryDto> page) {
+        if (!ledgerService.isEnabled() || page.isEmpty()) {
+            return page;
+        }
+        return new PageImpl<>(withLedgerBalances(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    /**
+     * Replaces the snapshots of a listing with ledger balances, in one query for all its cards.
+     */
+    private List<CardSummaryDto> withLedgerBalances(List<CardSummaryDto> cards) {
+        if (!ledgerService.isEnabled() || cards.isEmpty()) {
+            return cards;
+        }
+        Map<Long, BigDecimal> balances = ledgerService.balances(cards.stream().map(CardSummaryDto::id).toList());
+        return cards.stream()
+                .map(card -> card.withMoneyAmount(balances.getOrDefault(card.id(), card.moneyAmount())))
+                .toList();
+    }
 
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new RuntimeException("Card not found"));
+    private static Specification<Card> ownedBy(CardFilter filter, Long userId) {
+        return filter.toSpecification()
+                .and((root, query, cb) -> cb.equal(root.get("owner").get("id"), userId));
+    }
+
+    /**
+     * One row more than the slice, telling whether another one follows.
+     */
+    private static int sliceLimit(int size) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new BadRequestException("Slice size must be between 1 and " + MAX_SLICE_SIZE);
+        }
+        return size + 1;
+    }
 
-        if (!card.getOwner().getId().equals(currentUser.getId())) {
+    @Override
+    public void createBlockRequest(Long cardId, Long userId) {
+
+        if (!cardRepository.existsByIdAndOwner_Id(cardId, userId)) {
+            if (!cardRepository.existsById(cardId)) {
+                throw new EntityNotFoundException("Card not found");
+            }
             throw new ForbiddenOperationException("This card doesn't belong to you");
         }
+        Card card = cardRepository.getReferenceById(cardId);
 
         if (requestRepository.existsByCardAndStatus(card, BlockRequestStatus.PENDING)) {
             throw new BadRequestException("Request already submitted");
@@ -140,7 +238,7 @@ public class CardServiceImpl implements CardService {
 
         CardBlockRequest request = new CardBlockRequest();
         request.setCard(card);
-        request.setUser(currentUser);
+        request.setUser(userRepository.getReferenceById(userId));
 
         requestRepository.save(request);
     }
@@ -164,15 +262,19 @@ public class CardServiceImpl implements CardService {
         patch(request.getCard().getId(), node);
     }
 
+    /**
+     * Runs without a transaction of its own, so a cached balance is served without taking a connection.
+     */
     @Override
-    public BigDecimal getBalance(Long cardId, User currentUser) {
-        Card card = cardRepository.findByIdAndOwner(cardId, currentUser)
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BigDecimal getBalance(Long cardId, Long userId) {
+        CardBalanceCache.Balance card = cardBalanceCache.get(cardId)
+                .filter(balance -> userId.equals(balance.ownerId()))
                 .orElseThrow(() -> new EntityNotFoundException("Card not found"));
 
-        if (card.getCardStatus() == CardStatus.BLOCKED) {
+        if (card.cardStatus() == CardStatus.BLOCKED) {
             throw new ForbiddenOperationException("Card is blocked");
         }
-
-        return card.getMoneyAmount();
+        return card.moneyAmount();
     }
 }
@@ -0,0 +1,59 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardTransferStatisticsDto;
+import com.example.bankcards.dto.TransactionHistoryPageDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * {@link TransactionService} used when {@code app.engine.enabled} is set: single transfers go
+ * through the {@link TransferEngine} and everything else is served by {@link TransactionServiceImpl}.
+ * It is deliberately not transactional, so a request waiting for its group commit holds no
+ * database connection.
+ */
+@Primary
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.engine.enabled", havingValue = "true")
+public class EngineTransactionService implements TransactionService {
+
+    private final TransactionServiceImpl transactionService;
+
+    private final TransferEngine transferEngine;
+
+    @Override
+    public void transferBetweenCards(Long fromId, Long toId, BigDecimal amount, Long userId) {
+        transferEngine.transfer(fromId, toId, amount, userId);
+    }
+
+    @Override
+    public BatchTransferResponse transferBatch(List<TransferRequest> requests, BatchTransferMode mode, Long userId) {
+        return transactionService.transferBatch(requests, mode, userId);
+    }
+
+    @Override
+    public TransactionHistoryPageDto getCardHistory(Long cardId, TransactionHistoryFilter filter, String cursor,
+                                                    int size, Long userId) {
+        return transactionService.getCardHistory(cardId, filter, cursor, size, userId);
+    }
+
+    @Override
+    public TransactionHistoryPageDto getUserHistory(TransactionHistoryFilter filter, String cursor, int size, Long userId) {
+        return transactionService.getUserHistory(filter, cursor, size, userId);
+    }
+
+    @Override
+    public CardTransferStatisticsDto getCardStatistics(Long cardId, LocalDate day, Long userId) {
+        return transactionService.getCardStatistics(cardId, day, userId);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.LedgerRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Folds ledger entries into card snapshots so that balance reads stay short.
+ * <p>
+ * Each card is compacted in its own transaction under the card's exclusive ledger lock, which
+ * waits for in-flight transfers on that card and keeps the snapshot consistent with the entry
+ * ids it covers. Entries are never deleted here. With the ledger switched off every card with
+ * at least one pending entry is compacted, which drains the ledger after a rollback.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LedgerCompactionJob {
+
+    private final LedgerRepository ledgerRepository;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.ledger.compaction.min-entries:64}")
+    private int minEntries;
+
+    @Value("${app.ledger.compaction.cards-per-run:500}")
+    private int cardsPerRun;
+
+    /**
+     * With the ledger switched off, balances are read from the card snapshots alone, so entries
+     * left by an earlier run with the ledger on are folded in before this instance serves any
+     * request. A card that cannot be compacted fails the startup.
+     */
+    @PostConstruct
+    public void drainIfDisabled() {
+        if (ledgerService.isEnabled()) {
+            return;
+        }
+        int compacted = 0;
+        List<Long> cardIds;
+        while (!(cardIds = ledgerRepository.findCardsToCompact(1, cardsPerRun)).isEmpty()) {
+            for (Long cardId : cardIds) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(_ -> ledgerRepository.compact(cardId)))) {
+                    compacted++;
+                }
+            }
+        }
+        if (compacted > 0) {
+            log.info("Folded pending ledger entries of {} cards into their balances", compacted);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ledger.compaction.interval:PT10S}")
+    public void compact() {
+        List<Long> cardIds = ledgerRepository.findCardsToCompact(ledgerService.isEnabled() ? minEntries : 1, cardsPerRun);
+        int compacted = 0;
+        for (Long cardId : cardIds) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(_ -> ledgerRepository.compact(cardId)))) {
+                    compacted++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot compact ledger of card {}: {}", cardId, e.getMessage());
+            }
+        }
+        if (compacted > 0) {
+            log.debug("Compacted ledger of {} cards", compacted);
+        }
+    }
+}
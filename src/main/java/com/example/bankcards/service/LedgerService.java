@@ -0,0 +1,26 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+
+public interface LedgerService {
+    boolean isEnabled();
+
+    Map<Long, LockedCard> lockForTransfer(long fromId, long toId);
+
+    Map<Long, LockedCard> lockAll(SortedSet<Long> cardIds);
+
+    void record(List<TransferRow> transfers, List<Long> transactionIds, LocalDateTime createdAt);
+
+    Optional<BigDecimal> balance(long cardId);
+
+    Map<Long, BigDecimal> balances(Collection<Long> cardIds);
+}
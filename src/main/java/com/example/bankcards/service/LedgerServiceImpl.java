@@ -0,0 +1,98 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.LedgerRepository;
+import com.example.bankcards.repository.LedgerRepository.LedgerEntryRow;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Double-entry ledger mode for transfers. Every transfer appends a debit and a credit entry
+ * instead of rewriting both card rows, so a hot destination card no longer serializes all
+ * transfers into it on its row lock: credits only take a shared lock on the card.
+ * <p>
+ * All methods except {@link #balance(long)} and {@link #balances} must run inside the caller's transaction, since
+ * the advisory locks they take are released on commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class LedgerServiceImpl implements LedgerService {
+
+    private final LedgerRepository ledgerRepository;
+
+    @Value("${app.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Locks the source card exclusively, since its balance is checked before the debit, and the
+     * target card shared, since a credit can never make a balance check fail. Locks are taken in
+     * id order to keep opposite transfers from deadlocking.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, LockedCard> lockForTransfer(long fromId, long toId) {
+        if (fromId <= toId) {
+            ledgerRepository.lock(fromId, true);
+            ledgerRepository.lock(toId, fromId == toId);
+        } else {
+            ledgerRepository.lock(toId, false);
+            ledgerRepository.lock(fromId, true);
+        }
+        return ledgerRepository.findCards(List.of(fromId, toId));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, LockedCard> lockAll(SortedSet<Long> cardIds) {
+        ledgerRepository.lockAll(cardIds);
+        return ledgerRepository.findCards(cardIds);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<TransferRow> transfers, List<Long> transactionIds, LocalDateTime createdAt) {
+        List<LedgerEntryRow> entries = new ArrayList<>(transfers.size() * 2);
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRow transfer = transfers.get(i);
+            long transactionId = transactionIds.get(i);
+            entries.add(new LedgerEntryRow(transfer.fromCardId(), transactionId, transfer.amount().negate()));
+            entries.add(new LedgerEntryRow(transfer.toCardId(), transactionId, transfer.amount()));
+        }
+        ledgerRepository.append(entries, createdAt);
+    }
+
+    /**
+     * Snapshot plus the entries since it: one primary key lookup and a short range scan of
+     * {@code (card_id, id)}, bounded by how often the compaction job runs. Read on the primary,
+     * since {@link CardBalanceCache} reloads a card right after a transfer to it has committed.
+     */
+    @Override
+    @Transactional
+    public Optional<BigDecimal> balance(long cardId) {
+        return ledgerRepository.balance(cardId);
+    }
+
+    /**
+     * Balances of several cards in one query, for listings.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, BigDecimal> balances(Collection<Long> cardIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        ledgerRepository.findCards(cardIds).forEach((id, card) -> balances.put(id, card.moneyAmount()));
+        return balances;
+    }
+}
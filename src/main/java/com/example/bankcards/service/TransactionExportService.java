@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ExportFormat;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+public interface TransactionExportService {
+    StreamingResponseBody export(LocalDateTime from, LocalDateTime to, ExportFormat format, boolean gzip);
+}
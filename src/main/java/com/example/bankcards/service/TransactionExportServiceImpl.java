@@ -0,0 +1,163 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.TransactionExportRow;
+import com.example.bankcards.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams transactions out of the database without materializing them.
+ * <p>
+ * Rows come from a forward-only cursor of a read-only {@link StatelessSession}, so nothing is
+ * kept in a persistence context and at most {@code fetch-size} rows are held at a time. The
+ * response is written through a bounded buffer with blocking writes: a slow client stalls the
+ * cursor instead of letting rows pile up in memory. Each export pins one connection for its
+ * whole duration, hence the cap on concurrent exports. The permit is taken before the response
+ * starts, so an over-limit export can still be refused with 429, and is given back when the
+ * async request completes even if the body never ran.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionExportServiceImpl implements TransactionExportService {
+
+    private static final String EXPORT_QUERY = """
+            select new com.example.bankcards.dto.TransactionExportRow(t.id, t.fromCard.id, t.toCard.id, t.amount, t.createdAt)
+            from Transaction t
+            where t.createdAt >= :from and t.createdAt < :to
+            order by t.createdAt, t.id""";
+
+    private static final String CSV_HEADER = "id,from_card_id,to_card_id,amount,created_at\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    public StreamingResponseBody export(LocalDateTime from, LocalDateTime to, ExportFormat format, boolean gzip) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("Export range start must be before its end");
+        }
+        if (!permits.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many exports in progress");
+        }
+        Runnable release = releaseOnce();
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            // the body never runs if the client goes away or the request times out before it starts
+            WebAsyncUtils.getAsyncManager(attributes.getRequest()).registerCallableInterceptor(release,
+                    new CallableProcessingInterceptor() {
+                        @Override
+                        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                            release.run();
+                        }
+                    });
+        }
+        return out -> {
+            try {
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, BUFFER_SIZE);
+                    write(from, to, format, compressed);
+                    compressed.finish();
+                } else {
+                    write(from, to, format, out);
+                }
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
+
+    private void write(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ObjectWriter jsonWriter = objectMapper.writerFor(TransactionExportRow.class);
+
+        try (StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            session.doWork(connection -> connection.setReadOnly(true));
+            // Postgres only honours the fetch size inside a transaction
+            org.hibernate.Transaction transaction = session.beginTransaction();
+            try (ScrollableResults<TransactionExportRow> rows = session.createQuery(EXPORT_QUERY, TransactionExportRow.class)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                if (format == ExportFormat.CSV) {
+                    writer.write(CSV_HEADER);
+                }
+                while (rows.next()) {
+                    TransactionExportRow row = rows.get();
+                    if (format == ExportFormat.CSV) {
+                        writeCsv(writer, row);
+                    } else {
+                        writer.write(jsonWriter.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+                }
+                writer.flush();
+            } finally {
+                transaction.rollback();
+            }
+        }
+    }
+
+    private static void writeCsv(Writer writer, TransactionExportRow row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writer.write(String.valueOf(row.fromCardId()));
+        writer.write(',');
+        writer.write(String.valueOf(row.toCardId()));
+        writer.write(',');
+        writer.write(row.amount().toPlainString());
+        writer.write(',');
+        writer.write(row.createdAt().toString());
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code transactions} ahead of the clock.
+ * <p>
+ * There is no default partition, so a transfer dated in a month without a partition fails:
+ * partitions are created {@code months-ahead} months in advance, on startup and daily.
+ * Months that fell out of the retention period are detached by the archiver once they are
+ * archived; a detached partition stays in the database as a plain table named
+ * {@code transactions_pYYYY_MM} until it is dropped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionPartitionManager {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transactions_p(\\d{4})_(\\d{2})");
+
+    private static final String ATTACHED_PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'transactions'::regclass""";
+
+    private static final String CREATE_PARTITION =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF transactions FOR VALUES FROM ('%s') TO ('%s')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.partitions.transactions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.partitions.transactions.lock-timeout:5s}")
+    private Duration lockTimeout;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.partitions.transactions.cron:0 0 3 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        createPartitions(current, current.plusMonths(monthsAhead));
+    }
+
+    /**
+     * Creates the missing partitions for every month from {@code from} to {@code to} inclusive.
+     * Creating a partition locks the parent table, so it gives up after {@code lock-timeout}
+     * rather than queue every transfer behind a long-running query; the next run retries.
+     */
+    public void createPartitions(YearMonth from, YearMonth to) {
+        List<YearMonth> attached = attachedPartitions();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (attached.contains(month)) {
+                continue;
+            }
+            String sql = CREATE_PARTITION.formatted(partitionName(month), month.atDay(1), month.plusMonths(1).atDay(1));
+            try {
+                transactionTemplate.executeWithoutResult(_ -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeout.toMillis());
+                    jdbcTemplate.execute(sql);
+                });
+                log.info("Created transactions partition {}", partitionName(month));
+            } catch (RuntimeException e) {
+                log.warn("Cannot create transactions partition {}: {}", partitionName(month), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Detaches the partition of {@code month}. Runs outside a transaction because
+     * {@code DETACH PARTITION ... CONCURRENTLY} does not block transfers but cannot run inside one.
+     */
+    public void detachPartition(YearMonth month) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + name + " CONCURRENTLY");
+        log.info("Detached transactions partition {}", name);
+    }
+
+    public List<YearMonth> attachedPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(ATTACHED_PARTITIONS, String.class)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+            }
+        }
+        months.sort(null);
+        return months;
+    }
+
+    /**
+     * First month of the unbroken run of attached partitions that ends with the newest one, i.e.
+     * the oldest month whose transfers are all still in {@code transactions}.
+     */
+    public Optional<YearMonth> oldestOnlineMonth() {
+        List<YearMonth> attached = attachedPartitions();
+        if (attached.isEmpty()) {
+            return Optional.empty();
+        }
+        int first = attached.size() - 1;
+        while (first > 0 && attached.get(first - 1).equals(attached.get(first).minusMonths(1))) {
+            first--;
+        }
+        return Optional.of(attached.get(first));
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "transactions_p%04d_%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+}
@@ -1,7 +1,26 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardTransferStatisticsDto;
+import com.example.bankcards.dto.TransactionHistoryPageDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 
 public interface TransactionService {
-    void transferBetweenCards(Long fromId, Long toId, BigDecimal amount);
+    int MAX_BATCH_SIZE = 10_000;
+
+    void transferBetweenCards(Long fromId, Long toId, BigDecimal amount, Long userId);
+
+    BatchTransferResponse transferBatch(List<TransferRequest> requests, BatchTransferMode mode, Long userId);
+
+    TransactionHistoryPageDto getCardHistory(Long cardId, TransactionHistoryFilter filter, String cursor, int size, Long userId);
+
+    TransactionHistoryPageDto getUserHistory(TransactionHistoryFilter filter, String cursor, int size, Long userId);
+
+    CardTransferStatisticsDto getCardStatistics(Long cardId, LocalDate day, Long userId);
 }
@@ -1,57 +1,379 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.archive.TransactionArchive;
+import com.example.bankcards.dto.BatchTransferItemResult;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardTransferStatisticsDto;
+import com.example.bankcards.dto.TransactionExportRow;
+import com.example.bankcards.dto.TransactionHistoryItemDto;
+import com.example.bankcards.dto.TransactionHistoryPageDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferTotalsDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.entity.enums.CardStatus;
-import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.exception.TransferConflictException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.repository.TransactionHistoryRepository;
+import com.example.bankcards.repository.TransferBatchRepository;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+import com.example.bankcards.repository.TransferRollupRepository;
+import com.example.bankcards.util.CardMaskUtil;
+import com.example.bankcards.util.CursorCodec;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final CardRepository cardRepository;
 
     private final TransactionRepository transactionRepository;
 
+    private final TransferBatchRepository transferBatchRepository;
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+
+    private final TransferRollupRepository transferRollupRepository;
+
+    private final LedgerService ledgerService;
+
+    private final TransactionArchive transactionArchive;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Moves money with two conditional updates instead of read-modify-write, so concurrent
+     * transfers cannot lose updates or overdraw a card. Rows are locked in id order to keep
+     * opposite transfers between the same cards from deadlocking. With the ledger enabled the
+     * card rows are not written at all and the transfer is recorded as two ledger entries.
+     * A source card of another user is reported as not found.
+     */
     @Override
-    public void transferBetweenCards(Long fromId, Long toId, BigDecimal amount) {
+    public void transferBetweenCards(Long fromId, Long toId, BigDecimal amount, Long userId) {
+        if (ledgerService.isEnabled()) {
+            transferThroughLedger(fromId, toId, amount, userId);
+            return;
+        }
+        if (fromId <= toId) {
+            debit(fromId, toId, amount, userId);
+            credit(toId, amount);
+        } else {
+            credit(toId, amount);
+            debit(fromId, toId, amount, userId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Transaction transaction = new Transaction(cardRepository.getReferenceById(fromId),
+                cardRepository.getReferenceById(toId), amount, now);
+        transactionRepository.save(transaction);
+        transferRollupRepository.record(List.of(new TransferRow(fromId, toId, amount)), now);
+        eventPublisher.publishEvent(new BalancesChangedEvent(List.of(fromId, toId)));
+    }
+
+    private void transferThroughLedger(Long fromId, Long toId, BigDecimal amount, Long userId) {
+        Map<Long, LockedCard> cards = ledgerService.lockForTransfer(fromId, toId);
+        TransferRejection rejection = apply(new TransferRequest(fromId, toId, amount), userId, cards, new HashMap<>());
+        if (rejection != null) {
+            throw rejection.toException();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Transaction transaction = transactionRepository.save(new Transaction(cardRepository.getReferenceById(fromId),
+                cardRepository.getReferenceById(toId), amount, now));
+        List<TransferRow> transfers = List.of(new TransferRow(fromId, toId, amount));
+        ledgerService.record(transfers, List.of(transaction.getId()), now);
+        transferRollupRepository.record(transfers, now);
+        eventPublisher.publishEvent(new BalancesChangedEvent(List.of(fromId, toId)));
+    }
+
+    private void debit(Long fromId, Long toId, BigDecimal amount, Long userId) {
+        if (cardRepository.debitIfAllowed(fromId, toId, amount, userId) == 0) {
+            throw debitRejection(fromId, toId, amount, userId);
+        }
+    }
 
+    private void credit(Long toId, BigDecimal amount) {
+        if (cardRepository.credit(toId, amount) == 0) {
+            throw TransferRejection.CARD_NOT_FOUND.toException();
+        }
+    }
+
+    /**
+     * Only runs after the debit was rejected, to tell the caller why.
+     */
+    private RuntimeException debitRejection(Long fromId, Long toId, BigDecimal amount, Long userId) {
         Card from = cardRepository.findById(fromId)
-                .orElseThrow(() -> new EntityNotFoundException("Card not found"));
+                .filter(card -> card.getOwner() != null && userId.equals(card.getOwner().getId()))
+                .orElseThrow(TransferRejection.CARD_NOT_FOUND::toException);
 
         Card to = cardRepository.findById(toId)
-                .orElseThrow(() -> new EntityNotFoundException("Card not found"));
+                .orElseThrow(TransferRejection.CARD_NOT_FOUND::toException);
 
-        if (!from.getOwner().getId().equals(to.getOwner().getId())) {
-            throw new ForbiddenOperationException("Cards belong to different users");
+        if (to.getOwner() == null || !userId.equals(to.getOwner().getId())) {
+            return TransferRejection.DIFFERENT_OWNERS.toException();
         }
 
         if (from.getCardStatus() == CardStatus.BLOCKED) {
-            throw new ForbiddenOperationException("Source card is blocked");
+            return TransferRejection.SOURCE_BLOCKED.toException();
+        }
+
+        if (from.getCardStatus() != CardStatus.ACTIVE) {
+            return TransferRejection.SOURCE_NOT_ACTIVE.toException();
         }
 
         if (from.getMoneyAmount().compareTo(amount) < 0) {
-            throw new ForbiddenOperationException("Not enough funds");
+            return TransferRejection.NOT_ENOUGH_FUNDS.toException();
+        }
+
+        return new TransferConflictException("Card balance changed concurrently, retry the transfer");
+    }
+
+    /**
+     * Validates the whole batch, locks every card it touches once, applies the transfers in
+     * request order against in-memory balances and then writes the outcome with JDBC batches.
+     * Transfers out of cards the caller does not own are rejected as not found.
+     */
+    @Override
+    public BatchTransferResponse transferBatch(List<TransferRequest> requests, BatchTransferMode mode, Long userId) {
+        BatchOutcome outcome = execute(requests, Collections.nCopies(requests.size(), userId), mode);
+        List<BatchTransferItemResult> results = new ArrayList<>(requests.size());
+        int failed = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            TransferRejection rejection = outcome.rejections()[i];
+            if (rejection != null) {
+                results.add(BatchTransferItemResult.rejected(i, rejection.message()));
+                failed++;
+            } else {
+                results.add(outcome.applied() ? BatchTransferItemResult.applied(i) : BatchTransferItemResult.notApplied(i));
+            }
         }
+        return new BatchTransferResponse(mode, outcome.applied(), outcome.applied() ? outcome.transfers() : 0, failed, results);
+    }
+
+    /**
+     * Best-effort batch that mixes callers: {@code userIds.get(i)} asked for {@code requests.get(i)}.
+     * Used by the {@link TransferEngine} to group-commit the transfers of many users at once.
+     * Returns, for each transfer, null if it was applied or why it was rejected.
+     */
+    public List<TransferRejection> transferAll(List<TransferRequest> requests, List<Long> userIds) {
+        return Arrays.asList(execute(requests, userIds, BatchTransferMode.BEST_EFFORT).rejections());
+    }
 
-        from.setMoneyAmount(from.getMoneyAmount().subtract(amount));
+    private BatchOutcome execute(List<TransferRequest> requests, List<Long> userIds, BatchTransferMode mode) {
+        if (requests.isEmpty()) {
+            throw new BadRequestException("Transfer batch is empty");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Transfer batch cannot contain more than " + MAX_BATCH_SIZE + " transfers");
+        }
 
-        to.setMoneyAmount(to.getMoneyAmount().add(amount));
+        TransferRejection[] rejections = new TransferRejection[requests.size()];
+        SortedSet<Long> cardIds = new TreeSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransferRequest request = requests.get(i);
+            rejections[i] = request == null ? TransferRejection.invalid("Transfer cannot be null") : violations(request);
+            if (rejections[i] == null) {
+                cardIds.add(request.fromCardId());
+                cardIds.add(request.toCardId());
+            }
+        }
 
-        cardRepository.save(from);
-        cardRepository.save(to);
+        Map<Long, LockedCard> cards = cardIds.isEmpty() ? Map.of() : lockCards(cardIds);
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        List<TransferRow> transfers = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (rejections[i] == null) {
+                rejections[i] = apply(requests.get(i), userIds.get(i), cards, balances);
+            }
+            if (rejections[i] == null) {
+                TransferRequest request = requests.get(i);
+                transfers.add(new TransferRow(request.fromCardId(), request.toCardId(), request.amount()));
+            }
+        }
 
-        Transaction transaction = new Transaction(from, to, amount, LocalDateTime.now());
-        transactionRepository.save(transaction);
+        boolean applied = mode == BatchTransferMode.BEST_EFFORT || transfers.size() == requests.size();
+        if (applied && !transfers.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            if (ledgerService.isEnabled()) {
+                ledgerService.record(transfers, transferBatchRepository.insertTransactions(transfers, now), now);
+            } else {
+                transferBatchRepository.updateBalances(balances);
+                transferBatchRepository.insertTransactions(transfers, now);
+            }
+            transferRollupRepository.record(transfers, now);
+            eventPublisher.publishEvent(new BalancesChangedEvent(transfers.stream()
+                    .flatMap(transfer -> Stream.of(transfer.fromCardId(), transfer.toCardId()))
+                    .collect(Collectors.toSet())));
+        }
+        return new BatchOutcome(rejections, applied, transfers.size());
+    }
+
+    private Map<Long, LockedCard> lockCards(SortedSet<Long> cardIds) {
+        return ledgerService.isEnabled() ? ledgerService.lockAll(cardIds) : transferBatchRepository.lockCards(cardIds);
+    }
+
+    private TransferRejection violations(TransferRequest request) {
+        Set<ConstraintViolation<TransferRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return TransferRejection.invalid(violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; ")));
+    }
+
+    /**
+     * Applies one transfer of {@code userId} to {@code balances} and returns null, or returns why
+     * it was rejected and leaves {@code balances} untouched.
+     */
+    private TransferRejection apply(TransferRequest request, Long userId, Map<Long, LockedCard> cards,
+                                    Map<Long, BigDecimal> balances) {
+        LockedCard from = cards.get(request.fromCardId());
+        LockedCard to = cards.get(request.toCardId());
+        if (from == null || to == null || !userId.equals(from.userId())) {
+            return TransferRejection.CARD_NOT_FOUND;
+        }
+        if (!from.userId().equals(to.userId())) {
+            return TransferRejection.DIFFERENT_OWNERS;
+        }
+        if (from.status() == CardStatus.BLOCKED) {
+            return TransferRejection.SOURCE_BLOCKED;
+        }
+        if (from.status() != CardStatus.ACTIVE) {
+            return TransferRejection.SOURCE_NOT_ACTIVE;
+        }
+
+        BigDecimal fromBalance = balances.getOrDefault(from.id(), from.moneyAmount());
+        if (fromBalance.compareTo(request.amount()) < 0) {
+            return TransferRejection.NOT_ENOUGH_FUNDS;
+        }
+        balances.put(from.id(), fromBalance.subtract(request.amount()));
+        balances.put(to.id(), balances.getOrDefault(to.id(), to.moneyAmount()).add(request.amount()));
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionHistoryPageDto getCardHistory(Long cardId, TransactionHistoryFilter filter, String cursor,
+                                                    int size, Long userId) {
+        if (!cardRepository.existsByIdAndOwner_Id(cardId, userId)) {
+            throw new EntityNotFoundException("Card not found");
+        }
+        int limit = historyPageSize(size, filter);
+        CursorCodec.Position after = CursorCodec.decode(cursor);
+        List<TransactionHistoryItemDto> rows = transactionHistoryRepository.findCardHistory(cardId, filter, after, limit + 1);
+        return historyPage(withArchived(rows, () -> List.of(cardId), filter, after, limit), limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionHistoryPageDto getUserHistory(TransactionHistoryFilter filter, String cursor, int size, Long userId) {
+        int limit = historyPageSize(size, filter);
+        CursorCodec.Position after = CursorCodec.decode(cursor);
+        List<TransactionHistoryItemDto> rows = transactionHistoryRepository.findUserHistory(userId, filter, after, limit + 1);
+        return historyPage(withArchived(rows, () -> transactionHistoryRepository.findCardIds(userId), filter, after, limit), limit);
+    }
+
+    /**
+     * Served from the rollups: two primary key lookups, independent of the card's history size.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CardTransferStatisticsDto getCardStatistics(Long cardId, LocalDate day, Long userId) {
+        if (!cardRepository.existsByIdAndOwner_Id(cardId, userId)) {
+            throw new EntityNotFoundException("Card not found");
+        }
+        TransferTotalsDto daily = transferRollupRepository.findDaily(cardId, day)
+                .orElseGet(() -> TransferTotalsDto.empty(day));
+        TransferTotalsDto monthly = transferRollupRepository.findMonthly(cardId, day)
+                .orElseGet(() -> TransferTotalsDto.empty(day.withDayOfMonth(1)));
+        return new CardTransferStatisticsDto(cardId, daily, monthly);
+    }
+
+    private static int historyPageSize(int size, TransactionHistoryFilter filter) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new BadRequestException("History range start must be before its end");
+        }
+        if (filter.minAmount() != null && filter.maxAmount() != null && filter.minAmount().compareTo(filter.maxAmount()) > 0) {
+            throw new BadRequestException("Minimum amount cannot exceed maximum amount");
+        }
+        return size;
+    }
+
+    /**
+     * Tops up a short page from the archive. Archived months are older than every partition
+     * still in Postgres, so the archive only has to continue after the last online row, and a
+     * month leaves Postgres only after its segment is loaded, so no month is missing from both.
+     */
+    private List<TransactionHistoryItemDto> withArchived(List<TransactionHistoryItemDto> online, Supplier<List<Long>> cardIds,
+                                                         TransactionHistoryFilter filter, CursorCodec.Position after, int limit) {
+        if (online.size() > limit || transactionArchive.isEmpty()) {
+            return online;
+        }
+        CursorCodec.Position archiveAfter = online.isEmpty()
+                ? after
+                : new CursorCodec.Position(online.getLast().createdAt(), online.getLast().id());
+        List<TransactionExportRow> archived = transactionArchive.findHistory(cardIds.get(), filter, archiveAfter,
+                limit + 1 - online.size());
+        if (archived.isEmpty()) {
+            return online;
+        }
+
+        Set<Long> archivedCardIds = new HashSet<>();
+        archived.forEach(row -> {
+            archivedCardIds.add(row.fromCardId());
+            archivedCardIds.add(row.toCardId());
+        });
+        Map<Long, String> last4 = transactionHistoryRepository.findLast4(archivedCardIds);
+        List<TransactionHistoryItemDto> rows = new ArrayList<>(online);
+        for (TransactionExportRow row : archived) {
+            rows.add(new TransactionHistoryItemDto(row.id(), row.fromCardId(), CardMaskUtil.maskLast4(last4.get(row.fromCardId())),
+                    row.toCardId(), CardMaskUtil.maskLast4(last4.get(row.toCardId())), row.amount(), row.createdAt()));
+        }
+        return rows;
+    }
+
+    /**
+     * Rows are fetched with one extra row so the presence of a next page is known without a count.
+     */
+    private static TransactionHistoryPageDto historyPage(List<TransactionHistoryItemDto> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new TransactionHistoryPageDto(rows, null);
+        }
+        List<TransactionHistoryItemDto> page = rows.subList(0, limit);
+        TransactionHistoryItemDto last = page.getLast();
+        return new TransactionHistoryPageDto(List.copyOf(page), CursorCodec.encode(last.createdAt(), last.id()));
+    }
+
+    private record BatchOutcome(TransferRejection[] rejections, boolean applied, int transfers) {
     }
 }
@@ -0,0 +1,130 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.ServiceUnavailableException;
+import com.example.bankcards.repository.LedgerRepository;
+import com.example.bankcards.repository.TransferBatchRepository;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * In-memory transfer engine behind {@link EngineTransactionService}.
+ * <p>
+ * Cards are spread by id over single-threaded shards. The shard owning the source card checks
+ * a transfer and reserves its amount against an in-memory balance without taking any lock, so
+ * transfers out of a hot card no longer queue on its row lock and most rejections never reach
+ * the database. Accepted transfers are group-committed by the shard's writer through
+ * {@link TransactionServiceImpl#transferAll}, which checks them again under row locks, and
+ * the caller is answered only after its batch has committed.
+ * <p>
+ * Cached balances may lag transfers made outside the engine, such as batch transfers: anything
+ * accepted wrongly is rejected by the commit, and a card is reloaded before a transfer out of it
+ * is refused for lack of funds.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.engine.enabled", havingValue = "true")
+public class TransferEngine {
+
+    private final TransactionServiceImpl transactionService;
+    private final TransferBatchRepository transferBatchRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerService ledgerService;
+
+    @Value("${app.engine.shards:0}")
+    private int shardCount;
+
+    @Value("${app.engine.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${app.engine.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.engine.cached-cards-per-shard:100000}")
+    private int cachedCards;
+
+    @Value("${app.engine.commit-timeout:5s}")
+    private Duration commitTimeout;
+
+    private TransferShard[] shards;
+
+    @PostConstruct
+    public void start() {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new TransferShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new TransferShard(i, this, queueCapacity, maxBatch, cachedCards);
+        }
+        for (TransferShard shard : shards) {
+            shard.start();
+        }
+        log.info("Transfer engine started with {} shards", count);
+    }
+
+    /**
+     * Returns once the transfer is durable, or throws the same exceptions as
+     * {@link TransactionServiceImpl#transferBetweenCards}.
+     */
+    public void transfer(long fromId, long toId, BigDecimal amount, long userId) {
+        CompletableFuture<Void> done = shardOf(fromId).submit(fromId, toId, amount, userId);
+        try {
+            done.get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Transfer was not confirmed in time, check the card history before retrying");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Transfer was interrupted, check the card history before retrying");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        for (TransferShard shard : shards) {
+            event.cardIds().forEach(shard::changed);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (TransferShard shard : shards) {
+            shard.stop(commitTimeout);
+        }
+    }
+
+    TransferShard shardOf(long cardId) {
+        return shards[(int) Math.floorMod(cardId, (long) shards.length)];
+    }
+
+    Optional<LockedCard> loadCard(long cardId) {
+        return ledgerService.isEnabled() ? ledgerRepository.findCard(cardId) : transferBatchRepository.findCard(cardId);
+    }
+
+    /**
+     * Returns, for each transfer, null if it was applied or why it was rejected.
+     */
+    List<TransferRejection> commit(List<TransferRequest> transfers, List<Long> userIds) {
+        return transactionService.transferAll(transfers, userIds);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferOutcome;
+import com.example.bankcards.dto.TransferRequest;
+
+public interface TransferIdempotencyService {
+    TransferOutcome transfer(Long userId, String idempotencyKey, TransferRequest request);
+}
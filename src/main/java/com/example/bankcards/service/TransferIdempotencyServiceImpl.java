@@ -0,0 +1,219 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferOutcome;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.exception.ServiceUnavailableException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository.StoredOutcome;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.*;
+
+/**
+ * Applies each {@code Idempotency-Key} of a user at most once.
+ * <p>
+ * Completed outcomes stay in a size- and TTL-bounded cache for the retry window and in
+ * {@code transfer_idempotency_key} for durability. The key row is inserted in the transaction
+ * of the transfer itself, so both commit or neither does, and a duplicate sent to another
+ * instance waits on the row's primary key instead of transferring again. Duplicates on the same
+ * instance wait for the in-flight request without touching the database at all.
+ * <p>
+ * Only outcomes a retry would repeat are kept: success and rejections of the transfer itself.
+ * A lost race or an unavailable database releases the key, so the retry transfers again.
+ */
+@Slf4j
+@Service
+public class TransferIdempotencyServiceImpl implements TransferIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int PURGE_BATCH_SIZE = 10_000;
+    // object headers, references and the cache's own node, roughly
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final TransactionService transactionService;
+    private final IdempotencyKeyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Cache<Key, StoredOutcome> completed;
+    private final ConcurrentMap<Key, CompletableFuture<StoredOutcome>> inFlight = new ConcurrentHashMap<>();
+    private final Counter replays;
+
+    public TransferIdempotencyServiceImpl(TransactionService transactionService,
+                                          IdempotencyKeyRepository repository,
+                                          TransactionTemplate transactionTemplate,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                                          @Value("${app.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                                          @Value("${app.idempotency.cache-size:16MB}") DataSize cacheSize) {
+        this.transactionService = transactionService;
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumWeight(cacheSize.toBytes())
+                .weigher(TransferIdempotencyServiceImpl::weigh)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "transfer.idempotency");
+        Gauge.builder("transfer.idempotency.cache.memory", completed,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Estimated heap used by cached transfer outcomes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("transfer.idempotency.in.flight", inFlight, ConcurrentMap::size)
+                .description("Idempotent transfers currently being applied")
+                .register(meterRegistry);
+        this.replays = Counter.builder("transfer.idempotency.replays")
+                .description("Transfers answered with the outcome of an earlier request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public TransferOutcome transfer(Long userId, String idempotencyKey, TransferRequest request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        Key key = new Key(userId, idempotencyKey);
+        byte[] requestHash = fingerprint(request);
+
+        StoredOutcome cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+
+        CompletableFuture<StoredOutcome> own = new CompletableFuture<>();
+        CompletableFuture<StoredOutcome> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            TransferOutcome outcome = execute(key, requestHash, request);
+            StoredOutcome stored = new StoredOutcome(requestHash, outcome.status(), outcome.error());
+            // cached before the in-flight entry goes away, so a duplicate always finds one of them
+            completed.put(key, stored);
+            own.complete(stored);
+            return outcome;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private TransferOutcome execute(Key key, byte[] requestHash, TransferRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredOutcome applied = new StoredOutcome(requestHash, HttpStatus.OK.value(), null);
+        try {
+            StoredOutcome earlier = transactionTemplate.execute(_ -> {
+                if (!repository.insert(key.userId(), key.idempotencyKey(), applied, now)) {
+                    return find(key);
+                }
+                transactionService.transferBetweenCards(request.fromCardId(), request.toCardId(), request.amount(), key.userId());
+                return null;
+            });
+            return earlier == null ? new TransferOutcome(applied.status(), null, false) : replay(earlier, requestHash);
+        } catch (TransferConflictException e) {
+            // transient, and the key rolled back with the transfer, so a retry runs it again
+            throw e;
+        } catch (EntityNotFoundException | ForbiddenOperationException e) {
+            // the transfer rolled back together with its key, so the rejection is recorded on its own
+            StoredOutcome rejected = new StoredOutcome(requestHash, rejectionStatus(e).value(), e.getMessage());
+            StoredOutcome earlier = transactionTemplate.execute(_ ->
+                    repository.insert(key.userId(), key.idempotencyKey(), rejected, now) ? null : find(key));
+            return earlier == null ? new TransferOutcome(rejected.status(), rejected.body(), false) : replay(earlier, requestHash);
+        }
+    }
+
+    private StoredOutcome find(Key key) {
+        return repository.find(key.userId(), key.idempotencyKey())
+                .orElseThrow(() -> new IllegalStateException("Idempotency key disappeared while it was in use"));
+    }
+
+    /**
+     * Same statuses as {@link com.example.bankcards.controller.RestErrorHandler} gives these exceptions.
+     */
+    private static HttpStatus rejectionStatus(RuntimeException e) {
+        return e instanceof EntityNotFoundException ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+    }
+
+    private TransferOutcome replay(StoredOutcome outcome, byte[] requestHash) {
+        if (!MessageDigest.isEqual(outcome.requestHash(), requestHash)) {
+            throw new BadRequestException("Idempotency-Key was already used for a different transfer");
+        }
+        replays.increment();
+        return new TransferOutcome(outcome.status(), outcome.body(), true);
+    }
+
+    private StoredOutcome await(CompletableFuture<StoredOutcome> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("A transfer with this Idempotency-Key is still in progress, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("A transfer with this Idempotency-Key is still in progress, retry later");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        LocalDateTime before = LocalDateTime.now().minus(ttl);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = repository.deleteCreatedBefore(before, PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        if (total > 0) {
+            log.info("Purged {} expired transfer idempotency keys", total);
+        }
+    }
+
+    private static byte[] fingerprint(TransferRequest request) {
+        String canonical = request.fromCardId() + "|" + request.toCardId() + "|"
+                + request.amount().stripTrailingZeros().toPlainString();
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int weigh(Key key, StoredOutcome outcome) {
+        int chars = key.idempotencyKey().length() + (outcome.body() == null ? 0 : outcome.body().length());
+        return ENTRY_OVERHEAD_BYTES + 2 * chars + outcome.requestHash().length;
+    }
+
+    private record Key(long userId, String idempotencyKey) {}
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.ForbiddenOperationException;
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Why a transfer was refused before anything was written: the message reported to the caller,
+ * and whether a single transfer fails with 404 rather than 400 for it.
+ */
+public record TransferRejection(String message, boolean notFound) {
+
+    public static final TransferRejection CARD_NOT_FOUND = new TransferRejection("Card not found", true);
+    public static final TransferRejection DIFFERENT_OWNERS = new TransferRejection("Cards belong to different users", false);
+    public static final TransferRejection SOURCE_BLOCKED = new TransferRejection("Source card is blocked", false);
+    public static final TransferRejection SOURCE_NOT_ACTIVE = new TransferRejection("Source card is not active", false);
+    public static final TransferRejection NOT_ENOUGH_FUNDS = new TransferRejection("Not enough funds", false);
+
+    public static TransferRejection invalid(String message) {
+        return new TransferRejection(message, false);
+    }
+
+    public RuntimeException toException() {
+        return notFound ? new EntityNotFoundException(message) : new ForbiddenOperationException(message);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.RollupRebuildStatusDto;
+import com.example.bankcards.repository.TransferRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes the transfer rollups from {@code transactions} when they have drifted.
+ * <p>
+ * Only months still held by attached partitions are recomputed; rollups of detached and archived
+ * months are kept as they are, since their transfers are no longer there to count. Work is split into the card id blocks of {@link TransferRollupRepository}; a fixed pool of
+ * workers rebuilds one block per transaction, so transfers only wait for the block that is
+ * being rebuilt at the moment.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransferRollupRebuildJob {
+
+    private final TransferRollupRepository rollupRepository;
+    private final TransactionPartitionManager partitionManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.rollup.rebuild.parallelism:0}")
+    private int parallelism;
+
+    private volatile Run run;
+
+    public synchronized RollupRebuildStatusDto start() {
+        if (run == null || run.state != State.RUNNING) {
+            run = new Run();
+            Thread.ofPlatform().daemon().name("transfer-rollup-rebuild").start(this::execute);
+        }
+        return status();
+    }
+
+    public RollupRebuildStatusDto status() {
+        Run current = run;
+        if (current == null) {
+            return new RollupRebuildStatusDto(State.IDLE.name(), 0, 0, null, null);
+        }
+        return new RollupRebuildStatusDto(current.state.name(), current.blocks, current.rebuilt.get(),
+                current.startedAt, current.finishedAt);
+    }
+
+    private void execute() {
+        Run current = run;
+        try {
+            current.blocks = rollupRepository.maxBlock() + 1;
+            Queue<Integer> blocks = new ConcurrentLinkedQueue<>();
+            for (int block = 0; block < current.blocks; block++) {
+                blocks.add(block);
+            }
+
+            int workers = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+                for (int i = 0; i < workers; i++) {
+                    executor.execute(() -> {
+                        try {
+                            Integer block;
+                            while (current.state == State.RUNNING && (block = blocks.poll()) != null) {
+                                int next = block;
+                                transactionTemplate.executeWithoutResult(
+                                        _ -> rollupRepository.rebuildBlock(next, oldestOnlineDay()));
+                                current.rebuilt.incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            current.state = State.FAILED;
+                            log.error("Transfer rollup rebuild worker failed", e);
+                        }
+                    });
+                }
+            }
+            if (current.state == State.RUNNING) {
+                current.state = State.COMPLETED;
+                log.info("Rebuilt transfer rollups of {} card id blocks", current.rebuilt);
+            }
+        } catch (RuntimeException e) {
+            current.state = State.FAILED;
+            log.error("Transfer rollup rebuild failed", e);
+        } finally {
+            current.finishedAt = Instant.now();
+        }
+    }
+
+    // read per block, so that a partition detached during the run is not rebuilt without its transfers
+    private LocalDate oldestOnlineDay() {
+        return partitionManager.oldestOnlineMonth()
+                .orElseThrow(() -> new IllegalStateException("transactions has no attached partitions"))
+                .atDay(1);
+    }
+
+    private enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    private static final class Run {
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger rebuilt = new AtomicInteger();
+        private volatile State state = State.RUNNING;
+        private volatile int blocks;
+        private volatile Instant finishedAt;
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.ServiceUnavailableException;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One shard of the {@link TransferEngine}: a processor thread that alone owns the cached state
+ * of the cards mapped to it, and a writer thread that group-commits the transfers it accepted.
+ * <p>
+ * A cached balance is the loaded database balance less the accepted debits that have not been
+ * settled yet. A reload between a commit and its {@link Settled} message counts that debit twice,
+ * which can only refuse a transfer, never overdraw. Credits are not applied in memory at all:
+ * they mark the target card stale and the next transfer out of it reloads it.
+ */
+@Slf4j
+final class TransferShard {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final TransferEngine engine;
+    private final int capacity;
+    private final int maxBatch;
+    private final Thread processor;
+    private final Thread writer;
+
+    private final BlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Transfer> accepted = new LinkedBlockingQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean running = true;
+
+    // confined to the processor thread, least recently used first
+    private final Map<Long, CardState> cards;
+    private final Map<Long, LockedCard> targets;
+
+    TransferShard(int index, TransferEngine engine, int capacity, int maxBatch, int cachedCards) {
+        this.engine = engine;
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+        this.cards = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CardState> eldest) {
+                // a card with unsettled debits has to stay until they settle
+                return size() > cachedCards && eldest.getValue().pending.signum() == 0;
+            }
+        };
+        this.targets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, LockedCard> eldest) {
+                return size() > cachedCards;
+            }
+        };
+        this.processor = Thread.ofPlatform().daemon().name("transfer-shard-" + index).unstarted(this::process);
+        this.writer = Thread.ofPlatform().daemon().name("transfer-commit-" + index).unstarted(this::write);
+    }
+
+    void start() {
+        processor.start();
+        writer.start();
+    }
+
+    CompletableFuture<Void> submit(long fromId, long toId, BigDecimal amount, long userId) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running) {
+            done.completeExceptionally(new ServiceUnavailableException("Transfer engine is shutting down"));
+        } else if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            done.completeExceptionally(new ServiceUnavailableException("Too many transfers in flight, retry later"));
+        } else {
+            done.whenComplete((_, _) -> queued.decrementAndGet());
+            inbox.add(new Transfer(fromId, toId, amount, userId, done));
+        }
+        return done;
+    }
+
+    void changed(long cardId) {
+        inbox.add(new Changed(cardId));
+    }
+
+    void stop(Duration timeout) {
+        running = false;
+        try {
+            processor.join(timeout);
+            writer.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        RuntimeException stopped = new ServiceUnavailableException("Transfer engine is shutting down");
+        inbox.forEach(message -> {
+            if (message instanceof Transfer transfer) {
+                transfer.done().completeExceptionally(stopped);
+            }
+        });
+        accepted.forEach(transfer -> transfer.done().completeExceptionally(stopped));
+    }
+
+    private void process() {
+        try {
+            while (running || !inbox.isEmpty()) {
+                Message message = inbox.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                switch (message) {
+                    case null -> { }
+                    case Transfer transfer -> accept(transfer);
+                    case Settled settled -> settle(settled);
+                    case Credited credited -> markStale(credited.cardId());
+                    case Changed changed -> {
+                        targets.remove(changed.cardId());
+                        markStale(changed.cardId());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept(Transfer transfer) {
+        TransferRejection rejection;
+        try {
+            rejection = check(transfer, false);
+            if (rejection == TransferRejection.NOT_ENOUGH_FUNDS) {
+                // the cached balance may be missing credits, so only refuse against a fresh one
+                rejection = check(transfer, true);
+            }
+        } catch (RuntimeException e) {
+            transfer.done().completeExceptionally(e);
+            return;
+        }
+        if (rejection != null) {
+            transfer.done().completeExceptionally(rejection.toException());
+            return;
+        }
+
+        CardState from = cards.get(transfer.fromId());
+        from.available = from.available.subtract(transfer.amount());
+        from.pending = from.pending.add(transfer.amount());
+        accepted.add(transfer);
+    }
+
+    /**
+     * Same checks as {@link TransactionServiceImpl#transferAll}.
+     */
+    private TransferRejection check(Transfer transfer, boolean reload) {
+        CardState from = card(transfer.fromId(), reload);
+        LockedCard to = target(transfer.toId());
+        if (from == null || to == null || from.userId == null || from.userId != transfer.userId()) {
+            return TransferRejection.CARD_NOT_FOUND;
+        }
+        if (!from.userId.equals(to.userId())) {
+            return TransferRejection.DIFFERENT_OWNERS;
+        }
+        if (from.status == CardStatus.BLOCKED) {
+            return TransferRejection.SOURCE_BLOCKED;
+        }
+        if (from.status != CardStatus.ACTIVE) {
+            return TransferRejection.SOURCE_NOT_ACTIVE;
+        }
+        if (from.available.compareTo(transfer.amount()) < 0) {
+            return TransferRejection.NOT_ENOUGH_FUNDS;
+        }
+        return null;
+    }
+
+    private CardState card(long cardId, boolean reload) {
+        CardState state = cards.get(cardId);
+        if (state != null && !state.stale && !reload) {
+            return state;
+        }
+        Optional<LockedCard> loaded = engine.loadCard(cardId);
+        if (loaded.isEmpty()) {
+            if (state != null && state.pending.signum() == 0) {
+                cards.remove(cardId);
+            }
+            return null;
+        }
+        if (state == null) {
+            state = new CardState();
+            cards.put(cardId, state);
+        }
+        LockedCard card = loaded.get();
+        state.userId = card.userId();
+        state.status = card.status();
+        state.available = card.moneyAmount().subtract(state.pending);
+        state.stale = false;
+        targets.put(cardId, card);
+        return state;
+    }
+
+    /**
+     * Only the owner of a target card matters here, and it does not change while the card exists.
+     */
+    private LockedCard target(long cardId) {
+        LockedCard card = targets.get(cardId);
+        if (card == null) {
+            card = engine.loadCard(cardId).orElse(null);
+            if (card != null) {
+                targets.put(cardId, card);
+            }
+        }
+        return card;
+    }
+
+    private void settle(Settled settled) {
+        CardState state = cards.get(settled.cardId());
+        if (state == null) {
+            return;
+        }
+        state.pending = state.pending.subtract(settled.amount());
+        if (!settled.applied()) {
+            state.stale = true;
+        }
+    }
+
+    private void markStale(long cardId) {
+        CardState state = cards.get(cardId);
+        if (state != null) {
+            state.stale = true;
+        }
+    }
+
+    private void write() {
+        List<Transfer> batch = new ArrayList<>(maxBatch);
+        try {
+            while (running || processor.isAlive() || !accepted.isEmpty()) {
+                Transfer first = accepted.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                accepted.drainTo(batch, maxBatch - 1);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commit(List<Transfer> batch) {
+        List<TransferRequest> requests = batch.stream()
+                .map(transfer -> new TransferRequest(transfer.fromId(), transfer.toId(), transfer.amount()))
+                .toList();
+        List<Long> userIds = batch.stream().map(Transfer::userId).toList();
+        List<TransferRejection> rejections;
+        try {
+            rejections = engine.commit(requests, userIds);
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} transfers failed", batch.size(), e);
+            RuntimeException failure = new ServiceUnavailableException("Transfer could not be saved, check the card history before retrying");
+            for (Transfer transfer : batch) {
+                inbox.add(new Settled(transfer.fromId(), transfer.amount(), false));
+                transfer.done().completeExceptionally(failure);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Transfer transfer = batch.get(i);
+            TransferRejection rejection = rejections.get(i);
+            boolean applied = rejection == null;
+            inbox.add(new Settled(transfer.fromId(), transfer.amount(), applied));
+            if (applied) {
+                if (transfer.toId() != transfer.fromId()) {
+                    engine.shardOf(transfer.toId()).inbox.add(new Credited(transfer.toId()));
+                }
+                transfer.done().complete(null);
+            } else {
+                transfer.done().completeExceptionally(rejection.toException());
+            }
+        }
+    }
+
+    private sealed interface Message {
+    }
+
+    private record Transfer(long fromId, long toId, BigDecimal amount, long userId,
+                            CompletableFuture<Void> done) implements Message {
+    }
+
+    private record Settled(long cardId, BigDecimal amount, boolean applied) implements Message {
+    }
+
+    private record Credited(long cardId) implements Message {
+    }
+
+    private record Changed(long cardId) implements Message {
+    }
+
+    private static final class CardState {
+        private Long userId;
+        private CardStatus status;
+        private BigDecimal available;
+        private BigDecimal pending = BigDecimal.ZERO;
+        private boolean stale;
+    }
+}
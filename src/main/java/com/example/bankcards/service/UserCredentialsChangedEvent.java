@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import java.util.Collection;
+
+/**
+ * Published when the password or roles of users change or users are deleted, so that tokens
+ * issued to them stop being accepted once the change has committed.
+ */
+public record UserCredentialsChangedEvent(Collection<Long> userIds) {
+}
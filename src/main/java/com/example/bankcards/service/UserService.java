@@ -1,6 +1,7 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserFilter;
@@ -14,6 +15,8 @@ import java.util.List;
 public interface UserService {
     Page<UserResponseDto> getAll(UserFilter filter, Pageable pageable);
 
+    SliceDto<UserResponseDto> getAllSlice(UserFilter filter, String cursor, int size, boolean withTotal);
+
     UserResponseDto getOne(Long id);
 
     UserResponseDto create(UserDto userDto);
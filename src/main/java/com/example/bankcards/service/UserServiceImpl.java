@@ -1,25 +1,34 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.TableStatisticsRepository;
 import com.example.bankcards.repository.UserFilter;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.PasswordHasher;
+import com.example.bankcards.util.CursorCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -31,66 +40,120 @@ public class UserServiceImpl implements UserService {
 
     public static final String JSON_PASSWORD_KEY = "password";
 
+    public static final String JSON_ROLES_KEY = "roles";
+
+    private static final int MAX_SLICE_SIZE = 100;
+
     private final UserRepository userRepository;
 
     private final ObjectMapper objectMapper;
 
     private final UserMapper userMapper;
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
 
     private final RoleRepository roleRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TableStatisticsRepository tableStatisticsRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
     @Override
+    @Transactional(readOnly = true)
     public Page<UserResponseDto> getAll(UserFilter filter, Pageable pageable) {
         Specification<User> spec = filter.toSpecification();
         return userRepository.findAll(spec, pageable).map(userMapper::toUserResponseDto);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public SliceDto<UserResponseDto> getAllSlice(UserFilter filter, String cursor, int size, boolean withTotal) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new BadRequestException("Slice size must be between 1 and " + MAX_SLICE_SIZE);
+        }
+        Long afterId = CursorCodec.decodeId(cursor);
+        Specification<User> spec = afterId == null
+                ? filter.toSpecification()
+                : filter.toSpecification().and((root, query, cb) -> cb.greaterThan(root.<Long>get("id"), afterId));
+        List<User> rows = userRepository.findBy(spec, query -> query.sortBy(Sort.by("id")).limit(size + 1).all());
+        Long total = withTotal && filter.isEmpty() ? tableStatisticsRepository.approximateRowCount("user_account") : null;
+        return SliceDto.of(rows, size, User::getId, total).map(userMapper::toUserResponseDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public UserResponseDto getOne(Long id) {
         Optional<User> userOptional = userRepository.findById(id);
         return userMapper.toUserResponseDto(userOptional.orElseThrow(() ->
                 new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity with id `%s` not found".formatted(id))));
     }
 
+    /**
+     * The password is hashed before the transaction starts, so the hash holds no connection.
+     */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UserResponseDto create(UserDto userDto) {
-        User user = userMapper.toEntity(userDto, passwordEncoder, roleRepository);
-        userRepository.save(user);
-        return userMapper.toUserResponseDto(user);
+        String passwordHash = passwordHasher.encode(userDto.password());
+        return transactionTemplate.execute(_ -> {
+            User user = userMapper.toEntity(userDto, passwordHash, roleRepository);
+            userRepository.save(user);
+            return userMapper.toUserResponseDto(user);
+        });
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UserResponseDto patch(Long id, JsonNode patchNode) throws IOException {
-        User user = userRepository.findById(id).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity with id `%s` not found".formatted(id)));
+        String passwordHash = encodePassword(patchNode);
+        return inTransaction(() -> {
+            User user = userRepository.findById(id).orElseThrow(() ->
+                    new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity with id `%s` not found".formatted(id)));
 
-        if (patchNode.has(JSON_PASSWORD_KEY)) {
-            user.setPassword(passwordEncoder.encode(patchNode.get(JSON_PASSWORD_KEY).asText()));
-        } else {
-            objectMapper.readerForUpdating(user).readValue(patchNode);
-        }
+            if (passwordHash != null) {
+                user.setPassword(passwordHash);
+            } else {
+                objectMapper.readerForUpdating(user).readValue(patchNode);
+            }
 
-        return userMapper.toUserResponseDto(userRepository.save(user));
+            if (revokesTokens(patchNode)) {
+                user.setTokenVersion(user.getTokenVersion() + 1);
+                eventPublisher.publishEvent(new UserCredentialsChangedEvent(List.of(id)));
+            }
+            return userMapper.toUserResponseDto(userRepository.save(user));
+        });
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Long> patchMany(List<Long> ids, JsonNode patchNode) throws IOException {
-        Collection<User> users = userRepository.findAllById(ids);
-
-        for (User user : users) {
-            if (patchNode.has(JSON_PASSWORD_KEY)) {
-                user.setPassword(passwordEncoder.encode(patchNode.get(JSON_PASSWORD_KEY).asText()));
-            } else {
-                objectMapper.readerForUpdating(user).readValue(patchNode);
+        String passwordHash = encodePassword(patchNode);
+        return inTransaction(() -> {
+            Collection<User> users = userRepository.findAllById(ids);
+
+            boolean revokesTokens = revokesTokens(patchNode);
+            for (User user : users) {
+                if (passwordHash != null) {
+                    user.setPassword(passwordHash);
+                } else {
+                    objectMapper.readerForUpdating(user).readValue(patchNode);
+                }
+                if (revokesTokens) {
+                    user.setTokenVersion(user.getTokenVersion() + 1);
+                }
             }
-        }
 
-        List<User> resultUsers = userRepository.saveAll(users);
-        return resultUsers.stream()
-                .map(User::getId)
-                .toList();
+            List<User> resultUsers = userRepository.saveAll(users);
+            List<Long> resultIds = resultUsers.stream()
+                    .map(User::getId)
+                    .toList();
+            if (revokesTokens) {
+                eventPublisher.publishEvent(new UserCredentialsChangedEvent(resultIds));
+            }
+            return resultIds;
+        });
     }
 
     @Override
@@ -98,6 +161,7 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id).orElse(null);
         if (user != null) {
             userRepository.delete(user);
+            eventPublisher.publishEvent(new UserCredentialsChangedEvent(List.of(id)));
         }
         return userMapper.toUserResponseDto(user);
     }
@@ -105,5 +169,35 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteMany(List<Long> ids) {
         userRepository.deleteAllById(ids);
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(ids));
+    }
+
+    private String encodePassword(JsonNode patchNode) {
+        return patchNode.has(JSON_PASSWORD_KEY) ? passwordHasher.encode(patchNode.get(JSON_PASSWORD_KEY).asText()) : null;
+    }
+
+    private <T> T inTransaction(PatchCallback<T> callback) throws IOException {
+        try {
+            return transactionTemplate.execute(_ -> {
+                try {
+                    return callback.apply();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Tokens carry the roles they were issued with, and a new password has to log out stolen tokens too.
+     */
+    private static boolean revokesTokens(JsonNode patchNode) {
+        return patchNode.has(JSON_PASSWORD_KEY) || patchNode.has(JSON_ROLES_KEY);
+    }
+
+    private interface PatchCallback<T> {
+        T apply() throws IOException;
     }
 }
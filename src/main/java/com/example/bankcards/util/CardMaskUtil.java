@@ -2,6 +2,8 @@ package com.example.bankcards.util;
 
 public class CardMaskUtil {
 
+    public static final String MASK_PREFIX = "**** **** **** ";
+
     private CardMaskUtil() {}
 
     public static String maskPan(String pan) {
@@ -10,7 +12,20 @@ public class CardMaskUtil {
         if (digits.length() < 4) {
             return "****";
         }
-        String last4 = digits.substring(digits.length() - 4);
-        return "**** **** **** " + last4;
+        return MASK_PREFIX + digits.substring(digits.length() - 4);
+    }
+
+    public static String maskLast4(String last4) {
+        if (last4 == null) return null;
+        if (last4.length() != 4) {
+            return "****";
+        }
+        return MASK_PREFIX + last4;
+    }
+
+    public static String last4(String pan) {
+        if (pan == null) return null;
+        String digits = pan.replaceAll("\\s+", "");
+        return digits.length() < 4 ? digits : digits.substring(digits.length() - 4);
     }
 }
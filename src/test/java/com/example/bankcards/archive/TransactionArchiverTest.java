@@ -0,0 +1,87 @@
+package com.example.bankcards.archive;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.dto.TransactionHistoryItemDto;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.service.TransactionPartitionManager;
+import com.example.bankcards.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A month past retention must stay in the card history through every step of being archived.
+ */
+@SpringBootTest(properties = {
+        "app.archive.enabled=true",
+        "app.partitions.transactions.retention-months=12",
+        "app.archive.directory=${java.io.tmpdir}/transaction-archiver-test-${random.uuid}"
+})
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionArchiverTest {
+
+    private static final YearMonth EXPIRED_MONTH = YearMonth.of(2019, 5);
+    private static final TransactionHistoryFilter NO_FILTER = new TransactionHistoryFilter(null, null, null, null);
+
+    @Autowired
+    private TransactionArchiver archiver;
+
+    @Autowired
+    private TransactionArchive archive;
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void retire_keepsMonthInHistoryUntilAndAfterItIsDropped() {
+        User owner = fixtures.user("Archiver");
+        long from = fixtures.card(owner, BigDecimal.ZERO).getId();
+        long to = fixtures.card(owner, BigDecimal.ZERO).getId();
+        String table = TransactionPartitionManager.partitionName(EXPIRED_MONTH);
+        partitionManager.createPartitions(EXPIRED_MONTH, EXPIRED_MONTH);
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, from_card_id, to_card_id, amount, created_at)
+                VALUES (nextval('transactions_seq'), ?, ?, ?, ?)""",
+                from, to, new BigDecimal("10.00"), EXPIRED_MONTH.atDay(10).atTime(12, 0));
+
+        archiver.retire(EXPIRED_MONTH);
+
+        assertTrue(Files.exists(archive.directory().resolve(table + TransactionArchive.SEGMENT_SUFFIX)));
+        assertTrue(partitionManager.attachedPartitions().contains(EXPIRED_MONTH));
+        assertEquals(List.of(from), history(from, owner));
+
+        archiver.retire(EXPIRED_MONTH);
+
+        assertFalse(partitionManager.attachedPartitions().contains(EXPIRED_MONTH));
+        assertFalse(archiver.detachedPartitions().contains(table));
+        assertEquals(List.of(from), history(from, owner));
+    }
+
+    private List<Long> history(long cardId, User owner) {
+        return transactionService.getCardHistory(cardId, NO_FILTER, null, 10, owner.getId()).items().stream()
+                .map(TransactionHistoryItemDto::fromCardId)
+                .toList();
+    }
+}
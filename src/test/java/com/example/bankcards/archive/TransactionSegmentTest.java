@@ -0,0 +1,167 @@
+package com.example.bankcards.archive;
+
+import com.example.bankcards.dto.TransactionExportRow;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.util.CursorCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSegmentTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2022, 3, 1, 0, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void roundTrip_readsBackEveryTransferUnchanged() throws IOException {
+        List<ArchivedTransfer> transfers = sides(randomRows(new Random(1), 5_000, 40));
+
+        try (TransactionSegment segment = TransactionSegment.open(write("roundtrip.seg", transfers, 128))) {
+            assertEquals(transfers.size(), segment.rows());
+            assertEquals(transfers, segment.readAll());
+            assertEquals(transfers.stream().map(ArchivedTransfer::createdAt).min(Comparator.naturalOrder()).orElseThrow(),
+                    segment.minCreatedAt());
+        }
+    }
+
+    @Test
+    void roundTrip_keepsAmountScaleAndMicroseconds() throws IOException {
+        TransactionExportRow row = new TransactionExportRow(7L, 1L, 2L, new BigDecimal("12.5"),
+                LocalDateTime.of(2021, 12, 31, 23, 59, 59, 999_999_000));
+
+        try (TransactionSegment segment = TransactionSegment.open(write("scale.seg", sides(List.of(row)), 128))) {
+            List<ArchivedTransfer> read = segment.readAll();
+            assertEquals(row, read.get(0).toRow());
+            assertEquals(1, read.get(0).amount().scale());
+        }
+    }
+
+    @Test
+    void findNewestFirst_matchesFullScan() throws IOException {
+        Random random = new Random(2);
+        List<ArchivedTransfer> transfers = sides(randomRows(random, 20_000, 60));
+
+        try (TransactionSegment segment = TransactionSegment.open(write("lookup.seg", transfers, 256))) {
+            for (int i = 0; i < 300; i++) {
+                long cardId = random.nextInt(62);
+                LocalDateTime from = random.nextBoolean() ? null : START.plusHours(random.nextInt(24 * 30));
+                LocalDateTime to = random.nextBoolean() ? null : START.plusHours(random.nextInt(24 * 30));
+                int limit = 1 + random.nextInt(200);
+
+                List<ArchivedTransfer> expected = new ArrayList<>();
+                for (int j = transfers.size() - 1; j >= 0 && expected.size() < limit; j--) {
+                    ArchivedTransfer transfer = transfers.get(j);
+                    if (transfer.cardId() == cardId && transfer.debit()
+                            && (from == null || !transfer.createdAt().isBefore(from))
+                            && (to == null || transfer.createdAt().isBefore(to))) {
+                        expected.add(transfer);
+                    }
+                }
+                assertEquals(expected, segment.findNewestFirst(cardId, from, to, ArchivedTransfer::debit, limit));
+            }
+        }
+    }
+
+    @Test
+    void archive_pagesAcrossSegmentsWithoutGapsOrDuplicates() throws IOException {
+        List<TransactionExportRow> march = randomRows(new Random(3), 2_000, 10);
+        List<TransactionExportRow> april = randomRows(new Random(4), 2_000, 10).stream()
+                .map(row -> new TransactionExportRow(row.id() + 1_000_000, row.fromCardId(), row.toCardId(),
+                        row.amount(), row.createdAt().plusMonths(1)))
+                .toList();
+        write("transactions_p2022_03.seg", sides(march), 64);
+        write("transactions_p2022_04.seg", sides(april), 64);
+
+        TransactionArchive archive = new TransactionArchive(directory);
+        archive.load();
+        try {
+            TransactionHistoryFilter filter = new TransactionHistoryFilter(null, null, null, null);
+            List<TransactionExportRow> expected = new ArrayList<>();
+            for (TransactionExportRow row : concat(march, april)) {
+                if (row.fromCardId() == 3L || row.toCardId() == 3L) {
+                    expected.add(row);
+                }
+            }
+            expected.sort(Comparator.comparing(TransactionExportRow::createdAt).thenComparing(TransactionExportRow::id).reversed());
+
+            List<TransactionExportRow> paged = new ArrayList<>();
+            CursorCodec.Position after = null;
+            List<TransactionExportRow> page;
+            do {
+                page = archive.findHistory(List.of(3L), filter, after, 17);
+                paged.addAll(page);
+                if (!page.isEmpty()) {
+                    after = new CursorCodec.Position(page.getLast().createdAt(), page.getLast().id());
+                }
+            } while (page.size() == 17);
+
+            assertEquals(expected, paged);
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Test
+    void append_outOfOrder_throwsException() throws IOException {
+        List<ArchivedTransfer> transfers = sides(randomRows(new Random(5), 10, 5));
+        try (TransactionSegmentWriter writer = new TransactionSegmentWriter(directory.resolve("unsorted.seg"))) {
+            writer.append(transfers.getLast());
+            assertThrows(IllegalArgumentException.class, () -> writer.append(transfers.getFirst()));
+            writer.finish();
+        }
+    }
+
+    @Test
+    void open_notASegment_throwsException() throws IOException {
+        Path file = Files.write(directory.resolve("garbage.seg"), new byte[64]);
+
+        assertThrows(IllegalStateException.class, () -> TransactionSegment.open(file));
+    }
+
+    private Path write(String name, List<ArchivedTransfer> transfers, int blockRows) throws IOException {
+        Path file = directory.resolve(name);
+        try (TransactionSegmentWriter writer = new TransactionSegmentWriter(file, blockRows, 6)) {
+            for (ArchivedTransfer transfer : transfers) {
+                writer.append(transfer);
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static List<TransactionExportRow> randomRows(Random random, int count, int cards) {
+        List<TransactionExportRow> rows = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            rows.add(new TransactionExportRow((long) i, 1L + random.nextInt(cards), 1L + random.nextInt(cards),
+                    BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2),
+                    START.plusSeconds(random.nextInt(60 * 60 * 24 * 30)).plusNanos(random.nextInt(1_000_000) * 1_000L)));
+        }
+        return rows;
+    }
+
+    private static List<ArchivedTransfer> sides(List<TransactionExportRow> rows) {
+        List<ArchivedTransfer> sides = new ArrayList<>(rows.size() * 2);
+        for (TransactionExportRow row : rows) {
+            sides.add(ArchivedTransfer.debitOf(row));
+            sides.add(ArchivedTransfer.creditOf(row));
+        }
+        sides.sort(ArchivedTransfer.ORDER);
+        return sides;
+    }
+
+    private static List<TransactionExportRow> concat(List<TransactionExportRow> first, List<TransactionExportRow> second) {
+        List<TransactionExportRow> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+}
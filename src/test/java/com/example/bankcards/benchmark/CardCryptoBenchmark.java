@@ -0,0 +1,159 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.CardCryptoProperties;
+import com.example.bankcards.service.CardCryptoService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the pooled {@link CardCryptoService} with the previous implementation, which created
+ * a {@link Cipher} per call and drew IVs from one shared {@link SecureRandom}.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.CardCryptoBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardCryptoBenchmark {
+
+    private static final String KEY = "6iXCljpSBpxAB0MiBEemoVCxM5343fnXhKaYN6NF78M=";
+    private static final String PAN = "1234 5678 9012 3456";
+
+    @Param({"legacy", "pooled"})
+    public String engine;
+
+    private Crypto<?> crypto;
+
+    @Setup
+    public void setUp() {
+        if ("legacy".equals(engine)) {
+            crypto = new LegacyCrypto(KEY);
+        } else {
+            CardCryptoService service = new CardCryptoService(new CardCryptoProperties(KEY, null, null, null));
+            service.init();
+            crypto = new PooledCrypto(service);
+        }
+        crypto.prepare(PAN);
+    }
+
+    @Benchmark
+    public Object encrypt() {
+        return crypto.encrypt(PAN);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return crypto.decryptPrepared();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 8, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(CardCryptoBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private abstract static class Crypto<T> {
+        private T prepared;
+
+        abstract T encrypt(String plain);
+
+        abstract String decrypt(T ciphertext);
+
+        void prepare(String plain) {
+            prepared = encrypt(plain);
+        }
+
+        String decryptPrepared() {
+            return decrypt(prepared);
+        }
+    }
+
+    private static final class PooledCrypto extends Crypto<byte[]> {
+        private final CardCryptoService service;
+
+        private PooledCrypto(CardCryptoService service) {
+            this.service = service;
+        }
+
+        @Override
+        byte[] encrypt(String plain) {
+            return service.seal(plain);
+        }
+
+        @Override
+        String decrypt(byte[] ciphertext) {
+            return service.open(ciphertext);
+        }
+    }
+
+    /**
+     * Verbatim copy of the pre-pool {@code CardCryptoService} encrypt/decrypt path.
+     */
+    private static final class LegacyCrypto extends Crypto<String> {
+        private static final int GCM_TAG_LENGTH = 128;
+        private static final int IV_LENGTH_BYTES = 12;
+
+        private final SecretKey secretKey;
+        private final SecureRandom secureRandom = new SecureRandom();
+
+        private LegacyCrypto(String keyBase64) {
+            this.secretKey = new SecretKeySpec(Base64.getDecoder().decode(keyBase64), "AES");
+        }
+
+        @Override
+        String encrypt(String plain) {
+            try {
+                byte[] iv = new byte[IV_LENGTH_BYTES];
+                secureRandom.nextBytes(iv);
+
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+                byte[] ciphertext = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+
+                byte[] combined = new byte[iv.length + ciphertext.length];
+                System.arraycopy(iv, 0, combined, 0, iv.length);
+                System.arraycopy(ciphertext, 0, combined, iv.length, ciphertext.length);
+                return Base64.getEncoder().encodeToString(combined);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        String decrypt(String base64Combined) {
+            try {
+                byte[] combined = Base64.getDecoder().decode(base64Combined);
+                byte[] iv = new byte[IV_LENGTH_BYTES];
+                System.arraycopy(combined, 0, iv, 0, IV_LENGTH_BYTES);
+                byte[] ciphertext = new byte[combined.length - IV_LENGTH_BYTES];
+                System.arraycopy(combined, IV_LENGTH_BYTES, ciphertext, 0, ciphertext.length);
+
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+                return new String(cipher.doFinal(ciphertext), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.crypto.CardCiphertextFormat;
+import com.example.bankcards.config.CardCryptoProperties;
+import com.example.bankcards.service.CardCryptoService;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Measures on-disk size and full-scan load throughput of the legacy Base64 {@code VARCHAR}
+ * card number storage against the binary {@code BYTEA} format, on a seeded Postgres.
+ * <p>
+ * Requires Docker. Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.CardStorageFormatBenchmark [-Dexec.args=rows]}.
+ */
+public class CardStorageFormatBenchmark {
+
+    private static final String KEY = "6iXCljpSBpxAB0MiBEemoVCxM5343fnXhKaYN6NF78M=";
+    private static final int BATCH = 1000;
+    private static final int LOAD_ROUNDS = 5;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        CardCryptoService crypto = new CardCryptoService(new CardCryptoProperties(KEY, null, null, null));
+        crypto.init();
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.6")) {
+            postgres.start();
+            try (Connection connection = DriverManager.getConnection(
+                    postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())) {
+                seed(connection, crypto, rows);
+                report(connection, "card_text", "legacy VARCHAR(1024) Base64");
+                report(connection, "card_bin", "BYTEA v1");
+                load(connection, crypto, "SELECT card_number FROM card_text", true, rows);
+                load(connection, crypto, "SELECT card_number_bin FROM card_bin", false, rows);
+            }
+        }
+    }
+
+    private static void seed(Connection connection, CardCryptoService crypto, int rows) throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE card_text (id BIGINT PRIMARY KEY, card_number VARCHAR(1024) NOT NULL, "
+                    + "card_number_hash BYTEA NOT NULL UNIQUE)");
+            ddl.execute("CREATE TABLE card_bin (id BIGINT PRIMARY KEY, card_number_bin BYTEA NOT NULL, "
+                    + "card_number_hash BYTEA NOT NULL UNIQUE)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement text = connection.prepareStatement("INSERT INTO card_text VALUES (?, ?, ?)");
+             PreparedStatement bin = connection.prepareStatement("INSERT INTO card_bin VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                String pan = "%016d".formatted(4000_0000_0000_0000L + i);
+                byte[] sealed = crypto.seal(pan);
+                byte[] hash = crypto.blindIndex(pan);
+                // legacy rows carried no header
+                String legacy = Base64.getEncoder().encodeToString(
+                        Arrays.copyOfRange(sealed, CardCiphertextFormat.HEADER_LENGTH, sealed.length));
+
+                text.setLong(1, i);
+                text.setString(2, legacy);
+                text.setBytes(3, hash);
+                text.addBatch();
+                bin.setLong(1, i);
+                bin.setBytes(2, sealed);
+                bin.setBytes(3, hash);
+                bin.addBatch();
+                if (i % BATCH == 0) {
+                    text.executeBatch();
+                    bin.executeBatch();
+                }
+            }
+            text.executeBatch();
+            bin.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement vacuum = connection.createStatement()) {
+            vacuum.execute("VACUUM ANALYZE card_text");
+            vacuum.execute("VACUUM ANALYZE card_bin");
+        }
+    }
+
+    private static void report(Connection connection, String table, String label) throws SQLException {
+        try (PreparedStatement sizes = connection.prepareStatement(
+                "SELECT pg_table_size(?::regclass), pg_indexes_size(?::regclass), pg_total_relation_size(?::regclass)")) {
+            sizes.setString(1, table);
+            sizes.setString(2, table);
+            sizes.setString(3, table);
+            try (ResultSet rs = sizes.executeQuery()) {
+                rs.next();
+                System.out.printf("%-30s table=%,d B  indexes=%,d B  total=%,d B%n",
+                        label, rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
+        }
+    }
+
+    private static void load(Connection connection, CardCryptoService crypto, String sql, boolean legacy, int rows)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < LOAD_ROUNDS; round++) {
+            long start = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(BATCH);
+                try (ResultSet rs = statement.executeQuery(sql)) {
+                    while (rs.next()) {
+                        byte[] sealed = legacy
+                                ? CardCiphertextFormat.fromLegacy(rs.getString(1))
+                                : rs.getBytes(1);
+                        crypto.open(sealed);
+                    }
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        System.out.printf("%-30s load+decrypt %,d rows: best %,d ms (%,.0f rows/s)%n",
+                sql, rows, best / 1_000_000, rows / (best / 1e9));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.UserRepository.TokenVersion;
+import com.example.bankcards.security.AppUserDetails;
+import com.example.bankcards.security.JwtAuthFilter;
+import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.TokenVersionCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-request cost of {@link JwtAuthFilter} once token versions are cached: a token seen before,
+ * a token missing from the verified cache, and the former two parser builds and two HMAC checks
+ * on their own for reference.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.JwtFilterBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "supersecretkeysupersecretkeysupersecretkey12";
+    private static final int UNCACHED_TOKENS = 1024;
+    private static final FilterChain NO_OP = (_, _) -> { };
+
+    private final AppUserDetails user = new AppUserDetails(1L, "+79990000000", "encoded", 0,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    private final SecretKey secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+
+    private JwtAuthFilter cachedFilter;
+    private JwtAuthFilter uncachedFilter;
+    private String token;
+    private MockHttpServletRequest cachedRequest;
+    private MockHttpServletRequest[] uncachedRequests;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        JwtService cached = new JwtService(SECRET, 10_000, new SimpleMeterRegistry());
+        // a single cached entry against a rotation of many tokens keeps every lookup a miss
+        JwtService uncached = new JwtService(SECRET, 1, new SimpleMeterRegistry());
+        UserRepository userRepository = mock(UserRepository.class);
+        TokenVersion version = mock(TokenVersion.class);
+        when(version.getTokenVersion()).thenReturn(user.getTokenVersion());
+        when(userRepository.findTokenVersions(any())).thenReturn(List.of(version));
+        TokenVersionCache tokenVersions = new TokenVersionCache(userRepository, new SimpleMeterRegistry(), 10_000);
+        cachedFilter = new JwtAuthFilter(cached, tokenVersions);
+        uncachedFilter = new JwtAuthFilter(uncached, tokenVersions);
+
+        token = cached.generateToken(user);
+        cachedRequest = bearer(token);
+        uncachedRequests = new MockHttpServletRequest[UNCACHED_TOKENS];
+        for (int i = 0; i < UNCACHED_TOKENS; i++) {
+            uncachedRequests[i] = bearer(uncached.generateToken(new AppUserDetails(user.getId(), "+7999" + i,
+                    "encoded", user.getTokenVersion(), user.getAuthorities())));
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object cachedToken() throws ServletException, IOException {
+        return filter(cachedFilter, cachedRequest);
+    }
+
+    @Benchmark
+    public Object uncachedToken() throws ServletException, IOException {
+        return filter(uncachedFilter, uncachedRequests[ThreadLocalRandom.current().nextInt(UNCACHED_TOKENS)]);
+    }
+
+    @Benchmark
+    public boolean formerDoubleParse() {
+        String subject = Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().getSubject();
+        Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
+        return subject != null;
+    }
+
+    private Object filter(JwtAuthFilter filter, MockHttpServletRequest request) throws ServletException, IOException {
+        try {
+            filter.doFilter(request, response, NO_OP);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static MockHttpServletRequest bearer(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
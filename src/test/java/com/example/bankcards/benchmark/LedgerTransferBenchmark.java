@@ -0,0 +1,166 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.repository.LedgerRepository;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+import com.example.bankcards.service.LedgerServiceImpl;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot-card transfer throughput of the update-in-place model against the append-only ledger:
+ * many source cards all pay into one destination card. Also reports the dead tuples each model
+ * leaves behind in {@code card}.
+ * <p>
+ * Requires Docker. Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.LedgerTransferBenchmark
+ * [-Dexec.args="threads seconds sources"]}.
+ */
+public class LedgerTransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    // Same statements as CardRepository.debitIfAllowed and CardRepository.credit
+    private static final String DEBIT = """
+            UPDATE card SET money_amount = money_amount - ?
+            WHERE id = ? AND status = 'ACTIVE' AND money_amount >= ?
+              AND user_id = (SELECT user_id FROM card WHERE id = ?)""";
+
+    private static final String CREDIT = "UPDATE card SET money_amount = money_amount + ? WHERE id = ?";
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int sources = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.6")) {
+            postgres.start();
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(postgres.getJdbcUrl());
+            config.setUsername(postgres.getUsername());
+            config.setPassword(postgres.getPassword());
+            config.setMaximumPoolSize(threads + 1);
+            try (HikariDataSource dataSource = new HikariDataSource(config)) {
+                JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+                TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+                long hot = sources + 1L;
+
+                seed(jdbc, sources);
+                run("update-in-place", jdbc, threads, seconds, sources, () -> {
+                    long from = ThreadLocalRandom.current().nextLong(1, sources + 1);
+                    tx.executeWithoutResult(_ -> {
+                        if (jdbc.update(DEBIT, AMOUNT, from, AMOUNT, hot) == 0) {
+                            throw new IllegalStateException("Debit rejected");
+                        }
+                        jdbc.update(CREDIT, AMOUNT, hot);
+                    });
+                }, null);
+
+                seed(jdbc, sources);
+                LedgerRepository ledgerRepository = new LedgerRepository(jdbc);
+                LedgerServiceImpl ledger = new LedgerServiceImpl(ledgerRepository);
+                AtomicLong transactionIds = new AtomicLong();
+                run("ledger", jdbc, threads, seconds, sources, () -> {
+                    long from = ThreadLocalRandom.current().nextLong(1, sources + 1);
+                    tx.executeWithoutResult(_ -> {
+                        Map<Long, LockedCard> cards = ledger.lockForTransfer(from, hot);
+                        if (cards.get(from).moneyAmount().compareTo(AMOUNT) < 0) {
+                            throw new IllegalStateException("Not enough funds");
+                        }
+                        ledger.record(List.of(new TransferRow(from, hot, AMOUNT)),
+                                List.of(transactionIds.incrementAndGet()), LocalDateTime.now());
+                    });
+                }, () -> {
+                    for (Long cardId : ledgerRepository.findCardsToCompact(64, 500)) {
+                        tx.execute(_ -> ledgerRepository.compact(cardId));
+                    }
+                });
+            }
+        }
+    }
+
+    private static void seed(JdbcTemplate jdbc, int sources) {
+        jdbc.execute("DROP TABLE IF EXISTS ledger_entry, card");
+        jdbc.execute("""
+                CREATE TABLE card (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, status VARCHAR(255) NOT NULL,
+                                   money_amount DECIMAL(19, 2) NOT NULL, snapshot_entry_id BIGINT NOT NULL DEFAULT 0)""");
+        jdbc.execute("""
+                CREATE TABLE ledger_entry (id BIGSERIAL PRIMARY KEY, card_id BIGINT NOT NULL REFERENCES card (id),
+                                           transaction_id BIGINT, amount DECIMAL(19, 2) NOT NULL,
+                                           created_at TIMESTAMP NOT NULL)""");
+        jdbc.execute("CREATE INDEX ON ledger_entry (card_id, id)");
+        jdbc.update("""
+                INSERT INTO card (id, user_id, status, money_amount)
+                SELECT g, 1, 'ACTIVE', 1000000 FROM generate_series(1, ?) g""", sources + 1);
+        jdbc.execute("VACUUM ANALYZE card");
+    }
+
+    private static void run(String label, JdbcTemplate jdbc, int threads, int seconds, int sources,
+                            Runnable transfer, Runnable compaction) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong done = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                while (running.get()) {
+                    try {
+                        transfer.run();
+                        done.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        if (compaction != null) {
+            executor.execute(() -> {
+                while (running.get()) {
+                    compaction.run();
+                    sleep(1000);
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // statistics are flushed by the backends asynchronously
+        sleep(1500);
+        Long deadTuples = jdbc.queryForObject(
+                "SELECT n_dead_tup FROM pg_stat_user_tables WHERE relname = 'card'", Long.class);
+        BigDecimal hotBalance = jdbc.queryForObject("""
+                SELECT c.money_amount + COALESCE((SELECT sum(amount) FROM ledger_entry e
+                                                  WHERE e.card_id = c.id AND e.id > c.snapshot_entry_id), 0)
+                FROM card c WHERE c.id = ?""", BigDecimal.class, sources + 1L);
+        System.out.printf("%-16s threads=%d  %,.0f transfers/s  failed=%,d  card dead tuples=%,d  hot balance=%s%n",
+                label, threads, done.get() / elapsed, failed.get(), deadTuples, hotBalance);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.config.RateLimitProperties.Route;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of {@link RateLimitFilter}: a limited route taken by one user from many
+ * threads, so the same bucket is contended, a limited route taken by anonymous clients, and a
+ * request matching no route. The limits are high enough that nothing is refused. All three
+ * stay well under a microsecond.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.RateLimitFilterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class RateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 1024;
+    private static final FilterChain NO_OP = (_, _) -> { };
+
+    private RateLimitFilter filter;
+
+    @Setup
+    public void setUp() {
+        List<Route> routes = List.of(
+                new Route("login", HttpMethod.POST, "/auth/login", Integer.MAX_VALUE, Duration.ofDays(1)),
+                new Route("transfer", HttpMethod.POST, "/transfer/transfer", Integer.MAX_VALUE, Duration.ofDays(1)));
+        filter = new RateLimitFilter(new RateLimitProperties(true, 100_000L, routes), new SimpleMeterRegistry());
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        private MockHttpServletRequest transfer;
+        private MockHttpServletRequest[] logins;
+        private MockHttpServletRequest unlimited;
+        private MockHttpServletResponse response;
+        private int next;
+
+        @Setup
+        public void setUp() {
+            transfer = new MockHttpServletRequest("POST", "/transfer/transfer");
+            logins = new MockHttpServletRequest[CLIENTS];
+            for (int i = 0; i < CLIENTS; i++) {
+                logins[i] = new MockHttpServletRequest("POST", "/auth/login");
+                logins[i].setRemoteAddr("10.0." + (i >> 8) + "." + (i & 0xff));
+            }
+            unlimited = new MockHttpServletRequest("GET", "/card/v1/myCards");
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    /**
+     * Makes the benchmark thread an authenticated user.
+     */
+    @State(Scope.Thread)
+    public static class Authenticated {
+        @Setup
+        public void setUp() {
+            SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                    new AuthenticatedUser(1L, "+79990000000"), null, List.of()));
+        }
+
+        @TearDown
+        public void tearDown() {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public int sameUser(Requests requests, Authenticated authenticated) throws ServletException, IOException {
+        return filter(requests.transfer, requests);
+    }
+
+    @Benchmark
+    public int anonymousClients(Requests requests) throws ServletException, IOException {
+        return filter(requests.logins[requests.next++ & (CLIENTS - 1)], requests);
+    }
+
+    @Benchmark
+    public int unlimitedRoute(Requests requests, Authenticated authenticated) throws ServletException, IOException {
+        return filter(requests.unlimited, requests);
+    }
+
+    private int filter(MockHttpServletRequest request, Requests requests) throws ServletException, IOException {
+        filter.doFilter(request, requests.response, NO_OP);
+        return requests.response.getStatus();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.archive.ArchivedTransfer;
+import com.example.bankcards.archive.TransactionArchive;
+import com.example.bankcards.archive.TransactionSegmentWriter;
+import com.example.bankcards.dto.TransactionExportRow;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Read latency of archived history: the newest page of a card and a one-month range, over a
+ * year of generated segments in a temporary directory.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.TransactionArchiveReadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionArchiveReadBenchmark {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2023, 1);
+    private static final TransactionHistoryFilter NO_FILTER = new TransactionHistoryFilter(null, null, null, null);
+
+    @Param({"1000", "100000"})
+    public int cards;
+
+    @Param("200000")
+    public int transfersPerMonth;
+
+    private Path directory;
+    private TransactionArchive archive;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("archive-benchmark");
+        long id = 1;
+        for (int month = 0; month < 12; month++) {
+            YearMonth yearMonth = FIRST_MONTH.plusMonths(month);
+            LocalDateTime start = yearMonth.atDay(1).atStartOfDay();
+            int seconds = yearMonth.lengthOfMonth() * 24 * 60 * 60;
+
+            List<ArchivedTransfer> sides = new ArrayList<>(transfersPerMonth * 2);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < transfersPerMonth; i++) {
+                TransactionExportRow row = new TransactionExportRow(id++, 1L + random.nextInt(cards),
+                        1L + random.nextInt(cards), BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2),
+                        start.plusSeconds(random.nextInt(seconds)));
+                sides.add(ArchivedTransfer.debitOf(row));
+                sides.add(ArchivedTransfer.creditOf(row));
+            }
+            sides.sort(ArchivedTransfer.ORDER);
+
+            Path file = directory.resolve("transactions_p%d_%02d%s".formatted(
+                    yearMonth.getYear(), yearMonth.getMonthValue(), TransactionArchive.SEGMENT_SUFFIX));
+            try (TransactionSegmentWriter writer = new TransactionSegmentWriter(file)) {
+                for (ArchivedTransfer side : sides) {
+                    writer.append(side);
+                }
+                writer.finish();
+            }
+        }
+        archive = new TransactionArchive(directory);
+        archive.load();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        archive.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<TransactionExportRow> newestPage() {
+        return archive.findHistory(List.of(randomCard()), NO_FILTER, null, 20);
+    }
+
+    @Benchmark
+    public List<TransactionExportRow> monthRange() {
+        YearMonth month = FIRST_MONTH.plusMonths(ThreadLocalRandom.current().nextInt(12));
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(month.atDay(1).atStartOfDay(),
+                month.plusMonths(1).atDay(1).atStartOfDay(), null, null);
+        return archive.findHistory(List.of(randomCard()), filter, null, 100);
+    }
+
+    private long randomCard() {
+        return 1L + ThreadLocalRandom.current().nextInt(cards);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TransactionArchiveReadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Real Postgres for tests that depend on its locking and SQL semantics. Requires Docker.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class PostgresTestContainerConfig {
+
+    @Bean
+    @ServiceConnection
+    public PostgreSQLContainer<?> postgresContainer() {
+        return new PostgreSQLContainer<>("postgres:17.6");
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.config;
 
 import com.example.bankcards.security.AppUserDetailsService;
+import com.example.bankcards.security.TokenVersionCache;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -35,7 +36,9 @@ public class SecurityTestConfig {
                         .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/card/v1/all").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/card/v1/all/slice").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/card/v1/myCards").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/card/v1/myCards/slice").hasRole("USER")
                         .requestMatchers(HttpMethod.GET, "/card/v1/*").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/card/v1").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/card/v1/changeCardStatus/*").hasRole("ADMIN")
@@ -53,6 +56,15 @@ public class SecurityTestConfig {
                         .requestMatchers(HttpMethod.POST, "/card/v1/block-request/*/approve").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/card/v1/*/balance").hasRole("USER")
                         .requestMatchers(HttpMethod.POST, "/transfer/transfer").hasRole("USER")
+                        .requestMatchers(HttpMethod.POST, "/transfer/batch").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/transfer/history").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/transfer/history/card/*").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/transfer/export").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/transfer/statistics/card/*").hasRole("USER")
+                        .requestMatchers("/transfer/statistics/rebuild").hasRole("ADMIN")
+                        .requestMatchers("/crypto/v1/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Don't add JWT filter - Spring Security Test's jwt() handles authentication
@@ -65,6 +77,12 @@ public class SecurityTestConfig {
         return Mockito.mock(AppUserDetailsService.class);
     }
 
+    @Bean
+    @Primary
+    public TokenVersionCache tokenVersionCache() {
+        return Mockito.mock(TokenVersionCache.class);
+    }
+
     @Bean
     @Primary
     public PasswordEncoder passwordEncoder() {
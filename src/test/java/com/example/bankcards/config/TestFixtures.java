@@ -0,0 +1,61 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Saves users and active cards for tests against {@link PostgresTestContainerConfig}. Phone and
+ * card numbers are random, so tests sharing the container do not collide.
+ */
+@TestComponent
+public class TestFixtures {
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+
+    public TestFixtures(UserRepository userRepository, CardRepository cardRepository) {
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+    }
+
+    public User user(String surname) {
+        User user = new User();
+        user.setPhoneNumber("+7" + ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L));
+        user.setPassword("password");
+        user.setName("Test");
+        user.setSurname(surname);
+        return userRepository.save(user);
+    }
+
+    public Card card(User owner, BigDecimal balance) {
+        return cardRepository.save(newCard(owner, balance));
+    }
+
+    public List<Card> cards(User owner, int count, BigDecimal balance) {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cards.add(newCard(owner, balance));
+        }
+        return cardRepository.saveAll(cards);
+    }
+
+    private static Card newCard(User owner, BigDecimal balance) {
+        Card card = new Card();
+        card.setCardNumber("%016d".formatted(ThreadLocalRandom.current().nextLong(1_000_000_000_000_000L, 10_000_000_000_000_000L)));
+        card.setExpiry(YearMonth.now().plusYears(3));
+        card.setMoneyAmount(balance);
+        card.setCardStatus(CardStatus.ACTIVE);
+        card.setOwner(owner);
+        return card;
+    }
+}
@@ -2,24 +2,36 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.config.SecurityTestConfig;
 import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.security.AppUserDetails;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.PasswordHasher;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Import({SecurityTestConfig.class, RestErrorHandler.class})
@@ -35,9 +47,18 @@ class AuthControllerTest {
     @MockitoBean
     private JwtService jwtService;
 
+    @MockitoBean
+    private PasswordHasher passwordHasher;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void setUp() {
+        when(passwordHasher.submit(any())).thenAnswer(invocation ->
+                CompletableFuture.supplyAsync(invocation.<Supplier<?>>getArgument(0)));
+    }
+
     @Test
     void login_success() throws Exception {
         String phoneNumber = "+79999999999";
@@ -45,19 +66,25 @@ class AuthControllerTest {
         String token = "test-jwt-token";
 
         LoginRequest loginRequest = new LoginRequest(phoneNumber, password);
+        AppUserDetails userDetails = new AppUserDetails(1L, phoneNumber, "encoded", 0,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
 
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(new UsernamePasswordAuthenticationToken(phoneNumber, password, null));
-        when(jwtService.generateToken(phoneNumber)).thenReturn(token);
+                .thenReturn(UsernamePasswordAuthenticationToken.authenticated(userDetails, null, userDetails.getAuthorities()));
+        when(jwtService.generateToken(userDetails)).thenReturn(token);
 
-        mockMvc.perform(post("/auth/login")
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value(token));
 
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(jwtService).generateToken(phoneNumber);
+        verify(jwtService).generateToken(userDetails);
     }
 
     @Test
@@ -70,13 +97,33 @@ class AuthControllerTest {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenThrow(new BadCredentialsException("Invalid credentials"));
 
-        mockMvc.perform(post("/auth/login")
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isUnauthorized());
 
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(jwtService, never()).generateToken(anyString());
+        verify(jwtService, never()).generateToken(any());
+    }
+
+    @Test
+    void login_hashingSaturated_returnsTooManyRequests() throws Exception {
+        LoginRequest loginRequest = new LoginRequest("+79999999999", "password123");
+
+        doThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many password checks in progress"))
+                .when(passwordHasher).submit(any());
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isTooManyRequests());
+
+        verify(authenticationManager, never()).authenticate(any());
+        verify(jwtService, never()).generateToken(any());
     }
 
     @Test
@@ -92,7 +139,7 @@ class AuthControllerTest {
                 .andExpect(status().isBadRequest());
 
         verify(authenticationManager, never()).authenticate(any());
-        verify(jwtService, never()).generateToken(anyString());
+        verify(jwtService, never()).generateToken(any());
     }
 
     @Test
@@ -108,7 +155,7 @@ class AuthControllerTest {
                 .andExpect(status().isBadRequest());
 
         verify(authenticationManager, never()).authenticate(any());
-        verify(jwtService, never()).generateToken(anyString());
+        verify(jwtService, never()).generateToken(any());
     }
 
     @Test
@@ -124,7 +171,7 @@ class AuthControllerTest {
                 .andExpect(status().isBadRequest());
 
         verify(authenticationManager, never()).authenticate(any());
-        verify(jwtService, never()).generateToken(anyString());
+        verify(jwtService, never()).generateToken(any());
     }
 }
 
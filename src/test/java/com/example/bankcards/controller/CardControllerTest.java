@@ -3,7 +3,10 @@ package com.example.bankcards.controller;
 import com.example.bankcards.config.SecurityTestConfig;
 import com.example.bankcards.dto.BlockCardRequestDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.security.JwtService;
 import com.example.bankcards.service.CardService;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -15,9 +18,11 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 
 import java.math.BigDecimal;
 import java.time.YearMonth;
@@ -26,6 +31,7 @@ import java.util.List;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -123,14 +129,50 @@ class CardControllerTest {
 
     @Test
     void getAllMyCards_success() throws Exception {
+        CardSummaryDto card = new CardSummaryDto(1L, "**** **** **** 3456", YearMonth.of(2027, 12),
+                new BigDecimal("100.00"), CardStatus.ACTIVE, "+79990000000");
         when(cardService.getAllMyCards(any(), any(), any()))
-                .thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 10), 0));
+                .thenReturn(new PageImpl<>(List.of(card), PageRequest.of(0, 10), 1));
 
         mockMvc.perform(get("/card/v1/myCards")
-                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
-                .andExpect(status().isOk());
+                        .with(currentUser()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].cardNumber").value("**** **** **** 3456"))
+                .andExpect(jsonPath("$.content[0].ownerPhoneNumber").value("+79990000000"))
+                .andExpect(jsonPath("$.page.totalElements").value(1));
+
+        verify(cardService).getAllMyCards(any(), any(), eq(7L));
+    }
+
+    @Test
+    void getAllSlice_adminAllowed() throws Exception {
+        when(cardService.getAllSlice(any(), any(), anyInt(), anyBoolean()))
+                .thenReturn(new SliceDto<>(List.of(), "Mg", 1000L));
+
+        mockMvc.perform(get("/card/v1/all/slice")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .param("cursor", "MQ")
+                        .param("size", "50")
+                        .param("withTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("Mg"))
+                .andExpect(jsonPath("$.approximateTotal").value(1000));
 
-        verify(cardService).getAllMyCards(any(), any(), any());
+        verify(cardService).getAllSlice(any(), eq("MQ"), eq(50), eq(true));
+    }
+
+    @Test
+    void getMyCardsSlice_success() throws Exception {
+        when(cardService.getMyCardsSlice(any(), any(), anyInt(), any()))
+                .thenReturn(new SliceDto<>(List.of(), null, null));
+
+        mockMvc.perform(get("/card/v1/myCards/slice")
+                        .with(currentUser()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isArray());
+
+        verify(cardService).getMyCardsSlice(any(), isNull(), eq(20), eq(7L));
     }
 
     @Test
@@ -243,15 +285,15 @@ class CardControllerTest {
         Long cardId = 1L;
         BlockCardRequestDto dto = new BlockCardRequestDto(cardId);
 
-        doNothing().when(cardService).createBlockRequest(eq(cardId), any());
+        doNothing().when(cardService).createBlockRequest(cardId, 7L);
 
         mockMvc.perform(post("/card/v1/block-request")
-                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER")))
+                        .with(currentUser())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(dto)))
                 .andExpect(status().isOk());
 
-        verify(cardService).createBlockRequest(eq(cardId), any());
+        verify(cardService).createBlockRequest(cardId, 7L);
     }
 
     @Test
@@ -272,13 +314,18 @@ class CardControllerTest {
         Long cardId = 1L;
         BigDecimal balance = new BigDecimal("5000.50");
 
-        when(cardService.getBalance(eq(cardId), any())).thenReturn(balance);
+        when(cardService.getBalance(cardId, 7L)).thenReturn(balance);
 
         mockMvc.perform(get("/card/v1/{cardId}/balance", cardId)
-                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                        .with(currentUser()))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").value(5000.50));
 
-        verify(cardService).getBalance(eq(cardId), any());
+        verify(cardService).getBalance(cardId, 7L);
+    }
+
+    private static RequestPostProcessor currentUser() {
+        return authentication(UsernamePasswordAuthenticationToken.authenticated(
+                new AuthenticatedUser(7L, "+79990000000"), null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
     }
 }
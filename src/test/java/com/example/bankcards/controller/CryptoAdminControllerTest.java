@@ -0,0 +1,84 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.config.SecurityTestConfig;
+import com.example.bankcards.dto.ReencryptionStatusDto;
+import com.example.bankcards.migration.CardReencryptionJob;
+import com.example.bankcards.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(SecurityTestConfig.class)
+@WebMvcTest(controllers = CryptoAdminController.class)
+class CryptoAdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private CardReencryptionJob reencryptionJob;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    private ReencryptionStatusDto runningStatus() {
+        return new ReencryptionStatusDto("RUNNING", 1, 400, 600, 2, 0, 1500.0, Instant.now(), null);
+    }
+
+    @Test
+    void getStatus_admin_success() throws Exception {
+        when(reencryptionJob.status()).thenReturn(runningStatus());
+
+        mockMvc.perform(get("/crypto/v1/reencryption")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.targetKeyId").value(1))
+                .andExpect(jsonPath("$.reencrypted").value(600));
+    }
+
+    @Test
+    void start_admin_accepted() throws Exception {
+        when(reencryptionJob.start()).thenReturn(runningStatus());
+
+        mockMvc.perform(post("/crypto/v1/reencryption/start")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+
+        verify(reencryptionJob).start();
+    }
+
+    @Test
+    void stop_admin_accepted() throws Exception {
+        when(reencryptionJob.stop()).thenReturn(runningStatus());
+
+        mockMvc.perform(post("/crypto/v1/reencryption/stop")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isAccepted());
+
+        verify(reencryptionJob).stop();
+    }
+
+    @Test
+    void start_user_forbidden() throws Exception {
+        mockMvc.perform(post("/crypto/v1/reencryption/start")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isForbidden());
+
+        verify(reencryptionJob, never()).start();
+    }
+}
@@ -1,26 +1,55 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.config.SecurityTestConfig;
+import com.example.bankcards.dto.BatchTransferItemResult;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardTransferStatisticsDto;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.RollupRebuildStatusDto;
+import com.example.bankcards.dto.TransactionHistoryItemDto;
+import com.example.bankcards.dto.TransactionHistoryPageDto;
+import com.example.bankcards.dto.TransferOutcome;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferTotalsDto;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.service.TransactionExportService;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.service.TransferIdempotencyService;
+import com.example.bankcards.service.TransferRollupRebuildJob;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @Import(SecurityTestConfig.class)
 @WebMvcTest(controllers = TransactionController.class)
@@ -32,6 +61,15 @@ class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    @MockitoBean
+    private TransferIdempotencyService transferIdempotencyService;
+
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+
+    @MockitoBean
+    private TransferRollupRebuildJob rollupRebuildJob;
+
     @MockitoBean
     private JwtService jwtService;
 
@@ -46,15 +84,33 @@ class TransactionControllerTest {
 
         TransferRequest request = new TransferRequest(fromCardId, toCardId, amount);
 
-        doNothing().when(transactionService).transferBetweenCards(fromCardId, toCardId, amount);
+        doNothing().when(transactionService).transferBetweenCards(fromCardId, toCardId, amount, 7L);
 
         mockMvc.perform(post("/transfer/transfer")
-                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER")))
+                        .with(currentUser())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk());
 
-        verify(transactionService).transferBetweenCards(fromCardId, toCardId, amount);
+        verify(transactionService).transferBetweenCards(fromCardId, toCardId, amount, 7L);
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_returnsReplayedOutcome() throws Exception {
+        TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("100.50"));
+        when(transferIdempotencyService.transfer(7L, "key-1", request))
+                .thenReturn(new TransferOutcome(400, "Not enough funds", true));
+
+        mockMvc.perform(post("/transfer/transfer")
+                        .with(currentUser())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().string("Not enough funds"));
+
+        verify(transactionService, never()).transferBetweenCards(any(), any(), any(), any());
     }
 
     @Test
@@ -70,7 +126,7 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isUnauthorized());
 
-        verify(transactionService, never()).transferBetweenCards(any(), any(), any());
+        verify(transactionService, never()).transferBetweenCards(any(), any(), any(), any());
     }
 
     @Test
@@ -87,7 +143,7 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isForbidden());
 
-        verify(transactionService, never()).transferBetweenCards(any(), any(), any());
+        verify(transactionService, never()).transferBetweenCards(any(), any(), any(), any());
     }
 
     @Test
@@ -99,12 +155,12 @@ class TransactionControllerTest {
         TransferRequest request = new TransferRequest(invalidFromCardId, toCardId, amount);
 
         mockMvc.perform(post("/transfer/transfer")
-                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER")))
+                        .with(currentUser())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
 
-        verify(transactionService, never()).transferBetweenCards(any(), any(), any());
+        verify(transactionService, never()).transferBetweenCards(any(), any(), any(), any());
     }
 
     @Test
@@ -116,11 +172,271 @@ class TransactionControllerTest {
         TransferRequest request = new TransferRequest(fromCardId, toCardId, invalidAmount);
 
         mockMvc.perform(post("/transfer/transfer")
-                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER")))
+                        .with(currentUser())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
 
-        verify(transactionService, never()).transferBetweenCards(any(), any(), any());
+        verify(transactionService, never()).transferBetweenCards(any(), any(), any(), any());
+    }
+
+    private BatchTransferResponse appliedBatch(BatchTransferMode mode) {
+        return new BatchTransferResponse(mode, true, 2, 0, List.of(
+                BatchTransferItemResult.applied(0), BatchTransferItemResult.applied(1)));
+    }
+
+    @Test
+    void transferBatch_jsonArray_success() throws Exception {
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(1L, 2L, new BigDecimal("10.00")),
+                new TransferRequest(2L, 3L, new BigDecimal("20.00")));
+        when(transactionService.transferBatch(requests, BatchTransferMode.BEST_EFFORT, 7L))
+                .thenReturn(appliedBatch(BatchTransferMode.BEST_EFFORT));
+
+        mockMvc.perform(post("/transfer/batch")
+                        .param("mode", "BEST_EFFORT")
+                        .with(currentUser())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.results[1].status").value("APPLIED"));
+    }
+
+    @Test
+    void transferBatch_ndjson_success() throws Exception {
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(1L, 2L, new BigDecimal("10.00")),
+                new TransferRequest(2L, 3L, new BigDecimal("20.00")));
+        String body = objectMapper.writeValueAsString(requests.get(0)) + "\n"
+                + objectMapper.writeValueAsString(requests.get(1)) + "\n";
+        when(transactionService.transferBatch(requests, BatchTransferMode.ALL_OR_NOTHING, 7L))
+                .thenReturn(appliedBatch(BatchTransferMode.ALL_OR_NOTHING));
+
+        mockMvc.perform(post("/transfer/batch")
+                        .with(currentUser())
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("ALL_OR_NOTHING"));
+    }
+
+    @Test
+    void transferBatch_malformedNdjson_badRequest() throws Exception {
+        mockMvc.perform(post("/transfer/batch")
+                        .with(currentUser())
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"fromCardId\": 1, \"toCardId\": 2, \"amount\": 10}\n{not json\n"))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).transferBatch(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_ndjsonOverLimit_badRequest() throws Exception {
+        String line = objectMapper.writeValueAsString(new TransferRequest(1L, 2L, new BigDecimal("1.00"))) + "\n";
+
+        mockMvc.perform(post("/transfer/batch")
+                        .with(currentUser())
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(line.repeat(TransactionService.MAX_BATCH_SIZE + 1)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Transfer batch cannot contain more than " + TransactionService.MAX_BATCH_SIZE + " transfers"));
+
+        verify(transactionService, never()).transferBatch(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_jsonArrayOverLimit_badRequest() throws Exception {
+        String item = objectMapper.writeValueAsString(new TransferRequest(1L, 2L, new BigDecimal("1.00")));
+        String body = "[" + String.join(",", Collections.nCopies(TransactionService.MAX_BATCH_SIZE + 1, item)) + "]";
+
+        mockMvc.perform(post("/transfer/batch")
+                        .with(currentUser())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).transferBatch(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_jsonNotArray_badRequest() throws Exception {
+        mockMvc.perform(post("/transfer/batch")
+                        .with(currentUser())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequest(1L, 2L, new BigDecimal("1.00")))))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).transferBatch(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_forbidden() throws Exception {
+        mockMvc.perform(post("/transfer/batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+
+        verify(transactionService, never()).transferBatch(any(), eq(BatchTransferMode.ALL_OR_NOTHING), any());
+    }
+
+    @Test
+    void getCardHistory_success() throws Exception {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(
+                LocalDateTime.of(2025, 11, 1, 0, 0), null, new BigDecimal("5"), null);
+        TransactionHistoryPageDto page = new TransactionHistoryPageDto(List.of(new TransactionHistoryItemDto(
+                7L, 1L, "**** **** **** 1111", 2L, "**** **** **** 2222", new BigDecimal("10.00"),
+                LocalDateTime.of(2025, 11, 20, 12, 0))), "next");
+        when(transactionService.getCardHistory(1L, filter, "cursor", 10, 7L)).thenReturn(page);
+
+        mockMvc.perform(get("/transfer/history/card/1")
+                        .param("from", "2025-11-01T00:00:00")
+                        .param("minAmount", "5")
+                        .param("cursor", "cursor")
+                        .param("size", "10")
+                        .with(currentUser()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.items[0].fromCardNumber").value("**** **** **** 1111"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void getHistory_success() throws Exception {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(null, null, null, null);
+        when(transactionService.getUserHistory(filter, null, 20, 7L))
+                .thenReturn(new TransactionHistoryPageDto(List.of(), null));
+
+        mockMvc.perform(get("/transfer/history")
+                        .with(currentUser()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+    }
+
+    @Test
+    void getHistory_forbidden() throws Exception {
+        mockMvc.perform(get("/transfer/history")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isForbidden());
+
+        verify(transactionService, never()).getUserHistory(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void getCardStatistics_success() throws Exception {
+        LocalDate day = LocalDate.of(2025, 11, 20);
+        CardTransferStatisticsDto statistics = new CardTransferStatisticsDto(1L,
+                new TransferTotalsDto(day, new BigDecimal("30.00"), 2, BigDecimal.ZERO, 0),
+                new TransferTotalsDto(LocalDate.of(2025, 11, 1), new BigDecimal("130.00"), 5, new BigDecimal("40.00"), 1));
+        when(transactionService.getCardStatistics(1L, day, 7L)).thenReturn(statistics);
+
+        mockMvc.perform(get("/transfer/statistics/card/1")
+                        .param("date", "2025-11-20")
+                        .with(currentUser()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.day.debitAmount").value(30.00))
+                .andExpect(jsonPath("$.month.debitCount").value(5))
+                .andExpect(jsonPath("$.month.periodStart").value("2025-11-01"));
+    }
+
+    @Test
+    void rebuildRollups_admin_accepted() throws Exception {
+        when(rollupRebuildJob.start()).thenReturn(new RollupRebuildStatusDto("RUNNING", 0, 0, null, null));
+
+        mockMvc.perform(post("/transfer/statistics/rebuild")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+
+    @Test
+    void rebuildRollups_forbidden() throws Exception {
+        mockMvc.perform(post("/transfer/statistics/rebuild")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(rollupRebuildJob);
+    }
+
+    @Test
+    void export_csv_streamsBody() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 10, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 11, 1, 0, 0);
+        String csv = "id,from_card_id,to_card_id,amount,created_at\n1,1,2,10.00,2025-10-05T10:00\n";
+        StreamingResponseBody body = out -> out.write(csv.getBytes(StandardCharsets.UTF_8));
+        when(transactionExportService.export(from, to, ExportFormat.CSV, false)).thenReturn(body);
+
+        MvcResult result = mockMvc.perform(get("/transfer/export")
+                        .param("from", "2025-10-01T00:00:00")
+                        .param("to", "2025-11-01T00:00:00")
+                        .param("format", "CSV")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string(csv));
+    }
+
+    @Test
+    void export_gzipAccepted_setsContentEncoding() throws Exception {
+        when(transactionExportService.export(any(), any(), eq(ExportFormat.NDJSON), eq(true)))
+                .thenReturn(out -> {});
+
+        mockMvc.perform(get("/transfer/export")
+                        .param("from", "2025-10-01T00:00:00")
+                        .param("to", "2025-11-01T00:00:00")
+                        .header("Accept-Encoding", "gzip, deflate")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+    }
+
+    @Test
+    void export_gzipRefusedByQValue_sendsIdentity() throws Exception {
+        when(transactionExportService.export(any(), any(), eq(ExportFormat.NDJSON), eq(false)))
+                .thenReturn(out -> {});
+
+        mockMvc.perform(get("/transfer/export")
+                        .param("from", "2025-10-01T00:00:00")
+                        .param("to", "2025-11-01T00:00:00")
+                        .header("Accept-Encoding", "gzip;q=0, *")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+    }
+
+    @Test
+    void export_wildcardAccepted_setsContentEncoding() throws Exception {
+        when(transactionExportService.export(any(), any(), eq(ExportFormat.NDJSON), eq(true)))
+                .thenReturn(out -> {});
+
+        mockMvc.perform(get("/transfer/export")
+                        .param("from", "2025-10-01T00:00:00")
+                        .param("to", "2025-11-01T00:00:00")
+                        .header("Accept-Encoding", "br, *;q=0.5")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+    }
+
+    @Test
+    void export_forbidden() throws Exception {
+        mockMvc.perform(get("/transfer/export")
+                        .param("from", "2025-10-01T00:00:00")
+                        .param("to", "2025-11-01T00:00:00")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(transactionExportService);
+    }
+
+    private static RequestPostProcessor currentUser() {
+        return authentication(UsernamePasswordAuthenticationToken.authenticated(
+                new AuthenticatedUser(7L, "+79990000000"), null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
     }
 }
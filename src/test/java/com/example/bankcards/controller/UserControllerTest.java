@@ -1,6 +1,7 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.config.SecurityTestConfig;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.security.JwtService;
@@ -72,6 +73,19 @@ class UserControllerTest {
         verify(userService, never()).getAll(any(), any());
     }
 
+    @Test
+    void getAllSlice_success() throws Exception {
+        when(userService.getAllSlice(any(), any(), anyInt(), anyBoolean()))
+                .thenReturn(new SliceDto<>(List.of(), null, null));
+
+        mockMvc.perform(get("/user/v1/slice")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isArray());
+
+        verify(userService).getAllSlice(any(), isNull(), eq(20), eq(false));
+    }
+
     @Test
     void getOne_success() throws Exception {
         Long userId = 1L;
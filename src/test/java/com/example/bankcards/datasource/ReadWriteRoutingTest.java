@@ -0,0 +1,79 @@
+package com.example.bankcards.datasource;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uses a second, empty database as the replica and tells the two apart by database name.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.replica.enabled=true",
+        "app.datasource.replica.check-interval=PT1H"
+})
+@Import(PostgresTestContainerConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+class ReadWriteRoutingTest {
+
+    private static final String PRIMARY = "test";
+    private static final String REPLICA = "replica";
+
+    @Container
+    private static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:17.6")
+            .withDatabaseName(REPLICA);
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.datasource.replica.url", replica::getJdbcUrl);
+        registry.add("app.datasource.replica.username", replica::getUsername);
+        registry.add("app.datasource.replica.password", replica::getPassword);
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Test
+    void readOnlyTransactions_useReplicaUntilItFails() {
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isUsable());
+
+        assertEquals(REPLICA, currentDatabase(true));
+        assertEquals(PRIMARY, currentDatabase(false));
+        assertEquals(PRIMARY, jdbcTemplate.queryForObject("select current_database()", String.class));
+
+        replica.stop();
+        replicaLagMonitor.check();
+
+        assertFalse(replicaLagMonitor.isUsable());
+        assertEquals(PRIMARY, currentDatabase(true));
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                (String) entityManager.createNativeQuery("select current_database()").getSingleResult());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaLagMonitorTest {
+
+    @Mock
+    private JdbcTemplate replica;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new ReplicaLagMonitor(replica, Duration.ofSeconds(5), meterRegistry);
+    }
+
+    @Test
+    void check_streamingAndCaughtUp_usable() throws SQLException {
+        replication(true, 42, "streaming", 1.5, 0.0);
+
+        monitor.check();
+
+        assertTrue(monitor.isUsable());
+        assertEquals(1.5, meterRegistry.get("datasource.replica.lag").gauge().value());
+    }
+
+    @Test
+    void check_walReceiverDisconnected_unusableEvenIfReplayCaughtUp() throws SQLException {
+        replication(true, 42, "streaming", 0.1, 0.0);
+        monitor.check();
+        assertTrue(monitor.isUsable());
+
+        // the receiver is gone, but everything it had received is replayed
+        replication(true, null, null, null, 0.0);
+        monitor.check();
+
+        assertFalse(monitor.isUsable());
+        assertTrue(Double.isNaN(meterRegistry.get("datasource.replica.lag").gauge().value()));
+        assertEquals(0, meterRegistry.get("datasource.replica.usable").gauge().value());
+    }
+
+    @Test
+    void check_walReceiverReconnecting_unusable() throws SQLException {
+        replication(true, 42, "waiting", 30.0, 0.0);
+
+        monitor.check();
+
+        assertFalse(monitor.isUsable());
+    }
+
+    @Test
+    void check_nothingFromPrimaryWithinMaxLag_unusable() throws SQLException {
+        replication(true, 42, "streaming", 12.0, 0.0);
+
+        monitor.check();
+
+        assertFalse(monitor.isUsable());
+        assertEquals(12.0, meterRegistry.get("datasource.replica.lag").gauge().value());
+    }
+
+    @Test
+    void check_replayBehind_unusable() throws SQLException {
+        replication(true, 42, "streaming", 0.2, 8.0);
+
+        monitor.check();
+
+        assertFalse(monitor.isUsable());
+    }
+
+    @Test
+    void check_receiverStateHidden_unusable() throws SQLException {
+        replication(true, 42, null, null, 0.0);
+
+        monitor.check();
+
+        assertFalse(monitor.isUsable());
+    }
+
+    @Test
+    void check_notInRecovery_usable() throws SQLException {
+        replication(false, null, null, null, 0.0);
+
+        monitor.check();
+
+        assertTrue(monitor.isUsable());
+        assertEquals(0.0, meterRegistry.get("datasource.replica.lag").gauge().value());
+    }
+
+    @Test
+    void check_unreachable_unusable() {
+        when(replica.queryForObject(anyString(), any(RowMapper.class))).thenThrow(new QueryTimeoutException("timeout"));
+
+        monitor.check();
+
+        assertFalse(monitor.isUsable());
+    }
+
+    private void replication(boolean inRecovery, Integer receiverPid, String receiverStatus, Double silence,
+                             Double replayLag) throws SQLException {
+        when(resultSet.getBoolean("in_recovery")).thenReturn(inRecovery);
+        when(resultSet.getObject("receiver_pid", Integer.class)).thenReturn(receiverPid);
+        when(resultSet.getString("receiver_status")).thenReturn(receiverStatus);
+        when(resultSet.getObject("silence", Double.class)).thenReturn(silence);
+        when(resultSet.getObject("replay_lag", Double.class)).thenReturn(replayLag);
+        when(replica.queryForObject(anyString(), any(RowMapper.class)))
+                .thenAnswer(invocation -> invocation.<RowMapper<?>>getArgument(1).mapRow(resultSet, 0));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.CardService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lists pages of cards of different sizes and counts the statements Hibernate prepares, which
+ * must not grow with the number of cards on the page.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class CardSummaryQueryCountTest {
+
+    private static final BigDecimal BALANCE = new BigDecimal("100.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void myCards_pageRunsSelectAndCountOnly() {
+        for (int cards : new int[]{5, 40}) {
+            User owner = fixtures.user("Page" + cards);
+            List<Card> saved = fixtures.cards(owner, cards, BALANCE);
+            statistics.clear();
+
+            Page<CardSummaryDto> page = cardService.getAllMyCards(new CardFilter(null),
+                    PageRequest.of(0, cards, Sort.by("id")), owner.getId());
+
+            assertEquals(cards, page.getNumberOfElements());
+            assertEquals(cards, page.getTotalElements());
+            CardSummaryDto first = page.getContent().getFirst();
+            assertEquals(saved.getFirst().getId(), first.id());
+            assertEquals("**** **** **** " + saved.getFirst().getLast4(), first.cardNumber());
+            assertEquals(owner.getPhoneNumber(), first.ownerPhoneNumber());
+            // the page and its count, whatever the number of cards
+            assertEquals(2, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+        }
+    }
+
+    @Test
+    void adminListing_filteredByOwner_pageRunsSelectAndCountOnly() {
+        String surname = "Listing" + ThreadLocalRandom.current().nextInt(1_000_000);
+        for (int i = 0; i < 3; i++) {
+            fixtures.cards(fixtures.user(surname), 10, BALANCE);
+        }
+        statistics.clear();
+
+        Page<CardSummaryDto> page = cardService.getAll(new AdminCardFilter(null, surname), PageRequest.of(0, 20));
+
+        assertEquals(20, page.getNumberOfElements());
+        assertEquals(30, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void adminListing_cardWithoutOwner_listedAndCounted() {
+        long id = fixtures.card(null, BALANCE).getId();
+
+        Page<CardSummaryDto> page = cardService.getAll(new AdminCardFilter(null, null),
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertEquals(id, page.getContent().getFirst().id());
+        assertNull(page.getContent().getFirst().ownerPhoneNumber());
+        assertEquals(cardRepository.count(), page.getTotalElements());
+    }
+
+    @Test
+    void myCards_slicesRunOneSelectEach() {
+        User owner = fixtures.user("Slice");
+        List<Long> saved = fixtures.cards(owner, 45, BALANCE).stream().map(Card::getId).toList();
+
+        List<Long> walked = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            SliceDto<CardSummaryDto> slice = cardService.getMyCardsSlice(new CardFilter(null), cursor, 20, owner.getId());
+            // no count, whichever slice it is
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+            assertNull(slice.approximateTotal());
+            slice.items().forEach(card -> walked.add(card.id()));
+            sizes.add(slice.items().size());
+            cursor = slice.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(20, 20, 5), sizes);
+        assertEquals(saved.stream().sorted().toList(), walked);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.service.TransactionPartitionManager;
+import com.example.bankcards.util.CursorCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks through {@code EXPLAIN} that the time-bounded history queries only touch the
+ * partitions of {@code transactions} that can hold matching rows.
+ */
+@SpringBootTest
+@Import(PostgresTestContainerConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionPartitionPruningTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+    private static final YearMonth FEBRUARY = JANUARY.plusMonths(1);
+    private static final YearMonth MARCH = JANUARY.plusMonths(2);
+    private static final YearMonth APRIL = JANUARY.plusMonths(3);
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createPartitions() {
+        partitionManager.createPartitions(JANUARY, APRIL);
+    }
+
+    @Test
+    void cardHistory_monthRange_scansOnlyThatMonth() {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(
+                FEBRUARY.atDay(1).atStartOfDay(), MARCH.atDay(1).atStartOfDay(), null, null);
+
+        String plan = explain(TransactionHistoryRepository.cardHistorySql(filter, null),
+                TransactionHistoryRepository.cardHistoryParameters(1L, filter, null, 21));
+
+        assertScans(plan, List.of(FEBRUARY), List.of(JANUARY, MARCH, APRIL));
+    }
+
+    @Test
+    void cardHistory_cursor_skipsNewerPartitions() {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(JANUARY.atDay(1).atStartOfDay(), null, null, null);
+        CursorCodec.Position after = new CursorCodec.Position(FEBRUARY.atDay(15).atTime(12, 0), 42L);
+
+        String plan = explain(TransactionHistoryRepository.cardHistorySql(filter, after),
+                TransactionHistoryRepository.cardHistoryParameters(1L, filter, after, 21));
+
+        assertScans(plan, List.of(JANUARY, FEBRUARY), List.of(MARCH, APRIL));
+    }
+
+    @Test
+    void userHistory_monthRange_scansOnlyThatMonth() {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(
+                MARCH.atDay(1).atStartOfDay(), APRIL.atDay(1).atStartOfDay(), null, null);
+
+        String plan = explain(TransactionHistoryRepository.userHistorySql(filter, null),
+                TransactionHistoryRepository.userHistoryParameters(1L, filter, null, 21));
+
+        assertScans(plan, List.of(MARCH), List.of(JANUARY, FEBRUARY, APRIL));
+    }
+
+    private String explain(String sql, MapSqlParameterSource parameters) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, parameters, String.class));
+    }
+
+    private static void assertScans(String plan, List<YearMonth> scanned, List<YearMonth> pruned) {
+        for (YearMonth month : scanned) {
+            assertTrue(plan.contains(TransactionPartitionManager.partitionName(month)),
+                    "expected a scan of " + month + " in\n" + plan);
+        }
+        for (YearMonth month : pruned) {
+            assertFalse(plan.contains(TransactionPartitionManager.partitionName(month)),
+                    "expected " + month + " to be pruned from\n" + plan);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AppUserDetailsServiceTest {
+
+    private static final String PHONE_NUMBER = "+79990000000";
+    private static final String PASSWORD = "password123";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private AppUserDetailsService userDetailsService;
+
+    private DaoAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = new DaoAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(new BCryptPasswordEncoder(5));
+        provider.setUserDetailsPasswordService(userDetailsService);
+    }
+
+    @Test
+    void login_weakerHash_isRehashedWithConfiguredStrength() {
+        String storedHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        when(userRepository.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(user(storedHash)));
+        when(userRepository.updatePassword(eq(1L), eq(storedHash), anyString())).thenReturn(1);
+
+        Authentication authentication = provider.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(PHONE_NUMBER, PASSWORD));
+
+        ArgumentCaptor<String> newHash = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updatePassword(eq(1L), eq(storedHash), newHash.capture());
+        assertTrue(newHash.getValue().startsWith("$2a$05$"));
+        assertTrue(new BCryptPasswordEncoder(5).matches(PASSWORD, newHash.getValue()));
+        AppUserDetails principal = (AppUserDetails) authentication.getPrincipal();
+        assertEquals(1L, principal.getId());
+        assertEquals(3, principal.getTokenVersion());
+    }
+
+    @Test
+    void login_currentHash_isKept() {
+        when(userRepository.findByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(user(new BCryptPasswordEncoder(5).encode(PASSWORD))));
+
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(PHONE_NUMBER, PASSWORD));
+
+        verify(userRepository, never()).updatePassword(any(), any(), any());
+    }
+
+    private static User user(String passwordHash) {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        User user = new User();
+        user.setId(1L);
+        user.setPhoneNumber(PHONE_NUMBER);
+        user.setPassword(passwordHash);
+        user.setTokenVersion(3);
+        user.setRoles(Set.of(role));
+        return user;
+    }
+}
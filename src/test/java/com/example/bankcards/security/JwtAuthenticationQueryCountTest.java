@@ -0,0 +1,127 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Authenticates a burst of requests through the real filter chain and counts the statements
+ * Hibernate prepares. The requests go to an admin-only endpoint with a user token, so they are
+ * authenticated and then refused without the controller touching the database.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@Import(PostgresTestContainerConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+class JwtAuthenticationQueryCountTest {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS = 2000;
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String phoneNumber;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        phoneNumber = "+7" + ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L);
+        userService.create(new UserDto(phoneNumber, PASSWORD, "Load", "Test", Set.of("ROLE_USER")));
+        token = login(PASSWORD);
+    }
+
+    @Test
+    void authenticatedRequests_runNoQueries() throws Exception {
+        // the first request reads the user's token version
+        mockMvc.perform(get("/user/v1").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        statistics.clear();
+
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < REQUESTS; i++) {
+                statuses.add(executor.submit(() -> mockMvc.perform(get("/user/v1")
+                                .header("Authorization", "Bearer " + token))
+                        .andReturn().getResponse().getStatus()));
+            }
+        }
+
+        for (Future<Integer> status : statuses) {
+            assertEquals(403, status.get());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void passwordChange_revokesIssuedTokens() throws Exception {
+        mockMvc.perform(get("/user/v1").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        Long userId = userRepository.findByPhoneNumber(phoneNumber).orElseThrow().getId();
+
+        userService.patch(userId, objectMapper.readTree("{\"password\": \"newPassword123\"}"));
+
+        mockMvc.perform(get("/user/v1").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/user/v1").header("Authorization", "Bearer " + login("newPassword123")))
+                .andExpect(status().isForbidden());
+    }
+
+    private String login(String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(phoneNumber, password))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("token").asText();
+    }
+}
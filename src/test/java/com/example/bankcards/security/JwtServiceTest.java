@@ -0,0 +1,101 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.security.JwtService.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "supersecretkeysupersecretkeysupersecretkey12";
+    private static final AppUserDetails USER = new AppUserDetails(7L, "+79990000000", "encoded", 3,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService(SECRET, 100, meterRegistry, clock);
+    }
+
+    @Test
+    void verify_repeatedToken_parsesOnceAndReturnsClaims() {
+        String token = jwtService.generateToken(USER);
+
+        VerifiedToken first = jwtService.verify(token).orElseThrow();
+        VerifiedToken second = jwtService.verify(token).orElseThrow();
+
+        assertEquals(new AuthenticatedUser(7L, "+79990000000"), first.user());
+        assertEquals(3, first.tokenVersion());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), first.authorities());
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwt.verified").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void verify_expiredToken_returnsEmptyEvenIfCached() {
+        String token = jwtService.generateToken(USER);
+        assertTrue(jwtService.verify(token).isPresent());
+
+        clock.advance(Duration.ofMinutes(61));
+
+        assertTrue(jwtService.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_tamperedOrForeignToken_returnsEmpty() {
+        JwtService other = new JwtService("another" + SECRET, 100, new SimpleMeterRegistry(), clock);
+        String token = jwtService.generateToken(USER);
+        String foreign = other.generateToken(new AppUserDetails(8L, "+79991111111", "encoded", 0,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + foreign.split("\\.")[1] + "." + parts[2];
+
+        assertTrue(jwtService.verify(token).isPresent());
+        assertTrue(jwtService.verify(tampered).isEmpty());
+        assertTrue(jwtService.verify(foreign).isEmpty());
+        assertTrue(jwtService.verify("not-a-token").isEmpty());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.config.RateLimitProperties.Route;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private static final List<Route> ROUTES = List.of(
+            new Route("login", HttpMethod.POST, "/auth/login", 2, Duration.ofSeconds(10)),
+            new Route("transfer", HttpMethod.POST, "/transfer/transfer", 1, Duration.ofSeconds(1)));
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final FilterChain chain = (_, _) -> passed.incrementAndGet();
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(new RateLimitProperties(true, 1000L, ROUTES), meterRegistry, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void anonymousClient_beyondCapacity_isRefusedUntilRefilled() throws Exception {
+        assertEquals(200, send(request("POST", "/auth/login", "10.0.0.1")).getStatus());
+        assertEquals(200, send(request("POST", "/auth/login", "10.0.0.1")).getStatus());
+
+        MockHttpServletResponse refused = send(request("POST", "/auth/login", "10.0.0.1"));
+
+        assertEquals(429, refused.getStatus());
+        assertEquals("5", refused.getHeader("Retry-After"));
+        assertEquals(200, send(request("POST", "/auth/login", "10.0.0.2")).getStatus());
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        assertEquals(200, send(request("POST", "/auth/login", "10.0.0.1")).getStatus());
+        assertEquals(4, passed.get());
+        assertEquals(4.0, meterRegistry.get("rate.limit.requests").tag("route", "login").tag("result", "allowed")
+                .counter().count());
+        assertEquals(1.0, meterRegistry.get("rate.limit.requests").tag("route", "login").tag("result", "rejected")
+                .counter().count());
+    }
+
+    @Test
+    void authenticatedRequests_areCountedPerUser() throws Exception {
+        authenticate(7L);
+        assertEquals(200, send(request("POST", "/transfer/transfer", "10.0.0.1")).getStatus());
+        assertEquals(429, send(request("POST", "/transfer/transfer", "10.0.0.2")).getStatus());
+
+        authenticate(8L);
+        assertEquals(200, send(request("POST", "/transfer/transfer", "10.0.0.1")).getStatus());
+        assertEquals(2, passed.get());
+    }
+
+    @Test
+    void unlimitedRoutesAndMethods_passThrough() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, send(request("GET", "/auth/login", "10.0.0.1")).getStatus());
+            assertEquals(200, send(request("GET", "/transfer/history", "10.0.0.1")).getStatus());
+        }
+        assertEquals(20, passed.get());
+    }
+
+    @Test
+    void disabled_passesEverything() throws Exception {
+        filter = new RateLimitFilter(new RateLimitProperties(false, 1000L, ROUTES), meterRegistry, now::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, send(request("POST", "/auth/login", "10.0.0.1")).getStatus());
+        }
+        assertEquals(10, passed.get());
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static void authenticate(long userId) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                new AuthenticatedUser(userId, "+7999000000" + userId), null, List.of()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.UserRepository.TokenVersion;
+import com.example.bankcards.service.UserCredentialsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionCacheTest {
+
+    private static final long USER_ID = 7L;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final AtomicInteger stored = new AtomicInteger(1);
+    private TokenVersionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TokenVersionCache(userRepository, new SimpleMeterRegistry(), 100);
+        lenient().when(userRepository.findTokenVersions(anyCollection()))
+                .thenAnswer(_ -> List.of(tokenVersion(stored.get())));
+    }
+
+    @Test
+    void isCurrent_loadsOnceAndServesFromCache() {
+        assertTrue(cache.isCurrent(USER_ID, 1));
+        assertFalse(cache.isCurrent(USER_ID, 2));
+
+        verify(userRepository, times(1)).findTokenVersions(anyCollection());
+    }
+
+    @Test
+    void refresh_picksUpVersionChangedElsewhere() {
+        assertTrue(cache.isCurrent(USER_ID, 1));
+        stored.set(2);
+
+        cache.refresh();
+
+        assertTrue(cache.isCurrent(USER_ID, 2));
+    }
+
+    @Test
+    void refresh_userDeleted_rejectsTokens() {
+        assertTrue(cache.isCurrent(USER_ID, 1));
+        when(userRepository.findTokenVersions(anyCollection())).thenReturn(List.of());
+
+        cache.refresh();
+
+        assertFalse(cache.isCurrent(USER_ID, 1));
+    }
+
+    @Test
+    void onCredentialsChanged_reloadsOnNextRequest() {
+        assertTrue(cache.isCurrent(USER_ID, 1));
+        stored.set(2);
+
+        cache.onCredentialsChanged(new UserCredentialsChangedEvent(List.of(USER_ID)));
+
+        assertFalse(cache.isCurrent(USER_ID, 1));
+        assertTrue(cache.isCurrent(USER_ID, 2));
+    }
+
+    @Test
+    void refresh_invalidatedWhileQuerying_keepsVersionLoadedAfterwards() {
+        assertTrue(cache.isCurrent(USER_ID, 1));
+        when(userRepository.findTokenVersions(anyCollection())).thenAnswer(_ -> {
+            // the refresh has read version 1 when the password change commits and a new token is used
+            List<TokenVersion> beforeChange = List.of(tokenVersion(stored.get()));
+            stored.set(2);
+            cache.onCredentialsChanged(new UserCredentialsChangedEvent(List.of(USER_ID)));
+            assertTrue(cache.isCurrent(USER_ID, 2));
+            return beforeChange;
+        }).thenAnswer(_ -> List.of(tokenVersion(stored.get())));
+
+        cache.refresh();
+
+        // the version loaded after the invalidation is not overwritten with the one read before it
+        assertFalse(cache.isCurrent(USER_ID, 1));
+        assertTrue(cache.isCurrent(USER_ID, 2));
+        verify(userRepository, times(3)).findTokenVersions(anyCollection());
+    }
+
+    private static TokenVersion tokenVersion(int version) {
+        return new TokenVersion() {
+            @Override
+            public Long getId() {
+                return USER_ID;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return version;
+            }
+        };
+    }
+}
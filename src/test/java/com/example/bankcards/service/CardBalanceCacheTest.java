@@ -0,0 +1,137 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.CardBalance;
+import com.example.bankcards.service.CardBalanceCache.Balance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardBalanceCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CardBalanceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CardBalanceCache(cardRepository, ledgerService, meterRegistry, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_concurrentMisses_loadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cardRepository.findBalance(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(balanceOf(7L, CardStatus.ACTIVE, "100.00"));
+        });
+
+        List<Future<Optional<Balance>>> reads = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                reads.add(executor.submit(() -> cache.get(1L)));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<Optional<Balance>> read : reads) {
+                assertEquals(new BigDecimal("100.00"), read.get(5, TimeUnit.SECONDS).orElseThrow().moneyAmount());
+            }
+        }
+
+        verify(cardRepository, times(1)).findBalance(1L);
+    }
+
+    @Test
+    void get_afterCommittedTransfer_reloadsCard() {
+        when(cardRepository.findBalance(1L)).thenReturn(
+                Optional.of(balanceOf(7L, CardStatus.ACTIVE, "100.00")),
+                Optional.of(balanceOf(7L, CardStatus.ACTIVE, "60.00")));
+
+        assertEquals(new BigDecimal("100.00"), cache.get(1L).orElseThrow().moneyAmount());
+        assertEquals(new BigDecimal("100.00"), cache.get(1L).orElseThrow().moneyAmount());
+        cache.onBalancesChanged(new BalancesChangedEvent(List.of(1L, 2L)));
+
+        assertEquals(new BigDecimal("60.00"), cache.get(1L).orElseThrow().moneyAmount());
+        verify(cardRepository, times(2)).findBalance(1L);
+        assertEquals(1.0 / 3, meterRegistry.get("cache.hit.ratio").tag("cache", "card.balances").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void get_afterCardChange_reloadsStatus() {
+        when(cardRepository.findBalance(1L)).thenReturn(
+                Optional.of(balanceOf(7L, CardStatus.ACTIVE, "100.00")),
+                Optional.of(balanceOf(7L, CardStatus.BLOCKED, "100.00")));
+
+        assertEquals(CardStatus.ACTIVE, cache.get(1L).orElseThrow().cardStatus());
+        cache.onCardChanged(new CardChangedEvent(List.of(1L)));
+
+        assertEquals(CardStatus.BLOCKED, cache.get(1L).orElseThrow().cardStatus());
+    }
+
+    @Test
+    void get_ledgerEnabled_returnsSnapshotPlusEntries() {
+        when(cardRepository.findBalance(1L)).thenReturn(Optional.of(balanceOf(7L, CardStatus.ACTIVE, "1000.00")));
+        when(ledgerService.isEnabled()).thenReturn(true);
+        when(ledgerService.balance(1L)).thenReturn(Optional.of(new BigDecimal("1250.00")));
+
+        assertEquals(new Balance(7L, CardStatus.ACTIVE, new BigDecimal("1250.00")), cache.get(1L).orElseThrow());
+    }
+
+    @Test
+    void get_missingCard_isNotCached() {
+        when(cardRepository.findBalance(1L)).thenReturn(Optional.empty());
+
+        assertTrue(cache.get(1L).isEmpty());
+        assertTrue(cache.get(1L).isEmpty());
+
+        verify(cardRepository, times(2)).findBalance(1L);
+    }
+
+    private static CardBalance balanceOf(Long ownerId, CardStatus status, String moneyAmount) {
+        return new CardBalance() {
+            @Override
+            public Long getOwnerId() {
+                return ownerId;
+            }
+
+            @Override
+            public BigDecimal getMoneyAmount() {
+                return new BigDecimal(moneyAmount);
+            }
+
+            @Override
+            public CardStatus getCardStatus() {
+                return status;
+            }
+        };
+    }
+}
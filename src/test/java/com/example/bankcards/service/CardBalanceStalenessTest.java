@@ -0,0 +1,114 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.ForbiddenOperationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads balances through the cache while other threads keep loading the same cards, and checks
+ * that every read made after a transfer has returned sees that transfer.
+ */
+@SpringBootTest
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class CardBalanceStalenessTest {
+
+    private static final int READERS = 4;
+    private static final int TRANSFERS = 200;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void balanceAfterCommittedTransfer_isNeverStale() throws Exception {
+        User owner = fixtures.user("Balance");
+        long from = fixtures.card(owner, INITIAL_BALANCE).getId();
+        long to = fixtures.card(owner, INITIAL_BALANCE).getId();
+        BigDecimal amount = new BigDecimal("1.00");
+        double hitsBefore = hits();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(READERS)) {
+            for (int i = 0; i < READERS; i++) {
+                long cardId = i % 2 == 0 ? from : to;
+                readers.add(executor.submit(() -> {
+                    while (running.get()) {
+                        cardService.getBalance(cardId, owner.getId());
+                    }
+                    return null;
+                }));
+            }
+
+            for (int i = 1; i <= TRANSFERS; i++) {
+                if (i % 10 == 0) {
+                    transactionService.transferBatch(List.of(new TransferRequest(from, to, amount)), BatchTransferMode.ALL_OR_NOTHING,
+                            owner.getId());
+                } else {
+                    transactionService.transferBetweenCards(from, to, amount, owner.getId());
+                }
+                BigDecimal moved = amount.multiply(BigDecimal.valueOf(i));
+                assertEquals(INITIAL_BALANCE.subtract(moved), cardService.getBalance(from, owner.getId()));
+                assertEquals(INITIAL_BALANCE.add(moved), cardService.getBalance(to, owner.getId()));
+            }
+
+            running.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(1, TimeUnit.MINUTES);
+            }
+        }
+
+        assertTrue(hits() > hitsBefore);
+    }
+
+    @Test
+    void balanceAfterCommittedBlock_isRefused() {
+        User owner = fixtures.user("Balance");
+        long cardId = fixtures.card(owner, INITIAL_BALANCE).getId();
+        assertEquals(INITIAL_BALANCE, cardService.getBalance(cardId, owner.getId()));
+
+        cardService.patch(cardId, objectMapper.createObjectNode().put("cardStatus", CardStatus.BLOCKED.name()));
+
+        assertThrows(ForbiddenOperationException.class, () -> cardService.getBalance(cardId, owner.getId()));
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "card.balances").tag("result", "hit")
+                .functionCounter().count();
+    }
+}
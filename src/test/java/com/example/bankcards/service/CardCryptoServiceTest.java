@@ -0,0 +1,74 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CardCryptoProperties;
+import com.example.bankcards.crypto.CardCiphertextFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardCryptoServiceTest {
+
+    private static final String KEY_0 = "6iXCljpSBpxAB0MiBEemoVCxM5343fnXhKaYN6NF78M=";
+    private static final String KEY_1 = "q0q8o3Jc1yJ2m8mXn6mS9wYg4H2tq3h9Zr8v5mUdQ1k=";
+    private static final String PAN = "1234 5678 9012 3456";
+
+    private CardCryptoService service(Map<Integer, String> keys, Integer currentKeyId) {
+        CardCryptoService service = new CardCryptoService(new CardCryptoProperties(KEY_0, null, keys, currentKeyId));
+        service.init();
+        return service;
+    }
+
+    @Test
+    void seal_usesCurrentKeyId() {
+        CardCryptoService service = service(Map.of(1, KEY_1), 1);
+
+        byte[] sealed = service.seal(PAN);
+
+        assertEquals(1, CardCiphertextFormat.keyId(sealed));
+        assertEquals(PAN, service.open(sealed));
+    }
+
+    @Test
+    void open_afterRotation_decryptsOldKey() {
+        byte[] sealedWithOldKey = service(Map.of(), null).seal(PAN);
+
+        CardCryptoService rotated = service(Map.of(1, KEY_1), 1);
+
+        assertEquals(PAN, rotated.open(sealedWithOldKey));
+    }
+
+    @Test
+    void reseal_movesCiphertextToCurrentKey() {
+        byte[] sealedWithOldKey = service(Map.of(), null).seal(PAN);
+        CardCryptoService rotated = service(Map.of(1, KEY_1), 1);
+
+        byte[] resealed = rotated.reseal(sealedWithOldKey);
+
+        assertEquals(1, CardCiphertextFormat.keyId(resealed));
+        assertEquals(PAN, rotated.open(resealed));
+        assertSame(resealed, rotated.reseal(resealed));
+    }
+
+    @Test
+    void open_unknownKeyId_throwsException() {
+        byte[] sealedWithNewKey = service(Map.of(1, KEY_1), 1).seal(PAN);
+
+        CardCryptoService withoutNewKey = service(Map.of(), null);
+
+        assertThrows(IllegalStateException.class, () -> withoutNewKey.open(sealedWithNewKey));
+    }
+
+    @Test
+    void blindIndex_stableAcrossRotation() {
+        assertArrayEquals(service(Map.of(), null).blindIndex(PAN), service(Map.of(1, KEY_1), 1).blindIndex(PAN));
+    }
+
+    @Test
+    void init_currentKeyNotConfigured_throwsException() {
+        CardCryptoService service = new CardCryptoService(new CardCryptoProperties(KEY_0, null, Map.of(), 2));
+
+        assertThrows(IllegalStateException.class, service::init);
+    }
+}
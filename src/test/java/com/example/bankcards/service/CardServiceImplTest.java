@@ -1,6 +1,8 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardBlockRequest;
 import com.example.bankcards.entity.User;
@@ -9,9 +11,14 @@ import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ForbiddenOperationException;
 import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.AdminCardFilter;
 import com.example.bankcards.repository.CardBlockRequestRepository;
+import com.example.bankcards.repository.CardFilter;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSummaryRepository;
+import com.example.bankcards.repository.TableStatisticsRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CursorCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -22,14 +29,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +51,12 @@ class CardServiceImplTest {
     @Mock
     private CardRepository cardRepository;
 
+    @Mock
+    private CardSummaryRepository cardSummaryRepository;
+
+    @Mock
+    private TableStatisticsRepository tableStatisticsRepository;
+
     @Mock
     private UserRepository userRepository;
 
@@ -50,6 +69,15 @@ class CardServiceImplTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private CardBalanceCache cardBalanceCache;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -111,51 +139,142 @@ class CardServiceImplTest {
         verify(cardRepository).save(card);
     }
 
+    @Test
+    void create_duplicateCardNumber_throwsException() {
+        when(cardRepository.existsByPan(cardDto.cardNumber())).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> cardService.create(cardDto));
+        verify(userRepository, never()).findByPhoneNumber(anyString());
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
     @Test
     void getBalance_success() {
-        when(cardRepository.findByIdAndOwner(1L, user)).thenReturn(Optional.of(card));
+        when(cardBalanceCache.get(1L)).thenReturn(Optional.of(balanceOf(card)));
 
-        BigDecimal balance = cardService.getBalance(1L, user);
+        BigDecimal balance = cardService.getBalance(1L, 1L);
 
         assertEquals(card.getMoneyAmount(), balance);
-        verify(cardRepository).findByIdAndOwner(1L, user);
+        verifyNoInteractions(cardRepository);
     }
 
     @Test
     void getBalance_cardBlocked_throwsException() {
         card.setCardStatus(CardStatus.BLOCKED);
-        when(cardRepository.findByIdAndOwner(1L, user)).thenReturn(Optional.of(card));
+        when(cardBalanceCache.get(1L)).thenReturn(Optional.of(balanceOf(card)));
+
+        assertThrows(ForbiddenOperationException.class, () -> cardService.getBalance(1L, 1L));
+    }
+
+    @Test
+    void getAllSlice_moreRows_returnsSliceWithCursorAndTotal() {
+        List<CardSummaryDto> rows = List.of(summary(4L), summary(5L), summary(6L));
+        when(cardSummaryRepository.findSlice(any(Specification.class), isNull(), eq(3))).thenReturn(rows);
+        when(tableStatisticsRepository.approximateRowCount("card")).thenReturn(1000L);
+
+        SliceDto<CardSummaryDto> result = cardService.getAllSlice(new AdminCardFilter(null, null), null, 2, true);
+
+        assertEquals(rows.subList(0, 2), result.items());
+        assertEquals(5L, CursorCodec.decodeId(result.nextCursor()));
+        assertEquals(1000L, result.approximateTotal());
+    }
+
+    @Test
+    void getMyCardsSlice_ledgerEnabled_returnsLedgerBalances() {
+        when(cardSummaryRepository.findSlice(any(Specification.class), isNull(), eq(21)))
+                .thenReturn(List.of(summary(4L), summary(5L)));
+        when(ledgerService.isEnabled()).thenReturn(true);
+        when(ledgerService.balances(List.of(4L, 5L))).thenReturn(Map.of(4L, new BigDecimal("40.00")));
+
+        SliceDto<CardSummaryDto> result = cardService.getMyCardsSlice(new CardFilter(null), null, 20, 1L);
+
+        assertEquals(new BigDecimal("40.00"), result.items().get(0).moneyAmount());
+        assertEquals(new BigDecimal("100.00"), result.items().get(1).moneyAmount());
+    }
+
+    @Test
+    void getAllSlice_filteredLastSlice_returnsNoCursorAndNoTotal() {
+        when(cardSummaryRepository.findSlice(any(Specification.class), eq(5L), eq(3)))
+                .thenReturn(List.of(summary(6L)));
+
+        SliceDto<CardSummaryDto> result = cardService.getAllSlice(new AdminCardFilter(null, "Doe"),
+                CursorCodec.encodeId(5L), 2, true);
 
-        assertThrows(ForbiddenOperationException.class, () -> cardService.getBalance(1L, user));
-        verify(cardRepository).findByIdAndOwner(1L, user);
+        assertEquals(1, result.items().size());
+        assertNull(result.nextCursor());
+        assertNull(result.approximateTotal());
+        verifyNoInteractions(tableStatisticsRepository);
+    }
+
+    @Test
+    void getMyCardsSlice_invalidSizeOrCursor_throwsException() {
+        CardFilter filter = new CardFilter(null);
+
+        assertThrows(BadRequestException.class, () -> cardService.getMyCardsSlice(filter, null, 0, 1L));
+        assertThrows(BadRequestException.class, () -> cardService.getMyCardsSlice(filter, null, 101, 1L));
+        assertThrows(BadRequestException.class, () -> cardService.getMyCardsSlice(filter, "not a cursor", 20, 1L));
+        verifyNoInteractions(cardSummaryRepository);
+    }
+
+    @Test
+    void getBalance_foreignCard_throwsException() {
+        when(cardBalanceCache.get(1L)).thenReturn(Optional.of(balanceOf(card)));
+
+        assertThrows(EntityNotFoundException.class, () -> cardService.getBalance(1L, 2L));
+    }
+
+    @Test
+    void getBalance_cardWithoutOwner_throwsNotFound() {
+        when(cardBalanceCache.get(1L)).thenReturn(Optional.of(
+                new CardBalanceCache.Balance(null, CardStatus.ACTIVE, new BigDecimal("100.00"))));
+
+        assertThrows(EntityNotFoundException.class, () -> cardService.getBalance(1L, 1L));
+    }
+
+    @Test
+    void getBalance_cardNotFound_throwsException() {
+        when(cardBalanceCache.get(1L)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> cardService.getBalance(1L, 1L));
     }
 
     @Test
     void createBlockRequest_success() {
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardRepository.existsByIdAndOwner_Id(1L, 1L)).thenReturn(true);
+        when(cardRepository.getReferenceById(1L)).thenReturn(card);
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
         when(requestRepository.existsByCardAndStatus(card, BlockRequestStatus.PENDING)).thenReturn(false);
 
-        cardService.createBlockRequest(1L, user);
+        cardService.createBlockRequest(1L, 1L);
 
-        verify(requestRepository).save(any(CardBlockRequest.class));
+        verify(requestRepository).save(argThat(request -> request.getCard() == card && request.getUser() == user));
     }
 
     @Test
     void createBlockRequest_alreadyExists_throwsException() {
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardRepository.existsByIdAndOwner_Id(1L, 1L)).thenReturn(true);
+        when(cardRepository.getReferenceById(1L)).thenReturn(card);
         when(requestRepository.existsByCardAndStatus(card, BlockRequestStatus.PENDING)).thenReturn(true);
 
-        assertThrows(BadRequestException.class, () -> cardService.createBlockRequest(1L, user));
+        assertThrows(BadRequestException.class, () -> cardService.createBlockRequest(1L, 1L));
         verify(requestRepository, never()).save(any());
     }
 
     @Test
     void createBlockRequest_notOwner_throwsException() {
-        User anotherUser = new User();
-        anotherUser.setId(2L);
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardRepository.existsByIdAndOwner_Id(1L, 2L)).thenReturn(false);
+        when(cardRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(ForbiddenOperationException.class, () -> cardService.createBlockRequest(1L, 2L));
+        verify(requestRepository, never()).save(any());
+    }
+
+    @Test
+    void createBlockRequest_cardNotFound_throwsException() {
+        when(cardRepository.existsByIdAndOwner_Id(1L, 1L)).thenReturn(false);
+        when(cardRepository.existsById(1L)).thenReturn(false);
 
-        assertThrows(ForbiddenOperationException.class, () -> cardService.createBlockRequest(1L, anotherUser));
+        assertThrows(EntityNotFoundException.class, () -> cardService.createBlockRequest(1L, 1L));
         verify(requestRepository, never()).save(any());
     }
 
@@ -211,6 +330,7 @@ class CardServiceImplTest {
 
         assertEquals(CardStatus.BLOCKED, card.getCardStatus());
         verify(cardRepository).save(card);
+        verify(eventPublisher).publishEvent(new CardChangedEvent(List.of(1L)));
     }
 
     @Test
@@ -222,4 +342,13 @@ class CardServiceImplTest {
 
         verify(cardRepository).delete(card);
     }
+
+    private static CardBalanceCache.Balance balanceOf(Card card) {
+        return new CardBalanceCache.Balance(card.getOwner().getId(), card.getCardStatus(), card.getMoneyAmount());
+    }
+
+    private static CardSummaryDto summary(Long id) {
+        return new CardSummaryDto(id, "**** **** **** 3456", YearMonth.of(2027, 12),
+                new BigDecimal("100.00"), CardStatus.ACTIVE, "+79999999999");
+    }
 }
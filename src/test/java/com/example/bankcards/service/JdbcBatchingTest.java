@@ -0,0 +1,112 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that bulk writes reach the database as JDBC batches, by counting the statements
+ * Hibernate prepares: a batch is prepared once, unbatched writes once per row.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class JdbcBatchingTest {
+
+    private static final int ROWS = 120;
+    private static final int BATCH_SIZE = 50;
+    private static final int BATCHES = (ROWS + BATCH_SIZE - 1) / BATCH_SIZE;
+    private static final BigDecimal BALANCE = new BigDecimal("100.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveAllTransactions_insertsInBatches() {
+        List<Card> cards = fixtures.cards(fixtures.user("Batch"), 2, BALANCE);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add(new Transaction(cards.get(0), cards.get(1), BigDecimal.ONE, LocalDateTime.now()));
+        }
+        statistics.clear();
+
+        transactionRepository.saveAll(transactions);
+
+        assertEquals(ROWS, statistics.getEntityInsertCount());
+        // at most one sequence call per allocation block plus the initial one, and one statement per insert batch
+        assertTrue(statistics.getPrepareStatementCount() <= (BATCHES + 1) + BATCHES,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void cardPatchMany_updatesInBatches() throws Exception {
+        List<Long> ids = fixtures.cards(fixtures.user("Batch"), ROWS, BALANCE).stream().map(Card::getId).toList();
+        statistics.clear();
+
+        cardService.patchMany(ids, objectMapper.readTree("{\"cardStatus\": \"BLOCKED\"}"));
+
+        assertEquals(ROWS, statistics.getEntityUpdateCount());
+        // one select for findAllById, one statement per update batch
+        assertEquals(1 + BATCHES, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void userPatchMany_updatesInBatches() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            ids.add(fixtures.user("Batch").getId());
+        }
+        statistics.clear();
+
+        userService.patchMany(ids, objectMapper.readTree("{\"surname\": \"Batched\"}"));
+
+        assertEquals(ROWS, statistics.getEntityUpdateCount());
+        assertEquals(1 + BATCHES, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.CardSummaryDto;
+import com.example.bankcards.dto.SliceDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardFilter;
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With the ledger enabled, transfers leave {@code card.money_amount} at the last snapshot; every
+ * card listing and DTO must still show snapshot plus entries.
+ */
+@SpringBootTest(properties = {"app.ledger.enabled=true", "app.ledger.compaction.min-entries=1000000"})
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class LedgerCardListingTest {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void listingsAfterLedgerTransfers_showLedgerBalances() {
+        User owner = fixtures.user("Ledger");
+        long from = fixtures.card(owner, INITIAL_BALANCE).getId();
+        long to = fixtures.card(owner, INITIAL_BALANCE).getId();
+
+        transactionService.transferBetweenCards(from, to, new BigDecimal("100.00"), owner.getId());
+        transactionService.transferBatch(List.of(new TransferRequest(from, to, new BigDecimal("50.00"))),
+                BatchTransferMode.ALL_OR_NOTHING, owner.getId());
+
+        assertEquals(INITIAL_BALANCE, cardRepository.findById(from).orElseThrow().getMoneyAmount());
+        BigDecimal fromBalance = new BigDecimal("850.00");
+        BigDecimal toBalance = new BigDecimal("1150.00");
+
+        Page<CardSummaryDto> page = cardService.getAllMyCards(new CardFilter(null),
+                PageRequest.of(0, 10, Sort.by("id")), owner.getId());
+        assertEquals(List.of(fromBalance, toBalance), page.getContent().stream().map(CardSummaryDto::moneyAmount).toList());
+        assertEquals(2, page.getTotalElements());
+
+        SliceDto<CardSummaryDto> slice = cardService.getMyCardsSlice(new CardFilter(null), null, 1, owner.getId());
+        assertEquals(fromBalance, slice.items().getFirst().moneyAmount());
+        slice = cardService.getMyCardsSlice(new CardFilter(null), slice.nextCursor(), 1, owner.getId());
+        assertEquals(toBalance, slice.items().getFirst().moneyAmount());
+
+        assertEquals(fromBalance, cardService.getOne(from).moneyAmount());
+        assertEquals(toBalance, cardService.getBalance(to, owner.getId()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.LedgerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerCompactionJobTest {
+
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private LedgerCompactionJob compactionJob;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void drainIfDisabled_ledgerOff_foldsEveryPendingEntryBeforeReturning() {
+        when(ledgerRepository.findCardsToCompact(eq(1), anyInt()))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L))
+                .thenReturn(List.of());
+        when(ledgerRepository.compact(anyLong())).thenReturn(true);
+
+        compactionJob.drainIfDisabled();
+
+        verify(ledgerRepository).compact(1L);
+        verify(ledgerRepository).compact(2L);
+        verify(ledgerRepository).compact(3L);
+        verify(ledgerRepository, times(3)).findCardsToCompact(eq(1), anyInt());
+    }
+
+    @Test
+    void drainIfDisabled_compactionFails_failsStartup() {
+        when(ledgerRepository.findCardsToCompact(eq(1), anyInt())).thenReturn(List.of(1L));
+        when(ledgerRepository.compact(1L)).thenThrow(new IllegalStateException("lock timeout"));
+
+        assertThrows(IllegalStateException.class, () -> compactionJob.drainIfDisabled());
+    }
+
+    @Test
+    void drainIfDisabled_ledgerOn_leavesEntriesToScheduledCompaction() {
+        when(ledgerService.isEnabled()).thenReturn(true);
+
+        compactionJob.drainIfDisabled();
+
+        verifyNoInteractions(ledgerRepository);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streams an export large enough that materializing it would take tens of megabytes and
+ * checks that the retained heap measured late in the stream is no larger than early on.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionExportHeapTest {
+
+    private static final int ROWS = 300_000;
+    private static final int EARLY_CHECKPOINT = 10_000;
+    private static final long MAX_HEAP_GROWTH_BYTES = 8L * 1024 * 1024;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 10, 1, 0, 0);
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    @Test
+    void export_heapStaysFlatAsRowCountGrows() throws Exception {
+        seed();
+        RowSampler sampler = new RowSampler();
+
+        exportService.export(START, START.plusMonths(1), ExportFormat.NDJSON, false).writeTo(sampler);
+
+        assertEquals(ROWS, sampler.rows);
+        long growth = sampler.lateHeap - sampler.earlyHeap;
+        assertTrue(growth < MAX_HEAP_GROWTH_BYTES,
+                "heap grew by " + growth + " bytes between row " + EARLY_CHECKPOINT + " and row " + ROWS);
+    }
+
+    private void seed() {
+        User owner = fixtures.user("Export");
+        long[] cardIds = fixtures.cards(owner, 2, BigDecimal.ZERO).stream().mapToLong(Card::getId).toArray();
+
+        partitionManager.createPartitions(YearMonth.from(START), YearMonth.from(START));
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, from_card_id, to_card_id, amount, created_at)
+                SELECT 100000000 + g, ?, ?, (g % 1000) + 0.25, ?::timestamp + g * interval '1 second'
+                FROM generate_series(1, ?) g""", cardIds[0], cardIds[1], START, ROWS);
+    }
+
+    /**
+     * Discards the export and measures the heap left after a full GC at two points of the stream.
+     */
+    private static final class RowSampler extends OutputStream {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private int rows;
+        private long earlyHeap;
+        private long lateHeap;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                rows++;
+                if (rows == EARLY_CHECKPOINT) {
+                    earlyHeap = retainedHeap();
+                } else if (rows == ROWS) {
+                    lateHeap = retainedHeap();
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(buffer[i]);
+            }
+        }
+
+        private long retainedHeap() {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+    }
+}
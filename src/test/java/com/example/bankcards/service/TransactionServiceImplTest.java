@@ -1,22 +1,52 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.archive.TransactionArchive;
+import com.example.bankcards.dto.BatchTransferItemResult;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardTransferStatisticsDto;
+import com.example.bankcards.dto.TransactionHistoryItemDto;
+import com.example.bankcards.dto.TransactionExportRow;
+import com.example.bankcards.dto.TransactionHistoryPageDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferTotalsDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.exception.TransferConflictException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionHistoryFilter;
+import com.example.bankcards.repository.TransactionHistoryRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.TransferBatchRepository;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+import com.example.bankcards.repository.TransferRollupRepository;
+import com.example.bankcards.util.CursorCodec;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,9 +60,32 @@ class TransactionServiceImplTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private TransferBatchRepository transferBatchRepository;
+
+    @Mock
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Mock
+    private TransferRollupRepository transferRollupRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
+    private static final Long USER_ID = 1L;
+
     private Card fromCard;
     private Card toCard;
 
@@ -56,15 +109,33 @@ class TransactionServiceImplTest {
 
     @Test
     void transferBetweenCards_success() {
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
         BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, USER_ID)).thenReturn(1);
+        when(cardRepository.credit(2L, amount)).thenReturn(1);
+
+        transactionService.transferBetweenCards(1L, 2L, amount, USER_ID);
+
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).debitIfAllowed(1L, 2L, amount, USER_ID);
+        inOrder.verify(cardRepository).credit(2L, amount);
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(transactionRepository).save(any());
+        verify(transferRollupRepository).record(eq(List.of(new TransferRow(1L, 2L, amount))), any());
+        verify(eventPublisher).publishEvent(new BalancesChangedEvent(List.of(1L, 2L)));
+    }
+
+    @Test
+    void transferBetweenCards_higherSourceId_locksLowerIdFirst() {
+        BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.credit(1L, amount)).thenReturn(1);
+        when(cardRepository.debitIfAllowed(2L, 1L, amount, USER_ID)).thenReturn(1);
 
-        transactionService.transferBetweenCards(1L, 2L, amount);
+        transactionService.transferBetweenCards(2L, 1L, amount, USER_ID);
 
-        assertEquals(new BigDecimal("900.00"), fromCard.getMoneyAmount());
-        assertEquals(new BigDecimal("600.00"), toCard.getMoneyAmount());
-        verify(cardRepository, times(2)).save(any(Card.class));
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).credit(1L, amount);
+        inOrder.verify(cardRepository).debitIfAllowed(2L, 1L, amount, USER_ID);
         verify(transactionRepository).save(any());
     }
 
@@ -73,43 +144,348 @@ class TransactionServiceImplTest {
         User anotherUser = new User();
         anotherUser.setId(2L);
         toCard.setOwner(anotherUser);
+        BigDecimal amount = new BigDecimal("100.00");
 
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, USER_ID)).thenReturn(0);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
-        BigDecimal amount = new BigDecimal("100.00");
 
-        assertThrows(ForbiddenOperationException.class, () -> transactionService.transferBetweenCards(1L, 2L, amount));
-        verify(cardRepository, never()).save(any(Card.class));
+        ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class,
+                () -> transactionService.transferBetweenCards(1L, 2L, amount, USER_ID));
+        assertEquals("Cards belong to different users", ex.getMessage());
+        verify(cardRepository, never()).credit(any(), any());
         verify(transactionRepository, never()).save(any());
     }
 
     @Test
     void transferBetweenCards_insufficientFunds_throwsException() {
+        BigDecimal amount = new BigDecimal("2000.00");
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, USER_ID)).thenReturn(0);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
-        BigDecimal amount = new BigDecimal("2000.00");
 
-        assertThrows(ForbiddenOperationException.class, () -> transactionService.transferBetweenCards(1L, 2L, amount));
-        verify(cardRepository, never()).save(any(Card.class));
+        ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class,
+                () -> transactionService.transferBetweenCards(1L, 2L, amount, USER_ID));
+        assertEquals("Not enough funds", ex.getMessage());
+        verify(cardRepository, never()).credit(any(), any());
+        verify(transactionRepository, never()).save(any());
     }
 
     @Test
     void transferBetweenCards_cardBlocked_throwsException() {
         fromCard.setCardStatus(CardStatus.BLOCKED);
+        BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, USER_ID)).thenReturn(0);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+
+        ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class,
+                () -> transactionService.transferBetweenCards(1L, 2L, amount, USER_ID));
+        assertEquals("Source card is blocked", ex.getMessage());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBetweenCards_balanceChangedConcurrently_throwsConflict() {
         BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, USER_ID)).thenReturn(0);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
 
-        assertThrows(ForbiddenOperationException.class, () -> transactionService.transferBetweenCards(1L, 2L, amount));
-        verify(cardRepository, never()).save(any(Card.class));
+        assertThrows(TransferConflictException.class, () -> transactionService.transferBetweenCards(1L, 2L, amount, USER_ID));
+        verify(transactionRepository, never()).save(any());
     }
 
     @Test
     void transferBetweenCards_cardNotFound_throwsException() {
+        BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, USER_ID)).thenReturn(0);
         when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> transactionService.transferBetweenCards(1L, 2L, amount, USER_ID));
+        verify(cardRepository, never()).credit(any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBetweenCards_targetNotFound_throwsException() {
         BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.credit(1L, amount)).thenReturn(0);
 
-        assertThrows(EntityNotFoundException.class, () -> transactionService.transferBetweenCards(1L, 2L, amount));
-        verify(cardRepository, never()).save(any(Card.class));
+        assertThrows(EntityNotFoundException.class, () -> transactionService.transferBetweenCards(2L, 1L, amount, USER_ID));
+        verify(cardRepository, never()).debitIfAllowed(any(), any(), any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBetweenCards_sourceOfAnotherUser_throwsNotFound() {
+        BigDecimal amount = new BigDecimal("100.00");
+        when(cardRepository.debitIfAllowed(1L, 2L, amount, 2L)).thenReturn(0);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+
+        EntityNotFoundException ex = assertThrows(EntityNotFoundException.class,
+                () -> transactionService.transferBetweenCards(1L, 2L, amount, 2L));
+        assertEquals("Card not found", ex.getMessage());
+        verify(cardRepository, never()).credit(any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    private void stubLockedCards() {
+        when(transferBatchRepository.lockCards(new TreeSet<>(List.of(1L, 2L)))).thenReturn(Map.of(
+                1L, new LockedCard(1L, 1L, CardStatus.ACTIVE, new BigDecimal("1000.00")),
+                2L, new LockedCard(2L, 1L, CardStatus.ACTIVE, new BigDecimal("500.00"))));
+    }
+
+    @Test
+    void transferBatch_allValid_writesBalancesAndTransactionsOnce() {
+        stubLockedCards();
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(1L, 2L, new BigDecimal("100.00")),
+                new TransferRequest(2L, 1L, new BigDecimal("50.00")));
+
+        BatchTransferResponse response = transactionService.transferBatch(requests, BatchTransferMode.ALL_OR_NOTHING, USER_ID);
+
+        assertTrue(response.applied());
+        assertEquals(2, response.succeeded());
+        assertEquals(0, response.failed());
+        verify(transferBatchRepository).updateBalances(Map.of(1L, new BigDecimal("950.00"), 2L, new BigDecimal("550.00")));
+        verify(transferBatchRepository).insertTransactions(argThat(rows -> rows.size() == 2), any());
+        verify(eventPublisher).publishEvent(new BalancesChangedEvent(Set.of(1L, 2L)));
+    }
+
+    @Test
+    void transferBatch_allOrNothing_rejectedItem_writesNothing() {
+        stubLockedCards();
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(1L, 2L, new BigDecimal("100.00")),
+                new TransferRequest(1L, 2L, new BigDecimal("5000.00")));
+
+        BatchTransferResponse response = transactionService.transferBatch(requests, BatchTransferMode.ALL_OR_NOTHING, USER_ID);
+
+        assertFalse(response.applied());
+        assertEquals(BatchTransferItemResult.Status.NOT_APPLIED, response.results().get(0).status());
+        assertEquals(BatchTransferItemResult.Status.REJECTED, response.results().get(1).status());
+        assertEquals("Not enough funds", response.results().get(1).error());
+        verify(transferBatchRepository, never()).updateBalances(any());
+        verify(transferBatchRepository, never()).insertTransactions(any(), any());
+        verifyNoInteractions(transferRollupRepository);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void transferBatch_bestEffort_appliesValidItems() {
+        stubLockedCards();
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(1L, 2L, new BigDecimal("900.00")),
+                new TransferRequest(1L, 2L, new BigDecimal("200.00")),
+                new TransferRequest(1L, 2L, new BigDecimal("100.00")));
+
+        BatchTransferResponse response = transactionService.transferBatch(requests, BatchTransferMode.BEST_EFFORT, USER_ID);
+
+        assertTrue(response.applied());
+        assertEquals(2, response.succeeded());
+        assertEquals(1, response.failed());
+        assertEquals(BatchTransferItemResult.Status.REJECTED, response.results().get(1).status());
+        verify(transferBatchRepository).updateBalances(Map.of(1L, new BigDecimal("0.00"), 2L, new BigDecimal("1500.00")));
+    }
+
+    @Test
+    void transferBatch_cardsOfAnotherUser_rejectedAsNotFound() {
+        stubLockedCards();
+        List<TransferRequest> requests = List.of(new TransferRequest(1L, 2L, new BigDecimal("100.00")));
+
+        BatchTransferResponse response = transactionService.transferBatch(requests, BatchTransferMode.BEST_EFFORT, 2L);
+
+        assertEquals(0, response.succeeded());
+        assertEquals(BatchTransferItemResult.Status.REJECTED, response.results().getFirst().status());
+        assertEquals("Card not found", response.results().getFirst().error());
+        verify(transferBatchRepository, never()).updateBalances(any());
+        verify(transferBatchRepository, never()).insertTransactions(any(), any());
+    }
+
+    @Test
+    void transferAll_mixedCallers_checksEachTransferAgainstItsCaller() {
+        stubLockedCards();
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(1L, 2L, new BigDecimal("100.00")),
+                new TransferRequest(2L, 1L, new BigDecimal("50.00")));
+
+        List<TransferRejection> rejections = transactionService.transferAll(requests, List.of(1L, 2L));
+
+        assertNull(rejections.get(0));
+        assertEquals(TransferRejection.CARD_NOT_FOUND, rejections.get(1));
+        verify(transferBatchRepository).updateBalances(Map.of(1L, new BigDecimal("900.00"), 2L, new BigDecimal("600.00")));
+    }
+
+    @Test
+    void transferBatch_invalidItem_rejectedWithoutLocking() {
+        List<TransferRequest> requests = List.of(new TransferRequest(1L, 2L, BigDecimal.ZERO));
+
+        BatchTransferResponse response = transactionService.transferBatch(requests, BatchTransferMode.BEST_EFFORT, USER_ID);
+
+        assertEquals("Amount must be greater than zero", response.results().getFirst().error());
+        verify(transferBatchRepository, never()).lockCards(any());
+        verify(transferBatchRepository, never()).insertTransactions(any(), any());
+    }
+
+    @Test
+    void transferBetweenCards_ledgerEnabled_appendsEntriesWithoutTouchingCards() {
+        when(ledgerService.isEnabled()).thenReturn(true);
+        when(ledgerService.lockForTransfer(1L, 2L)).thenReturn(Map.of(
+                1L, new LockedCard(1L, 1L, CardStatus.ACTIVE, new BigDecimal("1000.00")),
+                2L, new LockedCard(2L, 1L, CardStatus.ACTIVE, new BigDecimal("500.00"))));
+        when(cardRepository.getReferenceById(1L)).thenReturn(fromCard);
+        when(cardRepository.getReferenceById(2L)).thenReturn(toCard);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(7L);
+            return transaction;
+        });
+
+        transactionService.transferBetweenCards(1L, 2L, new BigDecimal("100.00"), USER_ID);
+
+        verify(ledgerService).record(eq(List.of(new TransferRow(1L, 2L, new BigDecimal("100.00")))), eq(List.of(7L)), any());
+        verify(cardRepository, never()).debitIfAllowed(any(), any(), any(), any());
+        verify(cardRepository, never()).credit(any(), any());
+    }
+
+    @Test
+    void transferBetweenCards_ledgerEnabled_insufficientFunds_throwsException() {
+        when(ledgerService.isEnabled()).thenReturn(true);
+        when(ledgerService.lockForTransfer(1L, 2L)).thenReturn(Map.of(
+                1L, new LockedCard(1L, 1L, CardStatus.ACTIVE, new BigDecimal("50.00")),
+                2L, new LockedCard(2L, 1L, CardStatus.ACTIVE, new BigDecimal("500.00"))));
+
+        ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class,
+                () -> transactionService.transferBetweenCards(1L, 2L, new BigDecimal("100.00"), USER_ID));
+        assertEquals("Not enough funds", ex.getMessage());
+        verify(ledgerService, never()).record(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_ledgerEnabled_recordsEntriesInsteadOfBalances() {
+        when(ledgerService.isEnabled()).thenReturn(true);
+        when(ledgerService.lockAll(new TreeSet<>(List.of(1L, 2L)))).thenReturn(Map.of(
+                1L, new LockedCard(1L, 1L, CardStatus.ACTIVE, new BigDecimal("1000.00")),
+                2L, new LockedCard(2L, 1L, CardStatus.ACTIVE, new BigDecimal("500.00"))));
+        when(transferBatchRepository.insertTransactions(any(), any())).thenReturn(List.of(11L));
+
+        BatchTransferResponse response = transactionService.transferBatch(
+                List.of(new TransferRequest(1L, 2L, new BigDecimal("100.00"))), BatchTransferMode.ALL_OR_NOTHING, USER_ID);
+
+        assertTrue(response.applied());
+        verify(ledgerService).record(eq(List.of(new TransferRow(1L, 2L, new BigDecimal("100.00")))), eq(List.of(11L)), any());
+        verify(transferBatchRepository, never()).updateBalances(any());
+        verify(transferBatchRepository, never()).lockCards(any());
+    }
+
+    @Test
+    void transferBatch_empty_throwsException() {
+        assertThrows(BadRequestException.class,
+                () -> transactionService.transferBatch(List.of(), BatchTransferMode.ALL_OR_NOTHING, USER_ID));
+    }
+
+    private static final TransactionHistoryFilter NO_FILTER = new TransactionHistoryFilter(null, null, null, null);
+
+    private TransactionHistoryItemDto historyItem(long id, LocalDateTime createdAt) {
+        return new TransactionHistoryItemDto(id, 1L, "**** **** **** 1111", 2L, "**** **** **** 2222",
+                new BigDecimal("10.00"), createdAt);
+    }
+
+    @Test
+    void getCardHistory_morePages_returnsCursorOfLastItem() {
+        LocalDateTime now = LocalDateTime.of(2025, 11, 20, 12, 0);
+        when(cardRepository.existsByIdAndOwner_Id(1L, 7L)).thenReturn(true);
+        when(transactionHistoryRepository.findCardHistory(1L, NO_FILTER, null, 3)).thenReturn(List.of(
+                historyItem(30L, now), historyItem(20L, now.minusMinutes(1)), historyItem(10L, now.minusMinutes(2))));
+
+        TransactionHistoryPageDto page = transactionService.getCardHistory(1L, NO_FILTER, null, 2, 7L);
+
+        assertEquals(2, page.items().size());
+        assertNotNull(page.nextCursor());
+        assertEquals(20L, CursorCodec.decode(page.nextCursor()).id());
+        assertEquals(now.minusMinutes(1), CursorCodec.decode(page.nextCursor()).createdAt());
+    }
+
+    @Test
+    void getCardHistory_lastPage_hasNoCursor() {
+        LocalDateTime now = LocalDateTime.of(2025, 11, 20, 12, 0);
+        CursorCodec.Position after = new CursorCodec.Position(now, 40L);
+        when(cardRepository.existsByIdAndOwner_Id(1L, 7L)).thenReturn(true);
+        when(transactionHistoryRepository.findCardHistory(1L, NO_FILTER, after, 3))
+                .thenReturn(List.of(historyItem(30L, now)));
+
+        TransactionHistoryPageDto page = transactionService.getCardHistory(1L, NO_FILTER,
+                CursorCodec.encode(now, 40L), 2, 7L);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getCardHistory_shortOnlinePage_continuesFromArchive() {
+        LocalDateTime now = LocalDateTime.of(2025, 11, 20, 12, 0);
+        LocalDateTime archived = now.minusYears(2);
+        when(cardRepository.existsByIdAndOwner_Id(1L, 7L)).thenReturn(true);
+        when(transactionHistoryRepository.findCardHistory(1L, NO_FILTER, null, 3))
+                .thenReturn(List.of(historyItem(30L, now)));
+        when(transactionArchive.isEmpty()).thenReturn(false);
+        when(transactionArchive.findHistory(List.of(1L), NO_FILTER, new CursorCodec.Position(now, 30L), 2)).thenReturn(List.of(
+                new TransactionExportRow(5L, 1L, 2L, new BigDecimal("10.00"), archived),
+                new TransactionExportRow(4L, 2L, 1L, new BigDecimal("20.00"), archived.minusDays(1))));
+        when(transactionHistoryRepository.findLast4(Set.of(1L, 2L))).thenReturn(Map.of(1L, "1111", 2L, "2222"));
+
+        TransactionHistoryPageDto page = transactionService.getCardHistory(1L, NO_FILTER, null, 2, 7L);
+
+        assertEquals(List.of(30L, 5L), page.items().stream().map(TransactionHistoryItemDto::id).toList());
+        assertEquals("**** **** **** 2222", page.items().get(1).toCardNumber());
+        assertEquals(5L, CursorCodec.decode(page.nextCursor()).id());
+    }
+
+    @Test
+    void getCardStatistics_noTransfersThatMonth_returnsZeroTotals() {
+        LocalDate day = LocalDate.of(2025, 11, 20);
+        TransferTotalsDto daily = new TransferTotalsDto(day, new BigDecimal("30.00"), 2, BigDecimal.ZERO, 0);
+        when(cardRepository.existsByIdAndOwner_Id(1L, 7L)).thenReturn(true);
+        when(transferRollupRepository.findDaily(1L, day)).thenReturn(Optional.of(daily));
+        when(transferRollupRepository.findMonthly(1L, day)).thenReturn(Optional.empty());
+
+        CardTransferStatisticsDto statistics = transactionService.getCardStatistics(1L, day, 7L);
+
+        assertEquals(daily, statistics.day());
+        assertEquals(TransferTotalsDto.empty(LocalDate.of(2025, 11, 1)), statistics.month());
+    }
+
+    @Test
+    void getCardStatistics_foreignCard_throwsException() {
+        when(cardRepository.existsByIdAndOwner_Id(1L, 7L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> transactionService.getCardStatistics(1L, LocalDate.of(2025, 11, 20), 7L));
+        verifyNoInteractions(transferRollupRepository);
+    }
+
+    @Test
+    void getCardHistory_foreignCard_throwsException() {
+        when(cardRepository.existsByIdAndOwner_Id(1L, 7L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> transactionService.getCardHistory(1L, NO_FILTER, null, 20, 7L));
+        verifyNoInteractions(transactionHistoryRepository);
+    }
+
+    @Test
+    void getUserHistory_invalidAmountRange_throwsException() {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(null, null, new BigDecimal("50"), new BigDecimal("10"));
+
+        assertThrows(BadRequestException.class,
+                () -> transactionService.getUserHistory(filter, null, 20, 7L));
+        verifyNoInteractions(transactionHistoryRepository);
+    }
+
+    @Test
+    void getUserHistory_invalidCursor_throwsException() {
+        assertThrows(BadRequestException.class,
+                () -> transactionService.getUserHistory(NO_FILTER, "not-a-cursor", 20, 7L));
     }
 }
@@ -0,0 +1,28 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Runs the concurrency checks of {@link TransactionServiceConcurrencyTest} against the transfer
+ * engine, with few shards and small batches so that shards and group commits interleave.
+ */
+@SpringBootTest(properties = {"app.engine.enabled=true", "app.engine.shards=2", "app.engine.max-batch=8"})
+@Import(PostgresTestContainerConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+class TransferEngineConcurrencyTest extends TransactionServiceConcurrencyTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Test
+    void transactionService_isServedByEngine() {
+        assertInstanceOf(EngineTransactionService.class, transactionService);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferOutcome;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository.StoredOutcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferIdempotencyServiceImplTest {
+
+    private static final Long USER_ID = 7L;
+    private static final TransferRequest REQUEST = new TransferRequest(1L, 2L, new BigDecimal("100.00"));
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private IdempotencyKeyRepository repository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TransferIdempotencyServiceImpl idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new TransferIdempotencyServiceImpl(transactionService, repository, transactionTemplate,
+                meterRegistry, Duration.ofHours(24), Duration.ofSeconds(5), DataSize.ofMegabytes(1));
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void transfer_retriedKey_appliesOnceAndReplays() {
+        when(repository.insert(eq(USER_ID), eq("key-1"), any(), any())).thenReturn(true);
+
+        TransferOutcome first = idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+        TransferOutcome retry = idempotencyService.transfer(USER_ID, "key-1",
+                new TransferRequest(1L, 2L, new BigDecimal("100")));
+
+        assertEquals(new TransferOutcome(200, null, false), first);
+        assertEquals(new TransferOutcome(200, null, true), retry);
+        verify(transactionService).transferBetweenCards(1L, 2L, new BigDecimal("100.00"), USER_ID);
+        verify(repository).insert(eq(USER_ID), eq("key-1"), any(), any());
+        assertEquals(1.0, meterRegistry.get("transfer.idempotency.replays").counter().count());
+        assertTrue(meterRegistry.get("transfer.idempotency.cache.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void transfer_keyReusedForDifferentTransfer_throwsException() {
+        when(repository.insert(eq(USER_ID), eq("key-1"), any(), any())).thenReturn(true);
+        idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+
+        assertThrows(BadRequestException.class, () -> idempotencyService.transfer(USER_ID, "key-1",
+                new TransferRequest(1L, 2L, new BigDecimal("100.01"))));
+        verify(transactionService, times(1)).transferBetweenCards(any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_keyStoredByEarlierRequest_replaysWithoutTransferring() {
+        AtomicReference<byte[]> requestHash = new AtomicReference<>();
+        when(repository.insert(eq(USER_ID), eq("key-1"), any(), any())).thenAnswer(invocation -> {
+            requestHash.set(invocation.<StoredOutcome>getArgument(2).requestHash());
+            return false;
+        });
+        when(repository.find(USER_ID, "key-1"))
+                .thenAnswer(_ -> Optional.of(new StoredOutcome(requestHash.get(), 400, "Not enough funds")));
+
+        TransferOutcome outcome = idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+
+        assertEquals(new TransferOutcome(400, "Not enough funds", true), outcome);
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void transfer_rejected_recordsRejectionForRetries() {
+        when(repository.insert(eq(USER_ID), eq("key-1"), any(), any())).thenReturn(true);
+        doThrow(new ForbiddenOperationException("Not enough funds"))
+                .when(transactionService).transferBetweenCards(1L, 2L, new BigDecimal("100.00"), USER_ID);
+
+        TransferOutcome first = idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+        TransferOutcome retry = idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+
+        assertEquals(new TransferOutcome(400, "Not enough funds", false), first);
+        assertEquals(new TransferOutcome(400, "Not enough funds", true), retry);
+        verify(repository).insert(eq(USER_ID), eq("key-1"),
+                argThat(stored -> stored.status() == 400 && "Not enough funds".equals(stored.body())), any());
+        verify(transactionService, times(1)).transferBetweenCards(any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_lostRace_releasesKeyForRetry() {
+        when(repository.insert(eq(USER_ID), eq("key-1"), any(), any())).thenReturn(true);
+        doThrow(new TransferConflictException("Card balance changed concurrently, retry the transfer"))
+                .doNothing()
+                .when(transactionService).transferBetweenCards(1L, 2L, new BigDecimal("100.00"), USER_ID);
+
+        assertThrows(TransferConflictException.class, () -> idempotencyService.transfer(USER_ID, "key-1", REQUEST));
+        TransferOutcome retry = idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+
+        assertEquals(new TransferOutcome(200, null, false), retry);
+        verify(transactionService, times(2)).transferBetweenCards(any(), any(), any(), any());
+        verify(repository, never()).insert(eq(USER_ID), eq("key-1"), argThat(stored -> stored.status() != 200), any());
+    }
+
+    @Test
+    void transfer_concurrentDuplicate_waitsForInFlightRequest() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.insert(eq(USER_ID), eq("key-1"), any(), any())).thenReturn(true);
+        doAnswer(_ -> {
+            entered.countDown();
+            release.await();
+            return null;
+        }).when(transactionService).transferBetweenCards(1L, 2L, new BigDecimal("100.00"), USER_ID);
+
+        CompletableFuture<TransferOutcome> first = CompletableFuture.supplyAsync(
+                () -> idempotencyService.transfer(USER_ID, "key-1", REQUEST));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<TransferOutcome> duplicate = CompletableFuture.supplyAsync(
+                () -> idempotencyService.transfer(USER_ID, "key-1", REQUEST));
+
+        assertThrows(TimeoutException.class, () -> duplicate.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+
+        assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+        assertTrue(duplicate.get(5, TimeUnit.SECONDS).replayed());
+        verify(transactionService, times(1)).transferBetweenCards(any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_sameKeyOfAnotherUser_isIndependent() {
+        when(repository.insert(anyLong(), eq("key-1"), any(), any())).thenReturn(true);
+
+        idempotencyService.transfer(USER_ID, "key-1", REQUEST);
+        TransferOutcome other = idempotencyService.transfer(8L, "key-1", REQUEST);
+
+        assertFalse(other.replayed());
+        verify(transactionService).transferBetweenCards(1L, 2L, new BigDecimal("100.00"), 8L);
+    }
+
+    @Test
+    void transfer_blankKey_throwsException() {
+        assertThrows(BadRequestException.class, () -> idempotencyService.transfer(USER_ID, " ", REQUEST));
+        verifyNoInteractions(repository, transactionService);
+    }
+}
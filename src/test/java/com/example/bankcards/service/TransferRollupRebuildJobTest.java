@@ -0,0 +1,103 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PostgresTestContainerConfig;
+import com.example.bankcards.config.TestFixtures;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.TransferBatchRepository.TransferRow;
+import com.example.bankcards.repository.TransferRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Detaches and drops a month of {@code transactions} the way the archiver does, then
+ * rebuilds the rollups: the dropped month must keep its totals, attached months must be recomputed.
+ */
+@SpringBootTest
+@Import({PostgresTestContainerConfig.class, TestFixtures.class})
+@Testcontainers(disabledWithoutDocker = true)
+class TransferRollupRebuildJobTest {
+
+    private static final YearMonth ARCHIVED_MONTH = YearMonth.of(2019, 3);
+
+    @Autowired
+    private TransferRollupRebuildJob rebuildJob;
+
+    @Autowired
+    private TransferRollupRepository rollupRepository;
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void rebuild_afterMonthDetachedAndDropped_keepsItsRollups() throws Exception {
+        User owner = fixtures.user("Rollup");
+        long from = fixtures.card(owner, BigDecimal.ZERO).getId();
+        long to = fixtures.card(owner, BigDecimal.ZERO).getId();
+        LocalDateTime archivedAt = ARCHIVED_MONTH.atDay(10).atTime(12, 0);
+        LocalDateTime onlineAt = LocalDateTime.now().withNano(0);
+
+        partitionManager.createPartitions(ARCHIVED_MONTH, ARCHIVED_MONTH);
+        transfer(from, to, new BigDecimal("10.00"), archivedAt);
+        transfer(from, to, new BigDecimal("5.00"), onlineAt);
+        // drift in the attached month, which the rebuild must repair
+        LocalDate onlineMonth = onlineAt.toLocalDate().withDayOfMonth(1);
+        jdbcTemplate.update("UPDATE card_transfer_daily_rollup SET debit_amount = 999 WHERE card_id = ? AND period_start >= ?",
+                from, onlineMonth);
+        jdbcTemplate.update("UPDATE card_transfer_monthly_rollup SET debit_amount = 999 WHERE card_id = ? AND period_start >= ?",
+                from, onlineMonth);
+
+        partitionManager.detachPartition(ARCHIVED_MONTH);
+        jdbcTemplate.execute("DROP TABLE " + TransactionPartitionManager.partitionName(ARCHIVED_MONTH));
+
+        rebuild();
+
+        LocalDate archivedDay = archivedAt.toLocalDate();
+        assertEquals(0, new BigDecimal("10.00").compareTo(rollupRepository.findDaily(from, archivedDay).orElseThrow().debitAmount()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(rollupRepository.findMonthly(from, archivedDay).orElseThrow().debitAmount()));
+        assertEquals(1, rollupRepository.findMonthly(to, archivedDay).orElseThrow().creditCount());
+
+        LocalDate onlineDay = onlineAt.toLocalDate();
+        assertEquals(0, new BigDecimal("5.00").compareTo(rollupRepository.findDaily(from, onlineDay).orElseThrow().debitAmount()));
+        assertEquals(0, new BigDecimal("5.00").compareTo(rollupRepository.findMonthly(from, onlineDay).orElseThrow().debitAmount()));
+        assertEquals(1, rollupRepository.findMonthly(to, onlineDay).orElseThrow().creditCount());
+    }
+
+    private void transfer(long from, long to, BigDecimal amount, LocalDateTime createdAt) {
+        transactionTemplate.executeWithoutResult(_ -> {
+            jdbcTemplate.update("""
+                    INSERT INTO transactions (id, from_card_id, to_card_id, amount, created_at)
+                    VALUES (nextval('transactions_seq'), ?, ?, ?, ?)""", from, to, amount, createdAt);
+            rollupRepository.record(List.of(new TransferRow(from, to, amount)), createdAt);
+        });
+    }
+
+    private void rebuild() throws InterruptedException {
+        rebuildJob.start();
+        for (int i = 0; i < 600 && "RUNNING".equals(rebuildJob.status().state()); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("COMPLETED", rebuildJob.status().state());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.exception.ServiceUnavailableException;
+import com.example.bankcards.repository.TransferBatchRepository.LockedCard;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives a single shard against a mocked engine, with {@code balance} standing in for the
+ * committed balance of the source card.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransferShardTest {
+
+    private static final long FROM = 1L;
+    private static final long TO = 2L;
+    private static final long OWNER = 7L;
+
+    @Mock
+    private TransferEngine engine;
+
+    private final AtomicReference<BigDecimal> balance = new AtomicReference<>(new BigDecimal("100.00"));
+    private TransferShard shard;
+
+    @BeforeEach
+    void setUp() {
+        shard = new TransferShard(0, engine, 100, 8, 100);
+        lenient().when(engine.shardOf(anyLong())).thenReturn(shard);
+        lenient().when(engine.loadCard(FROM))
+                .thenAnswer(_ -> Optional.of(new LockedCard(FROM, OWNER, CardStatus.ACTIVE, balance.get())));
+        lenient().when(engine.loadCard(TO))
+                .thenAnswer(_ -> Optional.of(new LockedCard(TO, OWNER, CardStatus.ACTIVE, BigDecimal.ZERO)));
+        shard.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        shard.stop(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void transfer_reservesUntilCommittedAndSettlesAfterwards() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(engine.commit(anyList(), anyList()))
+                .thenAnswer(blockingCommit(committing, release))
+                .thenAnswer(applied());
+
+        CompletableFuture<Void> first = shard.submit(FROM, TO, new BigDecimal("60.00"), OWNER);
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+
+        // the database still shows 100.00, but 60.00 of it is reserved by the uncommitted transfer
+        CompletableFuture<Void> second = shard.submit(FROM, TO, new BigDecimal("60.00"), OWNER);
+        assertEquals("Not enough funds", failure(second, ForbiddenOperationException.class).getMessage());
+
+        balance.set(new BigDecimal("40.00"));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        // a credit from elsewhere: once settled, the reload is not reduced by the finished debit
+        balance.set(new BigDecimal("70.00"));
+        shard.submit(FROM, TO, new BigDecimal("70.00"), OWNER).get(5, TimeUnit.SECONDS);
+        verify(engine, times(2)).commit(anyList(), anyList());
+    }
+
+    @Test
+    void transfer_staleCachedBalance_reloadedBeforeRefusing() throws Exception {
+        when(engine.commit(anyList(), anyList())).thenAnswer(applied());
+
+        shard.submit(FROM, TO, new BigDecimal("90.00"), OWNER).get(5, TimeUnit.SECONDS);
+        balance.set(new BigDecimal("110.00"));
+
+        shard.submit(FROM, TO, new BigDecimal("50.00"), OWNER).get(5, TimeUnit.SECONDS);
+
+        verify(engine, times(2)).loadCard(FROM);
+        verify(engine, times(2)).commit(anyList(), anyList());
+    }
+
+    @Test
+    void transfer_notEnoughFundsAfterReload_refusedWithoutCommit() {
+        CompletableFuture<Void> transfer = shard.submit(FROM, TO, new BigDecimal("150.00"), OWNER);
+
+        assertEquals("Not enough funds", failure(transfer, ForbiddenOperationException.class).getMessage());
+        verify(engine, times(2)).loadCard(FROM);
+        verify(engine, never()).commit(anyList(), anyList());
+    }
+
+    @Test
+    void transfer_cardOfAnotherUser_refusedAsNotFound() {
+        CompletableFuture<Void> transfer = shard.submit(FROM, TO, new BigDecimal("10.00"), 8L);
+
+        assertEquals("Card not found", failure(transfer, EntityNotFoundException.class).getMessage());
+        verify(engine, never()).commit(anyList(), anyList());
+    }
+
+    @Test
+    void transfer_rejectedByGroupCommit_failsWithItsRejection() throws Exception {
+        when(engine.commit(anyList(), anyList()))
+                .thenReturn(List.of(TransferRejection.CARD_NOT_FOUND))
+                .thenAnswer(applied());
+
+        CompletableFuture<Void> rejected = shard.submit(FROM, TO, new BigDecimal("60.00"), OWNER);
+        assertEquals("Card not found", failure(rejected, EntityNotFoundException.class).getMessage());
+
+        // the rejected amount is no longer reserved
+        shard.submit(FROM, TO, new BigDecimal("100.00"), OWNER).get(5, TimeUnit.SECONDS);
+        verify(engine, times(2)).commit(anyList(), anyList());
+    }
+
+    @Test
+    void transfer_failedGroupCommit_returns503AndReleasesReservation() throws Exception {
+        when(engine.commit(anyList(), anyList()))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenAnswer(applied());
+
+        CompletableFuture<Void> failed = shard.submit(FROM, TO, new BigDecimal("60.00"), OWNER);
+        failure(failed, ServiceUnavailableException.class);
+
+        // nothing was written, so the whole balance is available again
+        shard.submit(FROM, TO, new BigDecimal("100.00"), OWNER).get(5, TimeUnit.SECONDS);
+        verify(engine, times(2)).commit(anyList(), anyList());
+    }
+
+    @Test
+    void stop_drainsQueuedTransfersBeforeExiting() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(engine.commit(anyList(), anyList()))
+                .thenAnswer(blockingCommit(committing, release))
+                .thenAnswer(applied());
+
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        transfers.add(shard.submit(FROM, TO, new BigDecimal("10.00"), OWNER));
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            transfers.add(shard.submit(FROM, TO, new BigDecimal("10.00"), OWNER));
+        }
+
+        CompletableFuture<Void> stopping = CompletableFuture.runAsync(() -> shard.stop(Duration.ofSeconds(5)));
+        release.countDown();
+        stopping.get(10, TimeUnit.SECONDS);
+
+        for (CompletableFuture<Void> transfer : transfers) {
+            assertDoesNotThrow(() -> transfer.get(0, TimeUnit.SECONDS));
+        }
+        failure(shard.submit(FROM, TO, new BigDecimal("10.00"), OWNER), ServiceUnavailableException.class);
+    }
+
+    private static Answer<List<TransferRejection>> applied() {
+        return invocation -> {
+            List<TransferRequest> requests = invocation.getArgument(0);
+            return Arrays.asList(new TransferRejection[requests.size()]);
+        };
+    }
+
+    private static Answer<List<TransferRejection>> blockingCommit(CountDownLatch committing, CountDownLatch release) {
+        return invocation -> {
+            committing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return applied().answer(invocation);
+        };
+    }
+
+    private static <E extends RuntimeException> E failure(CompletableFuture<Void> transfer, Class<E> type) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> transfer.get(5, TimeUnit.SECONDS));
+        return assertInstanceOf(type, e.getCause());
+    }
+}
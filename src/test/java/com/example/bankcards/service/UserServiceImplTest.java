@@ -1,26 +1,33 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.TableStatisticsRepository;
 import com.example.bankcards.repository.UserFilter;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.PasswordHasher;
+import com.example.bankcards.util.CursorCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
@@ -42,7 +49,7 @@ class UserServiceImplTest {
     private UserMapper userMapper;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Mock
     private RoleRepository roleRepository;
@@ -50,6 +57,15 @@ class UserServiceImplTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TableStatisticsRepository tableStatisticsRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -59,6 +75,9 @@ class UserServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         user = new User();
         user.setId(1L);
         user.setName("John");
@@ -94,6 +113,21 @@ class UserServiceImplTest {
         verify(userRepository).findAll(any(Specification.class), any(Pageable.class));
     }
 
+    @Test
+    void getAllSlice_moreRows_returnsMappedSliceWithCursorAndTotal() {
+        User next = new User();
+        next.setId(2L);
+        doReturn(List.of(user, next)).when(userRepository).findBy(any(Specification.class), any());
+        when(userMapper.toUserResponseDto(user)).thenReturn(userResponseDto);
+        when(tableStatisticsRepository.approximateRowCount("user_account")).thenReturn(500L);
+
+        SliceDto<UserResponseDto> result = userService.getAllSlice(new UserFilter(null), null, 1, true);
+
+        assertEquals(List.of(userResponseDto), result.items());
+        assertEquals(1L, CursorCodec.decodeId(result.nextCursor()));
+        assertEquals(500L, result.approximateTotal());
+    }
+
     @Test
     void getOne_success() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
@@ -117,7 +151,8 @@ class UserServiceImplTest {
 
     @Test
     void create_success() {
-        when(userMapper.toEntity(any(UserDto.class), any(), any())).thenReturn(user);
+        when(passwordHasher.encode(userDto.password())).thenReturn("encodedPassword");
+        when(userMapper.toEntity(userDto, "encodedPassword", roleRepository)).thenReturn(user);
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(userMapper.toUserResponseDto(any(User.class))).thenReturn(userResponseDto);
 
@@ -126,6 +161,9 @@ class UserServiceImplTest {
         assertNotNull(result);
         assertEquals(userResponseDto.name(), result.name());
         verify(userRepository).save(user);
+        InOrder inOrder = inOrder(passwordHasher, transactionTemplate);
+        inOrder.verify(passwordHasher).encode(userDto.password());
+        inOrder.verify(transactionTemplate).execute(any());
     }
 
     @Test
@@ -136,14 +174,16 @@ class UserServiceImplTest {
         when(patchNode.get("password").asText()).thenReturn("newPassword");
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(passwordEncoder.encode("newPassword")).thenReturn("encodedPassword");
+        when(passwordHasher.encode("newPassword")).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(userMapper.toUserResponseDto(user)).thenReturn(userResponseDto);
 
         userService.patch(1L, patchNode);
 
-        verify(passwordEncoder).encode("newPassword");
+        verify(passwordHasher).encode("newPassword");
         verify(userRepository).save(user);
+        assertEquals(1, user.getTokenVersion());
+        verify(eventPublisher).publishEvent(new UserCredentialsChangedEvent(List.of(1L)));
     }
 
     @Test
@@ -163,7 +203,7 @@ class UserServiceImplTest {
         when(patchNode.get("password").asText()).thenReturn("newPassword");
 
         when(userRepository.findAllById(ids)).thenReturn(List.of(user));
-        when(passwordEncoder.encode("newPassword")).thenReturn("encodedPassword");
+        when(passwordHasher.encode("newPassword")).thenReturn("encodedPassword");
         when(userRepository.saveAll(anyCollection())).thenReturn(List.of(user));
 
         List<Long> result = userService.patchMany(ids, patchNode);
@@ -171,6 +211,9 @@ class UserServiceImplTest {
         assertFalse(result.isEmpty());
         assertEquals(1L, result.get(0));
         verify(userRepository).saveAll(anyCollection());
+        InOrder inOrder = inOrder(passwordHasher, transactionTemplate);
+        inOrder.verify(passwordHasher).encode("newPassword");
+        inOrder.verify(transactionTemplate).execute(any());
     }
 
     @Test
@@ -183,6 +226,7 @@ class UserServiceImplTest {
 
         assertNotNull(result);
         verify(userRepository).delete(user);
+        verify(eventPublisher).publishEvent(new UserCredentialsChangedEvent(List.of(1L)));
     }
 
     @Test